@@ -0,0 +1,55 @@
+package SciTK;
+
+/** RawImage backed by a double[][] array, e.g. data[i][j] = pixel_ij.
+ * Rows are returned directly, without copying.
+ *
+ * @package SciTK
+ * @class ArrayRawImage
+ * @brief RawImage wrapping a 2-D array
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class ArrayRawImage implements RawImage
+{
+	private double[][] data; /** The wrapped data */
+
+	/**
+	* Constructor
+	* @param data the data in an i x j array, e.g. data[i][j] = pixel_ij
+	*/
+	public ArrayRawImage(double[][] data)
+	{
+		this.data = data;
+	}
+
+	/**
+	* Get the wrapped array
+	* @return the data
+	*/
+	public double[][] getData()
+	{
+		return data;
+	}
+
+	public int getWidth()
+	{
+		return (data.length == 0) ? 0 : data[0].length;
+	}
+
+	public int getHeight()
+	{
+		return data.length;
+	}
+
+	public double get(int row, int col)
+	{
+		return data[row][col];
+	}
+
+	public double[] getRow(int row, double[] buf)
+	{
+		return data[row];
+	}
+}
@@ -0,0 +1,312 @@
+package SciTK;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jfree.chart.JFreeChart;
+
+/** Export many plots and images to files at once. Items are queued
+ * with add(), then export() renders them concurrently on a fixed number
+ * of worker threads. Each worker keeps its own raster buffer, which is
+ * reused for every PNG of the same size, so rendering does not allocate
+ * a new image per chart. Failures do not stop the batch or open any
+ * dialogs: each item's outcome and timing is returned as a Result.
+ *
+ * Charts are drawn from the worker threads, so charts belonging to
+ * visible windows should not be modified while a batch is running.
+ * JFreeChart is not thread-safe, so a chart queued more than once (e.g.
+ * to several files) is drawn by one worker at a time: each chart is
+ * locked while it is drawn.
+ * For large headless jobs, build the charts with each plot class's
+ * createChart method instead of opening windows.
+ *
+ * @package SciTK
+ * @class BatchExport
+ * @brief Concurrent export of many charts and images
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class BatchExport
+{
+	private int num_threads; /** Number of worker threads */
+	private ArrayList<Item> items; /** Queued items */
+	private ExecutorService workers; /** Worker pool, created on first export */
+	private ThreadLocal<BufferedImage> buffer; /** Reusable raster target for each worker */
+
+	/** Constructor, using one worker per available processor */
+	public BatchExport()
+	{
+		this( Runtime.getRuntime().availableProcessors() );
+	}
+
+	/**
+	* Constructor
+	* @param num_threads the number of worker threads to render with
+	*/
+	public BatchExport(int num_threads)
+	{
+		this.num_threads = Math.max(num_threads,1);
+		items = new ArrayList<Item>();
+		buffer = new ThreadLocal<BufferedImage>();
+	}
+
+	// ---------------------------------------
+	//		Queueing items
+	// ---------------------------------------
+	/**
+	* Queue a chart for export
+	* @param name the output file name, without extension
+	* @param chart the chart to export
+	*/
+	public void add(String name, JFreeChart chart)
+	{
+		items.add( new Item(name, chart, null) );
+	}
+
+	/**
+	* Queue a plot for export
+	* @param name the output file name, without extension
+	* @param plot the plot whose chart is exported
+	*/
+	public void add(String name, Plot plot)
+	{
+		add(name, plot.getChart());
+	}
+
+	/**
+	* Queue an image for export. The image is exported at its own size.
+	* @param name the output file name, without extension
+	* @param image the image to export
+	*/
+	public void add(String name, BufferedImage image)
+	{
+		items.add( new Item(name, null, image) );
+	}
+
+	/**
+	* Queue a SciTK_Image window's current image for export
+	* @param name the output file name, without extension
+	* @param image the window whose image is exported
+	*/
+	public void add(String name, SciTK_Image image)
+	{
+		add(name, image.getImage());
+	}
+
+	/**
+	* Get the number of queued items
+	* @return the number of items
+	*/
+	public int size()
+	{
+		return items.size();
+	}
+
+	/** Remove all queued items */
+	public void clear()
+	{
+		items.clear();
+	}
+
+	// ---------------------------------------
+	//		Export
+	// ---------------------------------------
+	/**
+	* Export all queued items to a directory and wait for them to finish.
+	* The queue is left unchanged.
+	* @param dir the directory to write to (created if needed)
+	* @param format the file format: "png", "svg", "ps", or "eps"
+	* @param width width of chart output in pixels (images use their own size)
+	* @param height height of chart output in pixels (images use their own size)
+	* @return a Result for each item, in the order they were added
+	*/
+	public List<Result> export(File dir, String format, int width, int height)
+	{
+		final String fmt = format.toLowerCase();
+		if( !fmt.equals("png") && !fmt.equals("svg") && !fmt.equals("ps") && !fmt.equals("eps") )
+			throw new IllegalArgumentException("Unknown export format: " + format);
+		if( !dir.isDirectory() )
+			dir.mkdirs();
+
+		// submit everything, then collect results in order:
+		ExecutorService pool = getWorkers();
+		ArrayList<Future<Result>> futures = new ArrayList<Future<Result>>(items.size());
+		for(final Item item : items)
+		{
+			final File file = new File(dir, item.name + "." + fmt);
+			final int w = width, h = height;
+			futures.add( pool.submit(new Callable<Result>() {
+				public Result call() {
+					return exportItem(item, file, fmt, w, h);
+				}
+			}) );
+		}
+
+		ArrayList<Result> results = new ArrayList<Result>(futures.size());
+		for(int i=0; i<futures.size(); i++)
+		{
+			try
+			{
+				results.add( futures.get(i).get() );
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				results.add( new Result(items.get(i).name, null, 0, e) );
+			}
+			catch(ExecutionException e)
+			{
+				results.add( new Result(items.get(i).name, null, 0, e.getCause()) );
+			}
+		}
+		return results;
+	}
+
+	/** Stop the worker threads. They are restarted if export is called again. */
+	public synchronized void shutdown()
+	{
+		if( workers != null )
+		{
+			workers.shutdown();
+			workers = null;
+		}
+	}
+
+	/** Get the worker pool, creating it if needed */
+	private synchronized ExecutorService getWorkers()
+	{
+		if( workers == null )
+		{
+			final AtomicInteger count = new AtomicInteger();
+			workers = Executors.newFixedThreadPool(num_threads, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "SciTK-export-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return workers;
+	}
+
+	/** Export a single item on a worker thread, recording time and any failure */
+	private Result exportItem(Item item, File file, String fmt, int width, int height)
+	{
+		long start = System.nanoTime();
+		try
+		{
+			if( item.chart != null )
+			{
+				if( fmt.equals("png") )
+				{
+					BufferedImage target = getBuffer(width, height);
+					synchronized(item.chart)
+					{
+						ChartExport.renderImage(item.chart, target);
+					}
+					ChartExport.writePNG(target, file);
+				}
+				else
+				{
+					// vector output is written while drawing:
+					synchronized(item.chart)
+					{
+						if( fmt.equals("svg") )
+							ChartExport.writeSVG(item.chart, new Rectangle(width,height), file);
+						else
+							ChartExport.writePS(item.chart, new Rectangle(width,height), file, fmt);
+					}
+				}
+			}
+			else
+			{
+				if( fmt.equals("png") )
+					ChartExport.writePNG(item.image, file);
+				else if( fmt.equals("svg") )
+					ChartExport.writeSVG(item.image, file);
+				else
+					ChartExport.writePS(item.image, file, fmt);
+			}
+			return new Result(item.name, file, System.nanoTime()-start, null);
+		}
+		catch(Throwable t)
+		{
+			return new Result(item.name, file, System.nanoTime()-start, t);
+		}
+	}
+
+	/** Get this worker's raster buffer, reallocating only if the size changed */
+	private BufferedImage getBuffer(int width, int height)
+	{
+		BufferedImage b = buffer.get();
+		if( b == null || b.getWidth() != width || b.getHeight() != height )
+		{
+			b = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			buffer.set(b);
+		}
+		return b;
+	}
+
+	/** A queued chart or image */
+	private static class Item
+	{
+		String name; /** output file name, without extension */
+		JFreeChart chart; /** chart to render, or null */
+		BufferedImage image; /** image to write, or null */
+
+		Item(String name, JFreeChart chart, BufferedImage image)
+		{
+			this.name = name;
+			this.chart = chart;
+			this.image = image;
+		}
+	}
+
+	/** Outcome of exporting one item */
+	public static class Result
+	{
+		private String name;
+		private File file;
+		private long nanos;
+		private Throwable error;
+
+		Result(String name, File file, long nanos, Throwable error)
+		{
+			this.name = name;
+			this.file = file;
+			this.nanos = nanos;
+			this.error = error;
+		}
+
+		/** @return the item's name */
+		public String getName() { return name; }
+		/** @return the file written (or attempted) */
+		public File getFile() { return file; }
+		/** @return time spent rendering and writing, in nanoseconds */
+		public long getNanos() { return nanos; }
+		/** @return the failure, or null if the export succeeded */
+		public Throwable getError() { return error; }
+		/** @return true if the export succeeded */
+		public boolean succeeded() { return error == null; }
+
+		public String toString()
+		{
+			String s = name + SciTK_Text.TOOLKIT_CSV_DELIM + nanos/1e6 + " ms";
+			if( error != null )
+				s += SciTK_Text.TOOLKIT_CSV_DELIM + "FAILED: " + error;
+			return s;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package SciTK;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYZDataset;
+import org.jfree.data.xy.IntervalXYDataset;
+
+/** Write delimited (CSV) text to a Writer without building the
+ * whole output in memory. Values are formatted into a small reusable
+ * buffer, which is handed to the underlying Writer whenever it fills up,
+ * so memory use does not depend on the amount of data written.
+ *
+ * @package SciTK
+ * @class CSVWriter
+ * @brief Streaming CSV output for plot data
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class CSVWriter
+{
+	private static final int BUFFER_SIZE = 16384; /** Formatted characters to hold before writing */
+
+	private Writer out; /** Destination for the formatted text */
+	private StringBuilder sb; /** Reusable formatting buffer */
+	private char[] chars; /** Transfer buffer between sb and out */
+
+	/**
+	* Constructor
+	* @param out the Writer which receives the CSV text
+	*/
+	public CSVWriter(Writer out)
+	{
+		this.out = out;
+		sb = new StringBuilder(BUFFER_SIZE + 64);
+		chars = new char[BUFFER_SIZE + 64];
+	}
+
+	// ---------------------------------------
+	//		Low-level output
+	// ---------------------------------------
+	/**
+	* Write a single value. The format is identical to Double.toString(v),
+	* but no intermediate String is created.
+	* @param v the value to write
+	* @throws IOException if the underlying Writer fails
+	*/
+	public void writeValue(double v) throws IOException
+	{
+		sb.append(v);
+		if( sb.length() >= BUFFER_SIZE )
+			flushBuffer();
+	}
+
+	/**
+	* Write the toolkit delimiter character(s)
+	* @throws IOException if the underlying Writer fails
+	*/
+	public void writeDelim() throws IOException
+	{
+		sb.append(SciTK_Text.TOOLKIT_CSV_DELIM);
+		if( sb.length() >= BUFFER_SIZE )
+			flushBuffer();
+	}
+
+	/**
+	* Write the toolkit line separator
+	* @throws IOException if the underlying Writer fails
+	*/
+	public void writeNewline() throws IOException
+	{
+		sb.append(SciTK_Text.TOOLKIT_NEWLINE);
+		if( sb.length() >= BUFFER_SIZE )
+			flushBuffer();
+	}
+
+	/**
+	* Send any buffered text to the underlying Writer and flush it
+	* @throws IOException if the underlying Writer fails
+	*/
+	public void flush() throws IOException
+	{
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	* Flush, then close the underlying Writer
+	* @throws IOException if the underlying Writer fails
+	*/
+	public void close() throws IOException
+	{
+		flushBuffer();
+		out.close();
+	}
+
+	/** Move the contents of the formatting buffer to the Writer */
+	private void flushBuffer() throws IOException
+	{
+		int len = sb.length();
+		if( len == 0 )
+			return;
+		if( chars.length < len )
+			chars = new char[len];
+		sb.getChars(0, len, chars, 0);
+		out.write(chars, 0, len);
+		sb.setLength(0);
+	}
+
+	// ---------------------------------------
+	//		Dataset output
+	// ---------------------------------------
+	/**
+	* Write every series in an XY dataset as x,y lines,
+	* with a blank line after each series.
+	* @param data the dataset to write
+	* @throws IOException if the underlying Writer fails
+	*/
+	public void writeXY(XYDataset data) throws IOException
+	{
+		// iterate over all data series:
+		for(int i=0; i<data.getSeriesCount(); i++)
+		{
+			// iterate over items in the series:
+			for(int j=0; j<data.getItemCount(i); j++)
+			{
+				// add x,y then new line:
+				writeValue( data.getXValue(i,j) );
+				writeDelim();
+				writeValue( data.getYValue(i,j) );
+				writeNewline();
+			}
+			// add another line break after series is done:
+			writeNewline();
+		}
+	}
+
+	/**
+	* Write every series in an XYZ dataset as x,y,z lines,
+	* with a blank line after each series.
+	* @param data the dataset to write
+	* @throws IOException if the underlying Writer fails
+	*/
+	public void writeXYZ(XYZDataset data) throws IOException
+	{
+		for(int i=0; i<data.getSeriesCount(); i++)
+		{
+			for(int j=0; j<data.getItemCount(i); j++)
+			{
+				writeValue( data.getXValue(i,j) );
+				writeDelim();
+				writeValue( data.getYValue(i,j) );
+				writeDelim();
+				writeValue( data.getZValue(i,j) );
+				writeNewline();
+			}
+			writeNewline();
+		}
+	}
+
+	/**
+	* Write every series in an interval dataset as x,xLow,xHigh,y,yLow,yHigh lines,
+	* with a blank line after each series.
+	* @param data the dataset to write
+	* @throws IOException if the underlying Writer fails
+	*/
+	public void writeIntervalXY(IntervalXYDataset data) throws IOException
+	{
+		for(int i=0; i<data.getSeriesCount(); i++)
+		{
+			for(int j=0; j<data.getItemCount(i); j++)
+			{
+				writeValue( data.getXValue(i,j) );
+				writeDelim();
+				writeValue( data.getStartXValue(i,j) );
+				writeDelim();
+				writeValue( data.getEndXValue(i,j) );
+				writeDelim();
+				writeValue( data.getYValue(i,j) );
+				writeDelim();
+				writeValue( data.getStartYValue(i,j) );
+				writeDelim();
+				writeValue( data.getEndYValue(i,j) );
+				writeNewline();
+			}
+			writeNewline();
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package SciTK;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.RescaleOp;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Base64;
+import javax.imageio.ImageIO;
+
+import org.jfree.chart.JFreeChart;
+
+// for PS/EPS files
+import org.apache.xmlgraphics.java2d.ps.AbstractPSDocumentGraphics2D;
+import org.apache.xmlgraphics.java2d.ps.PSDocumentGraphics2D;
+import org.apache.xmlgraphics.java2d.ps.EPSDocumentGraphics2D;
+
+/** Render charts without a window. Charts built by the createChart
+ * methods of the plot classes (e.g. PlotXY.createChart) can be drawn
+ * to an image, PNG, SVG, or PS/EPS file. None of these create any
+ * Swing components, so they work with java.awt.headless=true.
+ *
+ * @package SciTK
+ * @class ChartExport
+ * @brief Offscreen chart rendering and file export
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class ChartExport
+{
+	public ChartExport() {}
+
+	// ---------------------------------------
+	//		Raster output
+	// ---------------------------------------
+	/**
+	* Render a chart to a new image
+	* @param chart the chart to render
+	* @param width the image width in pixels
+	* @param height the image height in pixels
+	* @return an ARGB image containing the chart
+	*/
+	public static BufferedImage renderImage(JFreeChart chart, int width, int height)
+	{
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		renderImage(chart, image);
+		return image;
+	}
+
+	/**
+	* Render a chart into an existing image, which is cleared first.
+	* Reusing one image for many charts avoids allocating a new one each time.
+	* @param chart the chart to render
+	* @param target the image to draw into; the chart fills the whole image
+	*/
+	public static void renderImage(JFreeChart chart, BufferedImage target)
+	{
+		Graphics2D g2 = target.createGraphics();
+		try
+		{
+			// clear to transparent:
+			g2.setComposite(AlphaComposite.Clear);
+			g2.fillRect(0, 0, target.getWidth(), target.getHeight());
+			g2.setComposite(AlphaComposite.SrcOver);
+			g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+			chart.draw(g2, new Rectangle(0, 0, target.getWidth(), target.getHeight()));
+		}
+		finally
+		{
+			g2.dispose();
+		}
+	}
+
+	/**
+	* Render a chart to a PNG file
+	* @param chart the chart to render
+	* @param width the image width in pixels
+	* @param height the image height in pixels
+	* @param file the output file
+	* @throws IOException if writing the file fails
+	*/
+	public static void writePNG(JFreeChart chart, int width, int height, File file) throws IOException
+	{
+		writePNG(renderImage(chart, width, height), file);
+	}
+
+	/**
+	* Write an image to a PNG file
+	* @param image the image to write
+	* @param file the output file
+	* @throws IOException if writing the file fails
+	*/
+	public static void writePNG(BufferedImage image, File file) throws IOException
+	{
+		if( !ImageIO.write(image, "png", file) )
+			throw new IOException("No PNG writer available");
+	}
+
+	// ---------------------------------------
+	//		Vector output
+	// ---------------------------------------
+	/**
+	* Exports a JFreeChart to a SVG file. Elements are streamed to the
+	* file as the chart is drawn, with consecutive shapes of the same
+	* style merged into single paths.
+	* @param chart JFreeChart to export
+	* @param bounds the dimensions of the viewport
+	* @param svgFile the output file.
+	* @throws IOException if writing the svgFile fails.
+	*/
+	public static void writeSVG(JFreeChart chart, Rectangle bounds, File svgFile) throws IOException
+	{
+		writeSVG(chart, bounds, svgFile, true);
+	}
+
+	/**
+	* Exports a JFreeChart to a SVG file, streaming elements to the file
+	* as the chart is drawn. Memory use does not depend on the amount of data.
+	* @param chart JFreeChart to export
+	* @param bounds the dimensions of the viewport
+	* @param svgFile the output file.
+	* @param coalesce true to merge consecutive shapes of the same style into single paths
+	* @throws IOException if writing the svgFile fails.
+	*/
+	public static void writeSVG(JFreeChart chart, Rectangle bounds, File svgFile, boolean coalesce) throws IOException
+	{
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(svgFile), "UTF-8"), 65536);
+		try
+		{
+			StreamingSVGGraphics2D g2 = new StreamingSVGGraphics2D(out, (int)bounds.getWidth(), (int)bounds.getHeight(), coalesce);
+			chart.draw(g2, bounds);
+			g2.finish();
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	* Exports a JFreeChart to a PS file using Adobe XML graphics library.
+	* @param chart JFreeChart to export
+	* @param bounds the dimensions of the viewport
+	* @param psFile the output file.
+	* @param mode the file write mode ("ps","eps")
+	* @throws IOException if writing the file fails.
+	*/
+	public static void writePS(JFreeChart chart, Rectangle bounds, File psFile, String mode) throws IOException
+	{
+		// see http://xmlgraphics.apache.org/commons/postscript.html#creating-eps
+
+		// set up file:
+		OutputStream outputStream = new FileOutputStream(psFile);
+		try
+		{
+			AbstractPSDocumentGraphics2D g2d;
+			if( "ps".equals(mode) )
+				g2d = new PSDocumentGraphics2D(false);
+			else
+				g2d = new EPSDocumentGraphics2D(false);
+
+			g2d.setGraphicContext(new org.apache.xmlgraphics.java2d.GraphicContext());
+
+			//Set up the document size
+			g2d.setupDocument(outputStream, (int)bounds.getWidth(), (int)bounds.getHeight());
+
+			// draw the chart to g2d:
+			chart.draw(g2d,bounds);
+
+			g2d.finish(); //Wrap up and finalize the EPS file
+			outputStream.flush();
+		}
+		finally
+		{
+			outputStream.close();
+		}
+	}
+
+	// ---------------------------------------
+	//		Image output
+	// ---------------------------------------
+	/**
+	* Exports an image to a SVG file, embedded as a PNG.
+	* @param image the image to export
+	* @param svgFile the output file.
+	* @throws IOException if writing the svgFile fails.
+	*/
+	public static void writeSVG(BufferedImage image, File svgFile) throws IOException
+	{
+		// encode the image:
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		if( !ImageIO.write(image, "png", png) )
+			throw new IOException("No PNG writer available");
+
+		int w = image.getWidth();
+		int h = image.getHeight();
+		Writer out = new OutputStreamWriter(new FileOutputStream(svgFile), "UTF-8");
+		try
+		{
+			out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" "
+				+ "width=\"" + w + "\" height=\"" + h + "\" viewBox=\"0 0 " + w + " " + h + "\">\n");
+			out.write("<image x=\"0\" y=\"0\" width=\"" + w + "\" height=\"" + h + "\" xlink:href=\"data:image/png;base64,");
+			out.write(Base64.getEncoder().encodeToString(png.toByteArray()));
+			out.write("\"/>\n</svg>\n");
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	* Exports an image to a PS file using Adobe XML graphics library.
+	* @param image the image to export
+	* @param psFile the output file.
+	* @param mode the file write mode ("ps","eps")
+	* @throws IOException if writing the file fails.
+	*/
+	public static void writePS(BufferedImage image, File psFile, String mode) throws IOException
+	{
+		OutputStream outputStream = new FileOutputStream(psFile);
+		try
+		{
+			AbstractPSDocumentGraphics2D g2d;
+			if( "ps".equals(mode) )
+				g2d = new PSDocumentGraphics2D(false);
+			else
+				g2d = new EPSDocumentGraphics2D(false);
+
+			g2d.setGraphicContext(new org.apache.xmlgraphics.java2d.GraphicContext());
+			g2d.setupDocument(outputStream, image.getWidth(), image.getHeight());
+
+			// draw the image to g2d:
+			g2d.drawImage(image,new RescaleOp((float)1.0,(float)0.0,null),0,0);
+
+			g2d.finish(); //Wrap up and finalize the file
+			outputStream.flush();
+		}
+		finally
+		{
+			outputStream.close();
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package SciTK;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.io.Serializable;
+
+/** A colormap, defined by colors at positions from 0 to 1 and linearly
+ * interpolated between them. Colormaps are sampled into tables of ARGB
+ * values (e.g. by ColormapPaintScale) or into an 8-bit palette for
+ * SciTK_Image.
+ *
+ * The standard maps are grayscale, the perceptually uniform viridis and
+ * inferno maps (sampled from matplotlib's definitions), and a blue-white-red
+ * diverging map (Moreland's cool to warm map) for data centered on a value
+ * such as zero.
+ *
+ * @package SciTK
+ * @class Colormap
+ * @brief Colormaps for images and color-map plots
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class Colormap implements Serializable
+{
+	/** Black to white */
+	public static final Colormap GRAY = new Colormap("Gray",
+		new double[] {0, 1},
+		new int[] {0x000000, 0xFFFFFF});
+	/** Dark blue to green to yellow, from matplotlib's viridis sampled at equal steps */
+	public static final Colormap VIRIDIS = new Colormap("Viridis",
+		new double[] {0, 1/9.0, 2/9.0, 3/9.0, 4/9.0, 5/9.0, 6/9.0, 7/9.0, 8/9.0, 1},
+		new int[] {0x440154, 0x482878, 0x3E4989, 0x31688E, 0x26828E, 0x1F9E89, 0x35B779, 0x6ECE58, 0xB5DE2B, 0xFDE725});
+	/** Black to red to pale yellow, from matplotlib's inferno sampled at equal steps */
+	public static final Colormap INFERNO = new Colormap("Inferno",
+		new double[] {0, 1/9.0, 2/9.0, 3/9.0, 4/9.0, 5/9.0, 6/9.0, 7/9.0, 8/9.0, 1},
+		new int[] {0x000004, 0x1B0C41, 0x4A0C6B, 0x781C6D, 0xA52C60, 0xCF4446, 0xED6925, 0xFB9B06, 0xF7D13D, 0xFCFFA4});
+	/** Blue to light gray to red, for data centered on the middle of the scale */
+	public static final Colormap DIVERGING = new Colormap("Diverging",
+		new double[] {0, 0.125, 0.25, 0.375, 0.5, 0.625, 0.75, 0.875, 1},
+		new int[] {0x3B4CC0, 0x6282EA, 0x8DB0FE, 0xB8D0F9, 0xDDDDDD, 0xF5C4AD, 0xF49A7B, 0xDE604D, 0xB40426});
+
+	/** The standard colormaps, e.g. for menus */
+	public static final Colormap[] STANDARD = { GRAY, VIRIDIS, INFERNO, DIVERGING };
+
+	private String name; /** Name of the map */
+	private double[] positions; /** Position of each color, increasing from 0 to 1 */
+	private int[] colors; /** Color at each position, as 0xRRGGBB */
+
+	/**
+	* Constructor
+	* @param name the name of the map
+	* @param positions the position of each color, increasing from 0 to 1
+	* @param colors the color at each position, as 0xRRGGBB
+	* @throws IllegalArgumentException if the positions and colors do not match or are not increasing from 0 to 1
+	*/
+	public Colormap(String name, double[] positions, int[] colors)
+	{
+		if( positions.length < 2 || positions.length != colors.length )
+			throw new IllegalArgumentException("Colormap needs at least two colors, one per position");
+		if( positions[0] != 0 || positions[positions.length-1] != 1 )
+			throw new IllegalArgumentException("Colormap positions must run from 0 to 1");
+		for(int k=1; k<positions.length; k++)
+		{
+			if( !(positions[k] > positions[k-1]) )
+				throw new IllegalArgumentException("Colormap positions must be increasing");
+		}
+		this.name = name;
+		this.positions = positions.clone();
+		this.colors = colors.clone();
+	}
+
+	/**
+	* Get the name of the map
+	* @return the name
+	*/
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	* Get the color at a position
+	* @param t the position, from 0 to 1 (clamped)
+	* @return the opaque color as 0xAARRGGBB
+	*/
+	public int getARGB(double t)
+	{
+		if( !(t > 0) ) // also NaN
+			return 0xFF000000 | colors[0];
+		if( t >= 1 )
+			return 0xFF000000 | colors[colors.length-1];
+		int k = 1;
+		while( positions[k] < t )
+			k++;
+		double f = (t - positions[k-1]) / (positions[k] - positions[k-1]);
+		int a = colors[k-1], b = colors[k];
+		int r = mix((a >> 16) & 0xFF, (b >> 16) & 0xFF, f);
+		int g = mix((a >> 8) & 0xFF, (b >> 8) & 0xFF, f);
+		int bl = mix(a & 0xFF, b & 0xFF, f);
+		return 0xFF000000 | (r << 16) | (g << 8) | bl;
+	}
+
+	/** Interpolate one channel */
+	private static int mix(int a, int b, double f)
+	{
+		return (int)Math.round(a + (b-a)*f);
+	}
+
+	/**
+	* Sample the map into a table
+	* @param n the number of entries, at least 2; entry 0 is position 0 and entry n-1 is position 1
+	* @return the opaque colors as 0xAARRGGBB
+	*/
+	public int[] createTable(int n)
+	{
+		n = Math.max(n, 2);
+		int[] table = new int[n];
+		for(int k=0; k<n; k++)
+			table[k] = getARGB( (double)k / (n-1) );
+		return table;
+	}
+
+	/**
+	* Sample the map into a 256 entry palette, e.g. for SciTK_Image.setColormap
+	* @return the palette
+	*/
+	public IndexColorModel toIndexColorModel()
+	{
+		return new IndexColorModel(8, 256, createTable(256), 0, false, -1, DataBuffer.TYPE_BYTE);
+	}
+
+	public String toString()
+	{
+		return name;
+	}
+}
@@ -0,0 +1,171 @@
+package SciTK;
+
+import java.awt.Color;
+import java.awt.Paint;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.jfree.chart.renderer.PaintScale;
+import org.jfree.util.PublicCloneable;
+
+/** Paint scale which maps values to a table of ARGB colors by index
+ * arithmetic: the range [lower, upper] is split into equal steps, one per
+ * table entry, and values outside take the color at the nearest end.
+ * A Color object for each entry is made once, so getPaint() does not
+ * allocate, and renderers which color many cells at once (such as
+ * GridImageRenderer) read the int table directly.
+ *
+ * The table comes from a Colormap. A PlotXYZBlock's renderer and color
+ * bar share one scale, so they always show the same colors.
+ *
+ * @package SciTK
+ * @class ColormapPaintScale
+ * @brief Table based paint scale for color-map plots
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class ColormapPaintScale implements PaintScale, PublicCloneable, Serializable
+{
+	/** Default number of table entries */
+	public static int DEFAULT_SIZE = 256;
+
+	private double lower; /** Value drawn with the first entry */
+	private double upper; /** Value drawn with the last entry */
+	private double k; /** Entries per unit value */
+	private Colormap colormap; /** The map the table was sampled from */
+	private int[] table; /** The colors, 0xAARRGGBB */
+	private Color[] paints; /** A Color for each entry */
+
+	/**
+	* Constructor with the default table size
+	* @param lower the value drawn with the first color
+	* @param upper the value drawn with the last color
+	* @param colormap the colors
+	*/
+	public ColormapPaintScale(double lower, double upper, Colormap colormap)
+	{
+		this(lower, upper, colormap, DEFAULT_SIZE);
+	}
+
+	/**
+	* Constructor
+	* @param lower the value drawn with the first color
+	* @param upper the value drawn with the last color
+	* @param colormap the colors
+	* @param size the number of table entries
+	*/
+	public ColormapPaintScale(double lower, double upper, Colormap colormap, int size)
+	{
+		this.lower = lower;
+		this.upper = upper;
+		this.colormap = colormap;
+		table = colormap.createTable(size);
+		paints = new Color[table.length];
+		for(int i=0; i<table.length; i++)
+			paints[i] = new Color(table[i], true);
+		k = (upper > lower) ? table.length/(upper-lower) : 0;
+	}
+
+	/**
+	* Create a scale with the same table over a different range, e.g. when the data change
+	* @param lower the value drawn with the first color
+	* @param upper the value drawn with the last color
+	* @return the new scale, sharing this one's colors
+	*/
+	public ColormapPaintScale withBounds(double lower, double upper)
+	{
+		ColormapPaintScale s = new ColormapPaintScale(this);
+		s.lower = lower;
+		s.upper = upper;
+		s.k = (upper > lower) ? table.length/(upper-lower) : 0;
+		return s;
+	}
+
+	/** Copy, sharing the (never modified) tables */
+	private ColormapPaintScale(ColormapPaintScale s)
+	{
+		lower = s.lower;
+		upper = s.upper;
+		k = s.k;
+		colormap = s.colormap;
+		table = s.table;
+		paints = s.paints;
+	}
+
+	public double getLowerBound()
+	{
+		return lower;
+	}
+
+	public double getUpperBound()
+	{
+		return upper;
+	}
+
+	/**
+	* Get the table entry for a value
+	* @param value the value
+	* @return the index into the table; NaN gives 0
+	*/
+	public int getIndex(double value)
+	{
+		int m = (int)( (value - lower) * k );
+		return (m < 0) ? 0 : (m >= table.length ? table.length-1 : m);
+	}
+
+	/**
+	* Get the color for a value, without making an object
+	* @param value the value
+	* @return the color as 0xAARRGGBB
+	*/
+	public int getARGB(double value)
+	{
+		return table[getIndex(value)];
+	}
+
+	public Paint getPaint(double value)
+	{
+		return paints[getIndex(value)];
+	}
+
+	/**
+	* Get the color table. Value v uses entry (int)((v - lower) * size/(upper-lower)), clamped to the table.
+	* @return the colors as 0xAARRGGBB; not a copy, and must not be modified
+	*/
+	public int[] getTable()
+	{
+		return table;
+	}
+
+	/**
+	* Get the colormap the table was sampled from
+	* @return the colormap
+	*/
+	public Colormap getColormap()
+	{
+		return colormap;
+	}
+
+	public boolean equals(Object obj)
+	{
+		if( obj == this )
+			return true;
+		if( !(obj instanceof ColormapPaintScale) )
+			return false;
+		ColormapPaintScale that = (ColormapPaintScale) obj;
+		return lower == that.lower && upper == that.upper && Arrays.equals(table, that.table);
+	}
+
+	public int hashCode()
+	{
+		return Arrays.hashCode(table) ^ Double.valueOf(lower).hashCode() ^ Double.valueOf(upper).hashCode();
+	}
+
+	public Object clone() throws CloneNotSupportedException
+	{
+		// the tables are never modified, so they can be shared:
+		return new ColormapPaintScale(this);
+	}
+}
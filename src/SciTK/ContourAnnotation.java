@@ -0,0 +1,235 @@
+package SciTK;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.jfree.chart.annotations.AbstractXYAnnotation;
+import org.jfree.chart.axis.LogAxis;
+import org.jfree.chart.axis.LogarithmicAxis;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.PlotRenderingInfo;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.ui.RectangleEdge;
+
+/** Annotation which draws iso-contours of a GridXYZDataset over a plot.
+ * The contours are traced by MarchingSquares and kept, in data
+ * coordinates, for each level; they are traced again only when the grid
+ * changes, and changing the levels traces only the new ones. Each level is
+ * one path, so a redraw (e.g. on zoom) just transforms and strokes the
+ * paths.
+ *
+ * @package SciTK
+ * @class ContourAnnotation
+ * @brief Iso-contour lines of a grid
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class ContourAnnotation extends AbstractXYAnnotation
+{
+	/** Default color of the lines */
+	public static Paint DEFAULT_PAINT = Color.RED;
+
+	private GridXYZDataset grid; /** The data to contour */
+	private double[] levels; /** The contour levels */
+	private transient Paint paint = DEFAULT_PAINT; /** Color of the lines */
+	private transient Stroke stroke = new BasicStroke(1.0f); /** Stroke of the lines */
+
+	private transient HashMap<Double,Path2D.Float> paths; /** Traced contour of each level */
+	private transient int traced_version; /** Version of the grid the paths were traced from */
+	private transient double[][] traced_z; /** Array the paths were traced from */
+
+	/**
+	* Constructor
+	* @param grid the data to contour
+	* @param levels the contour levels
+	*/
+	public ContourAnnotation(GridXYZDataset grid, double[] levels)
+	{
+		super();
+		this.grid = grid;
+		this.levels = levels.clone();
+	}
+
+	/**
+	* Change the contour levels. Levels already traced are kept.
+	* @param levels the contour levels
+	*/
+	public void setLevels(double[] levels)
+	{
+		this.levels = levels.clone();
+		fireAnnotationChanged();
+	}
+
+	/**
+	* Get the contour levels
+	* @return a copy of the levels
+	*/
+	public double[] getLevels()
+	{
+		return levels.clone();
+	}
+
+	/**
+	* Set the color of the lines
+	* @param paint the color
+	*/
+	public void setPaint(Paint paint)
+	{
+		this.paint = paint;
+		fireAnnotationChanged();
+	}
+
+	/**
+	* Get the color of the lines
+	* @return the color
+	*/
+	public Paint getPaint()
+	{
+		return paint;
+	}
+
+	/**
+	* Set the stroke of the lines
+	* @param stroke the stroke
+	*/
+	public void setStroke(Stroke stroke)
+	{
+		this.stroke = stroke;
+		fireAnnotationChanged();
+	}
+
+	/**
+	* Get the stroke of the lines
+	* @return the stroke
+	*/
+	public Stroke getStroke()
+	{
+		return stroke;
+	}
+
+	/**
+	* Get the contours of the current levels, tracing any which are not up to date
+	* @return a path for each level, in data coordinates
+	*/
+	public synchronized Path2D.Float[] getPaths()
+	{
+		if( paths == null )
+			paths = new HashMap<Double,Path2D.Float>();
+		// new data, so everything must be traced again:
+		if( grid.getZ() != traced_z || grid.getVersion() != traced_version )
+		{
+			paths.clear();
+			traced_z = grid.getZ();
+			traced_version = grid.getVersion();
+		}
+
+		// trace the levels which are missing, all at once:
+		ArrayList<Double> missing = new ArrayList<Double>();
+		for(double v : levels)
+		{
+			if( !paths.containsKey(v) && !missing.contains(v) )
+				missing.add(v);
+		}
+		if( missing.size() > 0 )
+		{
+			double[] todo = new double[missing.size()];
+			for(int i=0; i<todo.length; i++)
+				todo[i] = missing.get(i);
+			Path2D.Float[] traced = MarchingSquares.contour(traced_z, grid.getXValues(), grid.getYValues(), todo);
+			for(int i=0; i<todo.length; i++)
+				paths.put(todo[i], traced[i]);
+		}
+
+		// forget levels no longer shown:
+		if( paths.size() > levels.length )
+		{
+			HashMap<Double,Path2D.Float> kept = new HashMap<Double,Path2D.Float>();
+			for(double v : levels)
+				kept.put(v, paths.get(v));
+			paths = kept;
+		}
+
+		Path2D.Float[] out = new Path2D.Float[levels.length];
+		for(int i=0; i<levels.length; i++)
+			out[i] = paths.get(levels[i]);
+		return out;
+	}
+
+	public void draw(Graphics2D g2, XYPlot plot, Rectangle2D dataArea, ValueAxis domainAxis, ValueAxis rangeAxis,
+		int rendererIndex, PlotRenderingInfo info)
+	{
+		Path2D.Float[] contours = getPaths();
+		RectangleEdge x_edge = plot.getDomainAxisEdge(), y_edge = plot.getRangeAxisEdge();
+		boolean vertical = (plot.getOrientation() == PlotOrientation.VERTICAL);
+
+		Paint old_paint = g2.getPaint();
+		Stroke old_stroke = g2.getStroke();
+		g2.setPaint(paint);
+		g2.setStroke(stroke);
+		if( isLog(domainAxis) || isLog(rangeAxis) )
+		{
+			for(Path2D.Float p : contours)
+				g2.draw( toJava2D(p, dataArea, domainAxis, rangeAxis, x_edge, y_edge, vertical) );
+		}
+		else
+		{
+			// linear axes are an affine map, found from the axis ends:
+			double x0 = domainAxis.getLowerBound(), x1 = domainAxis.getUpperBound();
+			double y0 = rangeAxis.getLowerBound(), y1 = rangeAxis.getUpperBound();
+			double sx0 = domainAxis.valueToJava2D(x0, dataArea, x_edge), sx1 = domainAxis.valueToJava2D(x1, dataArea, x_edge);
+			double sy0 = rangeAxis.valueToJava2D(y0, dataArea, y_edge), sy1 = rangeAxis.valueToJava2D(y1, dataArea, y_edge);
+			double ax = (sx1-sx0)/(x1-x0), ay = (sy1-sy0)/(y1-y0);
+			double bx = sx0 - ax*x0, by = sy0 - ay*y0;
+			AffineTransform t = vertical ? new AffineTransform(ax, 0, 0, ay, bx, by)
+				: new AffineTransform(0, ax, ay, 0, by, bx);
+			for(Path2D.Float p : contours)
+				g2.draw( t.createTransformedShape(p) );
+		}
+		g2.setPaint(old_paint);
+		g2.setStroke(old_stroke);
+	}
+
+	/** Check if an axis is not linear */
+	private static boolean isLog(ValueAxis axis)
+	{
+		return (axis instanceof LogAxis) || (axis instanceof LogarithmicAxis);
+	}
+
+	/** Map a path to the screen point by point, for axes which are not linear */
+	private static Shape toJava2D(Path2D.Float p, Rectangle2D dataArea, ValueAxis domainAxis, ValueAxis rangeAxis,
+		RectangleEdge x_edge, RectangleEdge y_edge, boolean vertical)
+	{
+		Path2D.Double out = new Path2D.Double();
+		double[] c = new double[6];
+		for(PathIterator it = p.getPathIterator(null); !it.isDone(); it.next())
+		{
+			int type = it.currentSegment(c);
+			double sx = domainAxis.valueToJava2D(c[0], dataArea, x_edge);
+			double sy = rangeAxis.valueToJava2D(c[1], dataArea, y_edge);
+			if( !vertical )
+			{
+				double s = sx;
+				sx = sy;
+				sy = s;
+			}
+			if( type == PathIterator.SEG_MOVETO )
+				out.moveTo(sx, sy);
+			else
+				out.lineTo(sx, sy);
+		}
+		return out;
+	}
+}
@@ -0,0 +1,404 @@
+package SciTK;
+
+import org.jfree.data.DomainInfo;
+import org.jfree.data.DomainOrder;
+import org.jfree.data.Range;
+import org.jfree.data.RangeInfo;
+import org.jfree.data.general.DatasetChangeEvent;
+import org.jfree.data.general.DatasetChangeListener;
+import org.jfree.data.xy.AbstractXYDataset;
+import org.jfree.data.xy.XYDataset;
+
+/** A level-of-detail view of another XY dataset, for drawing series with
+ * millions of points. For each series a min/max pyramid is built once:
+ * level L stores the index of the smallest and largest y value in each
+ * block of 2^L points. For a given visible x range and pixel width only
+ * about two points per pixel are exposed (the min and max of each block,
+ * in order), which draws the same envelope as the full series.
+ *
+ * Series whose x values are not in ascending order are passed through
+ * without decimation. Domain and range bounds are always those of the
+ * full series, so auto-ranging of the axes is unaffected.
+ *
+ * @package SciTK
+ * @class DecimatedXYDataset
+ * @brief Min/max decimated view of an XY dataset
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class DecimatedXYDataset extends AbstractXYDataset implements DomainInfo, RangeInfo, DatasetChangeListener
+{
+	private XYDataset source; /** The full resolution dataset */
+	private Pyramid[] pyramids; /** Min/max pyramid for each series, null if stale */
+
+	private Range domain_bounds; /** Domain bounds of the full data */
+	private Range range_bounds; /** Range bounds of the full data */
+
+	// current view:
+	private double view_low = Double.NaN; /** Lower x bound of the view */
+	private double view_high = Double.NaN; /** Upper x bound of the view */
+	private int view_pixels = 0; /** Width of the view in pixels */
+
+	/**
+	* Constructor
+	* @param source the full resolution dataset to decimate
+	*/
+	public DecimatedXYDataset(XYDataset source)
+	{
+		this.source = source;
+		source.addChangeListener(this);
+	}
+
+	/**
+	* Get the full resolution dataset
+	* @return the source dataset
+	*/
+	public XYDataset getSource()
+	{
+		return source;
+	}
+
+	// ---------------------------------------
+	//		View control
+	// ---------------------------------------
+	/**
+	* Set the visible x range and pixel width. No change event is sent,
+	* so this can be called from within a chart redraw.
+	* @param low the lower visible x value
+	* @param high the upper visible x value
+	* @param pixels the width of the plot's data area in pixels
+	* @return true if the exposed points changed
+	*/
+	public boolean setView(double low, double high, int pixels)
+	{
+		pixels = Math.max(pixels,1);
+		if( pyramids != null && low == view_low && high == view_high && pixels == view_pixels )
+			return false;
+		view_low = low;
+		view_high = high;
+		view_pixels = pixels;
+
+		if( pyramids == null )
+			build();
+		for(int s=0; s<pyramids.length; s++)
+			pyramids[s].select(low, high, pixels);
+		return true;
+	}
+
+	/**
+	* Width in pixels of the current view
+	* @return the number of pixels
+	*/
+	public int getViewPixels()
+	{
+		return view_pixels;
+	}
+
+	/** Called when the source data changes: pyramids are rebuilt on the next view update */
+	public void datasetChanged(DatasetChangeEvent event)
+	{
+		pyramids = null;
+		view_pixels = 0;
+		fireDatasetChanged();
+	}
+
+	/** Build the pyramids and bounds for all series */
+	private void build()
+	{
+		int num_series = source.getSeriesCount();
+		pyramids = new Pyramid[num_series];
+		double x_min = Double.POSITIVE_INFINITY, x_max = Double.NEGATIVE_INFINITY;
+		double y_min = Double.POSITIVE_INFINITY, y_max = Double.NEGATIVE_INFINITY;
+		for(int s=0; s<num_series; s++)
+		{
+			pyramids[s] = new Pyramid(s);
+			x_min = Math.min(x_min, pyramids[s].x_min);
+			x_max = Math.max(x_max, pyramids[s].x_max);
+			y_min = Math.min(y_min, pyramids[s].y_min);
+			y_max = Math.max(y_max, pyramids[s].y_max);
+		}
+		domain_bounds = (x_min <= x_max) ? new Range(x_min, x_max) : null;
+		range_bounds = (y_min <= y_max) ? new Range(y_min, y_max) : null;
+	}
+
+	// ---------------------------------------
+	//		XYDataset implementation
+	// ---------------------------------------
+	public int getSeriesCount()
+	{
+		return source.getSeriesCount();
+	}
+
+	public Comparable getSeriesKey(int series)
+	{
+		return source.getSeriesKey(series);
+	}
+
+	public DomainOrder getDomainOrder()
+	{
+		return source.getDomainOrder();
+	}
+
+	public int getItemCount(int series)
+	{
+		if( pyramids == null || series >= pyramids.length )
+			return source.getItemCount(series);
+		return pyramids[series].count();
+	}
+
+	public Number getX(int series, int item)
+	{
+		return source.getX(series, sourceItem(series,item));
+	}
+
+	public Number getY(int series, int item)
+	{
+		return source.getY(series, sourceItem(series,item));
+	}
+
+	public double getXValue(int series, int item)
+	{
+		return source.getXValue(series, sourceItem(series,item));
+	}
+
+	public double getYValue(int series, int item)
+	{
+		return source.getYValue(series, sourceItem(series,item));
+	}
+
+	/** Map an item in this view to the item in the source */
+	private int sourceItem(int series, int item)
+	{
+		if( pyramids == null || series >= pyramids.length )
+			return item;
+		return pyramids[series].item(item);
+	}
+
+	// ---------------------------------------
+	//		DomainInfo / RangeInfo
+	// ---------------------------------------
+	public double getDomainLowerBound(boolean includeInterval)
+	{
+		Range r = getDomainBounds(includeInterval);
+		return (r == null) ? Double.NaN : r.getLowerBound();
+	}
+
+	public double getDomainUpperBound(boolean includeInterval)
+	{
+		Range r = getDomainBounds(includeInterval);
+		return (r == null) ? Double.NaN : r.getUpperBound();
+	}
+
+	public Range getDomainBounds(boolean includeInterval)
+	{
+		if( pyramids == null )
+			build();
+		return domain_bounds;
+	}
+
+	public double getRangeLowerBound(boolean includeInterval)
+	{
+		Range r = getRangeBounds(includeInterval);
+		return (r == null) ? Double.NaN : r.getLowerBound();
+	}
+
+	public double getRangeUpperBound(boolean includeInterval)
+	{
+		Range r = getRangeBounds(includeInterval);
+		return (r == null) ? Double.NaN : r.getUpperBound();
+	}
+
+	public Range getRangeBounds(boolean includeInterval)
+	{
+		if( pyramids == null )
+			build();
+		return range_bounds;
+	}
+
+	/** Min/max pyramid and current selection for one series */
+	private class Pyramid
+	{
+		int series; /** index of the series in the source */
+		int n; /** number of points in the series */
+		boolean sorted; /** true if x values are ascending */
+		int[][] min_index; /** min_index[L][k] = index of smallest y in block k of size 2^L */
+		int[][] max_index; /** max_index[L][k] = index of largest y in block k of size 2^L */
+		double x_min, x_max, y_min, y_max; /** bounds of the series */
+
+		int[] selected = new int[0]; /** source indices currently exposed */
+		int num_selected; /** number of valid entries in selected */
+		boolean all; /** true if the whole series is exposed */
+
+		Pyramid(int series)
+		{
+			this.series = series;
+			n = source.getItemCount(series);
+			all = true;
+
+			// bounds, and check ordering:
+			sorted = true;
+			x_min = Double.POSITIVE_INFINITY; x_max = Double.NEGATIVE_INFINITY;
+			y_min = Double.POSITIVE_INFINITY; y_max = Double.NEGATIVE_INFINITY;
+			double x_prev = Double.NEGATIVE_INFINITY;
+			for(int i=0; i<n; i++)
+			{
+				double x = source.getXValue(series,i);
+				double y = source.getYValue(series,i);
+				if( !(x >= x_prev) ) // also catches NaN
+					sorted = false;
+				x_prev = x;
+				if( x < x_min ) x_min = x;
+				if( x > x_max ) x_max = x;
+				if( y < y_min ) y_min = y;
+				if( y > y_max ) y_max = y;
+			}
+			if( !sorted || n < 2 )
+				return;
+
+			// number of levels above the raw data:
+			int levels = 0;
+			while( (n-1) >> levels > 0 )
+				levels++;
+			min_index = new int[levels+1][];
+			max_index = new int[levels+1][];
+
+			// first level pairs up raw points:
+			int len = (n+1)/2;
+			min_index[1] = new int[len];
+			max_index[1] = new int[len];
+			for(int k=0; k<len; k++)
+			{
+				int a = 2*k;
+				int b = Math.min(a+1, n-1);
+				min_index[1][k] = lower(a,b);
+				max_index[1][k] = higher(a,b);
+			}
+			// higher levels pair up blocks of the previous one:
+			for(int L=2; L<=levels; L++)
+			{
+				int prev_len = min_index[L-1].length;
+				len = (prev_len+1)/2;
+				min_index[L] = new int[len];
+				max_index[L] = new int[len];
+				for(int k=0; k<len; k++)
+				{
+					int a = 2*k;
+					int b = Math.min(a+1, prev_len-1);
+					min_index[L][k] = lower(min_index[L-1][a], min_index[L-1][b]);
+					max_index[L][k] = higher(max_index[L-1][a], max_index[L-1][b]);
+				}
+			}
+		}
+
+		/** Index of the smaller y value (ignoring NaN) */
+		int lower(int a, int b)
+		{
+			double ya = source.getYValue(series,a);
+			double yb = source.getYValue(series,b);
+			return (yb < ya || Double.isNaN(ya)) ? b : a;
+		}
+
+		/** Index of the larger y value (ignoring NaN) */
+		int higher(int a, int b)
+		{
+			double ya = source.getYValue(series,a);
+			double yb = source.getYValue(series,b);
+			return (yb > ya || Double.isNaN(ya)) ? b : a;
+		}
+
+		/** Select the points to expose for a view */
+		void select(double low, double high, int pixels)
+		{
+			all = !sorted || n <= 4*pixels;
+			if( all )
+				return;
+
+			// visible index range, plus one point either side so lines reach the edges:
+			int i0 = Math.max(0, lowerBound(low) - 1);
+			int i1 = Math.min(n, upperBound(high) + 1);
+			int m = i1 - i0;
+
+			// pick the level with at most one block per pixel:
+			int L = 0;
+			while( (m >> L) > pixels && L+1 < min_index.length )
+				L++;
+			if( L == 0 )
+			{
+				ensure(m);
+				for(int i=0; i<m; i++)
+					selected[i] = i0+i;
+				num_selected = m;
+				return;
+			}
+
+			// emit min and max of each block, in index order:
+			int k0 = i0 >> L;
+			int k1 = (i1-1) >> L;
+			ensure(2*(k1-k0+1));
+			num_selected = 0;
+			for(int k=k0; k<=k1; k++)
+			{
+				int a = min_index[L][k];
+				int b = max_index[L][k];
+				if( a == b )
+					selected[num_selected++] = a;
+				else
+				{
+					selected[num_selected++] = Math.min(a,b);
+					selected[num_selected++] = Math.max(a,b);
+				}
+			}
+		}
+
+		/** Make sure the selection array can hold size entries */
+		void ensure(int size)
+		{
+			if( selected.length < size )
+				selected = new int[size + size/2];
+		}
+
+		/** First index with x >= value */
+		int lowerBound(double value)
+		{
+			int lo = 0, hi = n;
+			while( lo < hi )
+			{
+				int mid = (lo+hi) >>> 1;
+				if( source.getXValue(series,mid) < value )
+					lo = mid+1;
+				else
+					hi = mid;
+			}
+			return lo;
+		}
+
+		/** First index with x > value */
+		int upperBound(double value)
+		{
+			int lo = 0, hi = n;
+			while( lo < hi )
+			{
+				int mid = (lo+hi) >>> 1;
+				if( source.getXValue(series,mid) <= value )
+					lo = mid+1;
+				else
+					hi = mid;
+			}
+			return lo;
+		}
+
+		/** Number of points exposed */
+		int count()
+		{
+			return all ? n : num_selected;
+		}
+
+		/** Source index of an exposed point */
+		int item(int i)
+		{
+			return all ? i : selected[i];
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package SciTK;
+
+import java.util.ArrayList;
+
+import org.jfree.data.DomainOrder;
+import org.jfree.data.general.DatasetChangeEvent;
+import org.jfree.data.xy.AbstractIntervalXYDataset;
+
+/** An interval XY dataset (i.e. with error bars) which holds each series
+ * in the array it was given, either float[][] or double[][]. Float data
+ * is widened to double when it is read, so float input is plotted without
+ * making a double copy. Like DefaultIntervalXYDataset, each series is an
+ * array of length 6 containing six arrays of equal length: x, xLow, xHigh,
+ * y, yLow and yHigh. Adding a series with an existing key replaces it.
+ *
+ * @package SciTK
+ * @class FloatIntervalXYDataset
+ * @brief Interval XY dataset backed directly by float or double arrays
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class FloatIntervalXYDataset extends AbstractIntervalXYDataset
+{
+	private ArrayList<Comparable> keys; /** Keys for each series */
+	private ArrayList<FloatXYDataset.Series> series; /** Storage for each series */
+
+	/** Constructor */
+	public FloatIntervalXYDataset()
+	{
+		keys = new ArrayList<Comparable>();
+		series = new ArrayList<FloatXYDataset.Series>();
+	}
+
+	/**
+	* Add a series (or replace the series with the same key)
+	* @param key the series' key (name)
+	* @param data the data: x, xLow, xHigh, y, yLow and yHigh arrays
+	*/
+	public void addSeries(Comparable key, float[][] data)
+	{
+		putSeries(key, new FloatXYDataset.Series(data, 6));
+	}
+
+	/**
+	* Add a series (or replace the series with the same key)
+	* @param key the series' key (name)
+	* @param data the data: x, xLow, xHigh, y, yLow and yHigh arrays
+	*/
+	public void addSeries(Comparable key, double[][] data)
+	{
+		putSeries(key, new FloatXYDataset.Series(data, 6));
+	}
+
+	/**
+	* Remove a series
+	* @param key the series' key (name)
+	*/
+	public void removeSeries(Comparable key)
+	{
+		int index = keys.indexOf(key);
+		if( index >= 0 )
+		{
+			keys.remove(index);
+			series.remove(index);
+			notifyListeners(new DatasetChangeEvent(this, this));
+		}
+	}
+
+	/** Add or replace a series and notify listeners */
+	private void putSeries(Comparable key, FloatXYDataset.Series s)
+	{
+		if( key == null )
+			throw new IllegalArgumentException("Null 'key' argument");
+		int index = keys.indexOf(key);
+		if( index >= 0 )
+			series.set(index, s);
+		else
+		{
+			keys.add(key);
+			series.add(s);
+		}
+		notifyListeners(new DatasetChangeEvent(this, this));
+	}
+
+	// ---------------------------------------
+	//		IntervalXYDataset implementation
+	// ---------------------------------------
+	public int getSeriesCount()
+	{
+		return series.size();
+	}
+
+	public Comparable getSeriesKey(int index)
+	{
+		return keys.get(index);
+	}
+
+	public DomainOrder getDomainOrder()
+	{
+		return DomainOrder.NONE;
+	}
+
+	public int getItemCount(int index)
+	{
+		return series.get(index).length();
+	}
+
+	public Number getX(int index, int item)
+	{
+		return Double.valueOf(getXValue(index, item));
+	}
+
+	public Number getStartX(int index, int item)
+	{
+		return Double.valueOf(getStartXValue(index, item));
+	}
+
+	public Number getEndX(int index, int item)
+	{
+		return Double.valueOf(getEndXValue(index, item));
+	}
+
+	public Number getY(int index, int item)
+	{
+		return Double.valueOf(getYValue(index, item));
+	}
+
+	public Number getStartY(int index, int item)
+	{
+		return Double.valueOf(getStartYValue(index, item));
+	}
+
+	public Number getEndY(int index, int item)
+	{
+		return Double.valueOf(getEndYValue(index, item));
+	}
+
+	public double getXValue(int index, int item)
+	{
+		return series.get(index).get(0, item);
+	}
+
+	public double getStartXValue(int index, int item)
+	{
+		return series.get(index).get(1, item);
+	}
+
+	public double getEndXValue(int index, int item)
+	{
+		return series.get(index).get(2, item);
+	}
+
+	public double getYValue(int index, int item)
+	{
+		return series.get(index).get(3, item);
+	}
+
+	public double getStartYValue(int index, int item)
+	{
+		return series.get(index).get(4, item);
+	}
+
+	public double getEndYValue(int index, int item)
+	{
+		return series.get(index).get(5, item);
+	}
+}
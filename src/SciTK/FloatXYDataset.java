@@ -0,0 +1,173 @@
+package SciTK;
+
+import java.util.ArrayList;
+
+import org.jfree.data.DomainOrder;
+import org.jfree.data.general.DatasetChangeEvent;
+import org.jfree.data.xy.AbstractXYDataset;
+
+/** An XY dataset which holds each series in the array it was given,
+ * either float[][] or double[][]. Float data is widened to double when
+ * it is read, so float input is plotted without making a double copy.
+ * Like DefaultXYDataset, each series is an array of length 2 containing
+ * two arrays of equal length (x values, then y values), and adding a
+ * series with an existing key replaces it.
+ *
+ * @package SciTK
+ * @class FloatXYDataset
+ * @brief XY dataset backed directly by float or double arrays
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class FloatXYDataset extends AbstractXYDataset
+{
+	private ArrayList<Comparable> keys; /** Keys for each series */
+	private ArrayList<Series> series; /** Storage for each series */
+
+	/** Constructor */
+	public FloatXYDataset()
+	{
+		keys = new ArrayList<Comparable>();
+		series = new ArrayList<Series>();
+	}
+
+	/**
+	* Add a series (or replace the series with the same key)
+	* @param key the series' key (name)
+	* @param data the data, data[0] are x values and data[1] are y values
+	*/
+	public void addSeries(Comparable key, float[][] data)
+	{
+		putSeries(key, new Series(data, 2));
+	}
+
+	/**
+	* Add a series (or replace the series with the same key)
+	* @param key the series' key (name)
+	* @param data the data, data[0] are x values and data[1] are y values
+	*/
+	public void addSeries(Comparable key, double[][] data)
+	{
+		putSeries(key, new Series(data, 2));
+	}
+
+	/**
+	* Remove a series
+	* @param key the series' key (name)
+	*/
+	public void removeSeries(Comparable key)
+	{
+		int index = keys.indexOf(key);
+		if( index >= 0 )
+		{
+			keys.remove(index);
+			series.remove(index);
+			notifyListeners(new DatasetChangeEvent(this, this));
+		}
+	}
+
+	/** Add or replace a series and notify listeners */
+	private void putSeries(Comparable key, Series s)
+	{
+		if( key == null )
+			throw new IllegalArgumentException("Null 'key' argument");
+		int index = keys.indexOf(key);
+		if( index >= 0 )
+			series.set(index, s);
+		else
+		{
+			keys.add(key);
+			series.add(s);
+		}
+		notifyListeners(new DatasetChangeEvent(this, this));
+	}
+
+	// ---------------------------------------
+	//		XYDataset implementation
+	// ---------------------------------------
+	public int getSeriesCount()
+	{
+		return series.size();
+	}
+
+	public Comparable getSeriesKey(int index)
+	{
+		return keys.get(index);
+	}
+
+	public DomainOrder getDomainOrder()
+	{
+		return DomainOrder.NONE;
+	}
+
+	public int getItemCount(int index)
+	{
+		return series.get(index).length();
+	}
+
+	public Number getX(int index, int item)
+	{
+		return Double.valueOf(getXValue(index, item));
+	}
+
+	public Number getY(int index, int item)
+	{
+		return Double.valueOf(getYValue(index, item));
+	}
+
+	public double getXValue(int index, int item)
+	{
+		return series.get(index).get(0, item);
+	}
+
+	public double getYValue(int index, int item)
+	{
+		return series.get(index).get(1, item);
+	}
+
+	/** A single series, stored as either float[][] or double[][].
+	 * Also used by the other float-backed datasets. */
+	static class Series
+	{
+		float[][] f; /** float data, or null */
+		double[][] d; /** double data, or null */
+
+		Series(float[][] data, int rows)
+		{
+			check(data != null && data.length == rows, rows);
+			for(int i=1; i<rows; i++)
+				check(data[i].length == data[0].length, rows);
+			f = data;
+		}
+
+		Series(double[][] data, int rows)
+		{
+			check(data != null && data.length == rows, rows);
+			for(int i=1; i<rows; i++)
+				check(data[i].length == data[0].length, rows);
+			d = data;
+		}
+
+		/** Throw an exception describing the expected shape */
+		private static void check(boolean ok, int rows)
+		{
+			if( !ok )
+				throw new IllegalArgumentException("The 'data' array must have length == " + rows
+					+ " and each of its arrays must have the same length.");
+		}
+
+		/** Get a value, widened to double */
+		double get(int row, int item)
+		{
+			return (f != null) ? f[row][item] : d[row][item];
+		}
+
+		/** Number of items in the series */
+		int length()
+		{
+			return (f != null) ? f[0].length : d[0].length;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package SciTK;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/** LRU cache of the quantized frames of an ImageStack: each frame is
+ * kept as 16-bit codes from its histogram (see ImageNormalizer.quantize),
+ * from which the display is made for any contrast without reading the
+ * raw frame again.
+ * Frames near the one being shown can be prefetched in the background
+ * on the shared pool, so stepping or scrubbing through a movie usually
+ * finds the next frame ready. Evicted frames, with their buffers and
+ * histograms, are reused for new ones, so once the cache is full only a
+ * few small arrays are allocated per frame.
+ *
+ * Each frame's histogram first tries the bins of the last one built, so
+ * while the data change slowly from frame to frame, a frame is read
+ * twice: once to count it and once to quantize it.
+ *
+ * The frame last returned by get() is never evicted, since it is
+ * being displayed.
+ *
+ * @package SciTK
+ * @class FrameCache
+ * @brief Cached, prefetched display frames of an image stack
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class FrameCache
+{
+	private ImageStack stack; /** The frames */
+	private int capacity; /** Maximum number of cached frames */
+	private LinkedHashMap<Integer,Frame> frames; /** Normalized frames, least recently used first */
+	private HashMap<Integer,ForkJoinTask<Frame>> pending; /** Frames being normalized */
+	private ArrayList<Frame> spares; /** Evicted frames, whose buffers are reused */
+	private int pinned = -1; /** Frame being displayed, never evicted */
+	private double bins_low, bins_high; /** Range of the bins of the last histogram built */
+
+	/**
+	* Constructor
+	* @param stack the frames to cache
+	* @param capacity the maximum number of quantized frames to keep (at least 2)
+	*/
+	public FrameCache(ImageStack stack, int capacity)
+	{
+		this.stack = stack;
+		this.capacity = Math.max(capacity, 2);
+		frames = new LinkedHashMap<Integer,Frame>(16, 0.75f, true);
+		pending = new HashMap<Integer,ForkJoinTask<Frame>>();
+		spares = new ArrayList<Frame>();
+	}
+
+	/**
+	* Get a normalized frame, computing it now if it is not cached or being
+	* prefetched. The returned buffer stays valid until another frame is
+	* requested with get().
+	* @param k the frame number
+	* @return the frame
+	*/
+	public Frame get(int k)
+	{
+		ForkJoinTask<Frame> task;
+		boolean run = false;
+		synchronized(this)
+		{
+			pinned = k;
+			Frame frame = frames.get(k);
+			if( frame != null )
+				return frame;
+			task = pending.get(k);
+			if( task == null )
+			{
+				task = new NormalizeTask(k);
+				pending.put(k, task);
+				run = true;
+			}
+		}
+		// compute on this thread, or wait for the prefetch:
+		return run ? task.invoke() : task.join();
+	}
+
+	/**
+	* Start normalizing the frames around a frame in the background,
+	* nearest first. Frames already cached or in progress are skipped.
+	* @param k the current frame
+	* @param radius the number of frames on each side to prefetch
+	*/
+	public synchronized void prefetch(int k, int radius)
+	{
+		// never prefetch more than the cache can hold alongside the current frame:
+		radius = Math.min(radius, (capacity-1)/2);
+		int n = stack.getFrameCount();
+		for(int d=1; d<=radius; d++)
+		{
+			int[] next = { k+d, k-d };
+			for(int m : next)
+			{
+				if( m < 0 || m >= n || frames.containsKey(m) || pending.containsKey(m) )
+					continue;
+				NormalizeTask task = new NormalizeTask(m);
+				pending.put(m, task);
+				ParallelUtil.getPool().execute(task);
+			}
+		}
+	}
+
+	/**
+	* Check if a frame is ready
+	* @param k the frame number
+	* @return true if the frame is cached
+	*/
+	public synchronized boolean contains(int k)
+	{
+		return frames.containsKey(k);
+	}
+
+	/** Discard all cached frames (e.g. after the colormap or data changed), keeping their buffers */
+	public synchronized void clear()
+	{
+		for(Map.Entry<Integer,Frame> e : frames.entrySet())
+		{
+			if( e.getKey() != pinned )
+				spares.add(e.getValue());
+		}
+		frames.clear();
+	}
+
+	/** Get a frame to fill, reusing an evicted one of the right size if possible */
+	private synchronized Frame takeFrame(int length)
+	{
+		while( !spares.isEmpty() )
+		{
+			Frame f = spares.remove(spares.size()-1);
+			if( f.codes.length == length )
+				return f;
+		}
+		return new Frame(new short[length], new ImageHistogram(ImageHistogram.DEFAULT_BINS));
+	}
+
+	/** Store a finished frame, evicting the least recently used ones if full */
+	private synchronized void store(int k, Frame frame)
+	{
+		pending.remove(k);
+		frames.put(k, frame);
+		bins_low = frame.histogram.getBinEdge(0);
+		bins_high = frame.histogram.getBinEdge(frame.histogram.getBinCount());
+		Iterator<Map.Entry<Integer,Frame>> it = frames.entrySet().iterator();
+		while( frames.size() > capacity && it.hasNext() )
+		{
+			Map.Entry<Integer,Frame> e = it.next();
+			if( e.getKey() == pinned || e.getKey() == k )
+				continue;
+			spares.add(e.getValue());
+			it.remove();
+		}
+	}
+
+	/** A quantized frame: the code of each pixel, and the histogram giving the codes */
+	public static class Frame
+	{
+		private short[] codes; /** Histogram code of each pixel in row-major order */
+		private ImageHistogram histogram; /** Histogram of the raw frame */
+
+		Frame(short[] codes, ImageHistogram histogram)
+		{
+			this.codes = codes;
+			this.histogram = histogram;
+		}
+
+		/** @return the histogram code of each pixel in row-major order (see ImageHistogram.code) */
+		public short[] getCodes() { return codes; }
+		/** @return the histogram of the raw frame */
+		public ImageHistogram getHistogram() { return histogram; }
+	}
+
+	/** Quantizes one frame into a (possibly reused) buffer */
+	private class NormalizeTask extends RecursiveTask<Frame>
+	{
+		int k; /** the frame number */
+
+		NormalizeTask(int k)
+		{
+			this.k = k;
+		}
+
+		protected Frame compute()
+		{
+			try
+			{
+				RawImage raw = stack.getFrame(k);
+				Frame frame = takeFrame(raw.getWidth()*raw.getHeight());
+				double low, high;
+				synchronized(FrameCache.this)
+				{
+					low = bins_low;
+					high = bins_high;
+				}
+				frame.histogram.build(raw, low, high);
+				ImageNormalizer.quantize(raw, frame.histogram, frame.codes, raw.getWidth());
+				store(k, frame);
+				return frame;
+			}
+			catch(RuntimeException e)
+			{
+				// let a later get() try again:
+				synchronized(FrameCache.this)
+				{
+					pending.remove(k);
+				}
+				throw e;
+			}
+		}
+	}
+}
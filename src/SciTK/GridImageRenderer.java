@@ -0,0 +1,263 @@
+package SciTK;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.RecursiveAction;
+
+import org.jfree.chart.axis.LogAxis;
+import org.jfree.chart.axis.LogarithmicAxis;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.CrosshairState;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.PlotRenderingInfo;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.PaintScale;
+import org.jfree.chart.renderer.xy.XYBlockRenderer;
+import org.jfree.chart.renderer.xy.XYItemRendererState;
+import org.jfree.data.Range;
+import org.jfree.data.xy.XYDataset;
+
+/** Block renderer which draws a GridXYZDataset as a single image. The
+ * cells are colored once into an ARGB image (in parallel, through the
+ * table of a ColormapPaintScale, or a lookup table sampled from any other
+ * paint scale), and each redraw just draws the visible part of the
+ * image over the data area. The image is colored
+ * again only when the data, the paint scale or its bounds change, so
+ * panning, zooming and resizing do not depend on the number of cells.
+ *
+ * Other datasets, and grids on log axes or in a horizontal plot, are
+ * drawn a block at a time as by XYBlockRenderer. NaN cells are transparent.
+ *
+ * @package SciTK
+ * @class GridImageRenderer
+ * @brief Draw regular grids as a pre-colored image
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class GridImageRenderer extends XYBlockRenderer
+{
+	/** Number of colors sampled from the paint scale */
+	public static int LUT_SIZE = 4096;
+
+	private transient BufferedImage image; /** The colored cells, row i of the image is row i of the grid */
+	private transient GridXYZDataset colored; /** Grid the image was colored from */
+	private transient int colored_version; /** Version of the grid when colored */
+	private transient PaintScale colored_scale; /** Paint scale used */
+	private transient double colored_lower, colored_upper; /** Bounds of the paint scale used */
+
+	/** Constructor */
+	public GridImageRenderer()
+	{
+		super();
+	}
+
+	public XYItemRendererState initialise(Graphics2D g2, Rectangle2D dataArea, XYPlot plot, XYDataset dataset, PlotRenderingInfo info)
+	{
+		XYItemRendererState state = super.initialise(g2, dataArea, plot, dataset, info);
+		// items are not drawn one by one, so do not search for the visible ones:
+		if( dataset instanceof GridXYZDataset )
+			state.setProcessVisibleItemsOnly(false);
+		return state;
+	}
+
+	public Range findDomainBounds(XYDataset dataset)
+	{
+		if( dataset instanceof GridXYZDataset )
+			return ((GridXYZDataset)dataset).getDomainEdges();
+		return super.findDomainBounds(dataset);
+	}
+
+	public Range findRangeBounds(XYDataset dataset)
+	{
+		if( dataset instanceof GridXYZDataset )
+			return ((GridXYZDataset)dataset).getRangeEdges();
+		return super.findRangeBounds(dataset);
+	}
+
+	public void drawItem(Graphics2D g2, XYItemRendererState state, Rectangle2D dataArea, PlotRenderingInfo info,
+		XYPlot plot, ValueAxis domainAxis, ValueAxis rangeAxis, XYDataset dataset, int series, int item,
+		CrosshairState crosshairState, int pass)
+	{
+		if( !(dataset instanceof GridXYZDataset) )
+		{
+			super.drawItem(g2, state, dataArea, info, plot, domainAxis, rangeAxis, dataset, series, item, crosshairState, pass);
+			return;
+		}
+		GridXYZDataset grid = (GridXYZDataset) dataset;
+		if( plot.getOrientation() != PlotOrientation.VERTICAL || isLog(domainAxis) || isLog(rangeAxis) )
+			drawCell(g2, dataArea, plot, domainAxis, rangeAxis, grid, item);
+		else if( item == 0 ) // the whole grid at once
+			drawGrid(g2, dataArea, plot, domainAxis, rangeAxis, grid);
+	}
+
+	/**
+	* Discard the colored image, e.g. after changing a paint scale in place.
+	* It is colored again when next drawn.
+	*/
+	public void clearImage()
+	{
+		colored = null;
+	}
+
+	/** Check if an axis is not linear */
+	private static boolean isLog(ValueAxis axis)
+	{
+		return (axis instanceof LogAxis) || (axis instanceof LogarithmicAxis);
+	}
+
+	/** Draw the visible cells of the grid as one image */
+	private void drawGrid(Graphics2D g2, Rectangle2D dataArea, XYPlot plot, ValueAxis domainAxis, ValueAxis rangeAxis, GridXYZDataset grid)
+	{
+		colorImage(grid);
+		double[] x = grid.getXValues(), y = grid.getYValues();
+		double cw = grid.getCellWidth(), ch = grid.getCellHeight();
+
+		// cells overlapping the axis ranges:
+		int[] cols = visible(domainAxis.getRange(), x[0], cw, x.length);
+		int[] rows = visible(rangeAxis.getRange(), y[0], ch, y.length);
+		if( cols[1] <= cols[0] || rows[1] <= rows[0] )
+			return;
+
+		// corners of the visible cells on screen:
+		double x0 = domainAxis.valueToJava2D(x[0] + (cols[0]-0.5)*cw, dataArea, plot.getDomainAxisEdge());
+		double x1 = domainAxis.valueToJava2D(x[0] + (cols[1]-0.5)*cw, dataArea, plot.getDomainAxisEdge());
+		double y0 = rangeAxis.valueToJava2D(y[0] + (rows[0]-0.5)*ch, dataArea, plot.getRangeAxisEdge());
+		double y1 = rangeAxis.valueToJava2D(y[0] + (rows[1]-0.5)*ch, dataArea, plot.getRangeAxisEdge());
+		int w = cols[1]-cols[0], h = rows[1]-rows[0];
+		AffineTransform t = new AffineTransform((x1-x0)/w, 0, 0, (y1-y0)/h, x0, y0);
+
+		Object hint = g2.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+		g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+		g2.drawImage(image.getSubimage(cols[0], rows[0], w, h), t, null);
+		if( hint != null )
+			g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, hint);
+	}
+
+	/** Range [first, last+1) of cells centered at c0 + k*step which overlap an axis range */
+	private static int[] visible(Range r, double c0, double step, int n)
+	{
+		double a = (r.getLowerBound() - c0)/step + 0.5;
+		double b = (r.getUpperBound() - c0)/step + 0.5;
+		int first = (int)Math.max(0, Math.floor(Math.min(a,b)));
+		int last = (int)Math.min(n, Math.ceil(Math.max(a,b)));
+		return new int[] { first, last };
+	}
+
+	/** Draw one cell as a block, for axes the image cannot be drawn on */
+	private void drawCell(Graphics2D g2, Rectangle2D dataArea, XYPlot plot, ValueAxis domainAxis, ValueAxis rangeAxis, GridXYZDataset grid, int item)
+	{
+		double z = grid.getZValue(0, item);
+		if( z != z ) // NaN cells are not drawn
+			return;
+		double cx = grid.getXValue(0, item), cy = grid.getYValue(0, item);
+		double hw = 0.5*grid.getCellWidth(), hh = 0.5*grid.getCellHeight();
+		double xa = domainAxis.valueToJava2D(cx-hw, dataArea, plot.getDomainAxisEdge());
+		double xb = domainAxis.valueToJava2D(cx+hw, dataArea, plot.getDomainAxisEdge());
+		double ya = rangeAxis.valueToJava2D(cy-hh, dataArea, plot.getRangeAxisEdge());
+		double yb = rangeAxis.valueToJava2D(cy+hh, dataArea, plot.getRangeAxisEdge());
+		Rectangle2D block;
+		if( plot.getOrientation() == PlotOrientation.VERTICAL )
+			block = new Rectangle2D.Double(Math.min(xa,xb), Math.min(ya,yb), Math.abs(xb-xa), Math.abs(yb-ya));
+		else
+			block = new Rectangle2D.Double(Math.min(ya,yb), Math.min(xa,xb), Math.abs(yb-ya), Math.abs(xb-xa));
+		g2.setPaint(getPaintScale().getPaint(z));
+		g2.fill(block);
+	}
+
+	/** Color the grid into the image, unless it is up to date */
+	private void colorImage(GridXYZDataset grid)
+	{
+		PaintScale scale = getPaintScale();
+		double lower = scale.getLowerBound(), upper = scale.getUpperBound();
+		if( grid == colored && grid.getVersion() == colored_version && scale == colored_scale
+			&& lower == colored_lower && upper == colored_upper )
+			return;
+
+		// use the scale's own table, or sample the paint scale at the center of each step:
+		int[] lut;
+		if( scale instanceof ColormapPaintScale )
+			lut = ((ColormapPaintScale)scale).getTable();
+		else
+		{
+			lut = new int[LUT_SIZE];
+			for(int k=0; k<LUT_SIZE; k++)
+			{
+				Paint p = scale.getPaint(lower + (k+0.5)*(upper-lower)/LUT_SIZE);
+				lut[k] = (p instanceof Color) ? ((Color)p).getRGB() : 0;
+			}
+		}
+
+		int w = grid.getColumnCount(), h = grid.getRowCount();
+		if( image == null || image.getWidth() != w || image.getHeight() != h )
+			image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		int[] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		double k = (upper > lower) ? lut.length/(upper-lower) : 0;
+		ParallelUtil.getPool().invoke( new ColorTask(grid.getZ(), lower, k, lut, pixels, w, 0, h, ParallelUtil.chunkSize(h, 16)) );
+
+		colored = grid;
+		colored_version = grid.getVersion();
+		colored_scale = scale;
+		colored_lower = lower;
+		colored_upper = upper;
+	}
+
+	/** Colors a range of grid rows into the image pixels */
+	private static class ColorTask extends RecursiveAction
+	{
+		double[][] z;
+		double lower, k;
+		int[] lut, pixels;
+		int width, row_start, row_end, chunk;
+
+		ColorTask(double[][] z, double lower, double k, int[] lut, int[] pixels, int width, int row_start, int row_end, int chunk)
+		{
+			this.z = z;
+			this.lower = lower;
+			this.k = k;
+			this.lut = lut;
+			this.pixels = pixels;
+			this.width = width;
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected void compute()
+		{
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				invokeAll( new ColorTask(z, lower, k, lut, pixels, width, row_start, mid, chunk),
+					new ColorTask(z, lower, k, lut, pixels, width, mid, row_end, chunk) );
+				return;
+			}
+
+			int n = lut.length;
+			for(int i=row_start; i<row_end; i++)
+			{
+				double[] row = z[i];
+				int o = i*width;
+				for(int j=0; j<width; j++)
+				{
+					double v = row[j];
+					if( v != v ) // NaN is transparent
+					{
+						pixels[o+j] = 0;
+						continue;
+					}
+					// values outside the scale take the color at its ends
+					int m = (int)( (v - lower) * k );
+					pixels[o+j] = lut[ m < 0 ? 0 : (m >= n ? n-1 : m) ];
+				}
+			}
+		}
+	}
+}
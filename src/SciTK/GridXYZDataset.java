@@ -0,0 +1,283 @@
+package SciTK;
+
+import org.jfree.data.DomainInfo;
+import org.jfree.data.DomainOrder;
+import org.jfree.data.Range;
+import org.jfree.data.RangeInfo;
+import org.jfree.data.general.DatasetChangeEvent;
+import org.jfree.data.xy.AbstractXYZDataset;
+
+/** An XYZ dataset of values on a regular grid, held as a 2-D array z[i][j]
+ * with an x coordinate for each column j and a y coordinate for each row i.
+ * Unlike a dataset of x/y/z triplets, the x and y values of each cell are
+ * not stored, so a grid of n cells takes 8n bytes rather than 24n.
+ *
+ * Cells are also presented as XYZ items (item i*columns + j is cell [i][j])
+ * so the dataset works anywhere an XYZDataset does, but renderers such as
+ * GridImageRenderer use the array directly. The grid has one series.
+ * The x and y coordinates are the cell centers, which must be evenly spaced.
+ *
+ * @package SciTK
+ * @class GridXYZDataset
+ * @brief XYZ dataset backed by a regular 2-D grid
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class GridXYZDataset extends AbstractXYZDataset implements DomainInfo, RangeInfo
+{
+	private Comparable key; /** The series' key (name) */
+	private double[][] z; /** Values, z[i][j] at (x[j], y[i]) */
+	private double[] x; /** Center of each column */
+	private double[] y; /** Center of each row */
+	private int version; /** Incremented each time the data change */
+
+	/**
+	* Constructor
+	* @param key the series' key (name)
+	* @param z the values, z[i][j] is at (x[j], y[i])
+	* @param x the center of each column, evenly spaced
+	* @param y the center of each row, evenly spaced
+	* @throws IllegalArgumentException if the sizes do not match or the coordinates are not evenly spaced
+	*/
+	public GridXYZDataset(Comparable key, double[][] z, double[] x, double[] y)
+	{
+		if( key == null )
+			throw new IllegalArgumentException("Null 'key' argument");
+		this.key = key;
+		check(z, x, y);
+		this.z = z;
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	* Replace the values and coordinates, and notify listeners
+	* @param z the values, z[i][j] is at (x[j], y[i])
+	* @param x the center of each column, evenly spaced
+	* @param y the center of each row, evenly spaced
+	* @throws IllegalArgumentException if the sizes do not match or the coordinates are not evenly spaced
+	*/
+	public void setData(double[][] z, double[] x, double[] y)
+	{
+		check(z, x, y);
+		this.z = z;
+		this.x = x;
+		this.y = y;
+		version++;
+		notifyListeners(new DatasetChangeEvent(this, this));
+	}
+
+	/**
+	* Notify listeners that values in the z array were changed in place
+	*/
+	public void fireDataChanged()
+	{
+		version++;
+		notifyListeners(new DatasetChangeEvent(this, this));
+	}
+
+	/** Check the grid's sizes and spacing */
+	private static void check(double[][] z, double[] x, double[] y)
+	{
+		if( y.length == 0 || x.length == 0 || z.length != y.length )
+			throw new IllegalArgumentException("Grid needs one row of z per y value, and at least one cell");
+		for(int i=0; i<z.length; i++)
+		{
+			if( z[i].length != x.length )
+				throw new IllegalArgumentException("Row " + i + " of z has " + z[i].length + " values, but there are " + x.length + " x values");
+		}
+		checkSpacing(x, "x");
+		checkSpacing(y, "y");
+	}
+
+	/** Check that coordinates are evenly spaced */
+	private static void checkSpacing(double[] c, String name)
+	{
+		if( c.length < 2 )
+			return;
+		double step = (c[c.length-1] - c[0]) / (c.length-1);
+		if( !(step != 0) || Double.isInfinite(step) )
+			throw new IllegalArgumentException("The " + name + " values must be distinct and finite");
+		for(int k=1; k<c.length; k++)
+		{
+			if( Math.abs((c[k] - c[0]) - k*step) > 1e-6*Math.abs(step) )
+				throw new IllegalArgumentException("The " + name + " values must be evenly spaced");
+		}
+	}
+
+	/**
+	* Get the values
+	* @return the array z[i][j], at (x[j], y[i]); not a copy
+	*/
+	public double[][] getZ()
+	{
+		return z;
+	}
+
+	/**
+	* Get the column centers
+	* @return the x value of each column; not a copy
+	*/
+	public double[] getXValues()
+	{
+		return x;
+	}
+
+	/**
+	* Get the row centers
+	* @return the y value of each row; not a copy
+	*/
+	public double[] getYValues()
+	{
+		return y;
+	}
+
+	/** @return the number of columns */
+	public int getColumnCount() { return x.length; }
+	/** @return the number of rows */
+	public int getRowCount() { return y.length; }
+
+	/**
+	* Get the width of a cell
+	* @return the x spacing of the columns (1 if there is a single column); negative if x decreases
+	*/
+	public double getCellWidth()
+	{
+		return (x.length > 1) ? (x[x.length-1] - x[0]) / (x.length-1) : 1.0;
+	}
+
+	/**
+	* Get the height of a cell
+	* @return the y spacing of the rows (1 if there is a single row); negative if y decreases
+	*/
+	public double getCellHeight()
+	{
+		return (y.length > 1) ? (y[y.length-1] - y[0]) / (y.length-1) : 1.0;
+	}
+
+	/**
+	* Get a number which changes whenever the data change, so renderers can
+	* tell if something they computed from the data is out of date
+	* @return the version
+	*/
+	public int getVersion()
+	{
+		return version;
+	}
+
+	/**
+	* Get the x range covered by the cells, from edge to edge
+	* @return the range
+	*/
+	public Range getDomainEdges()
+	{
+		return edges(x, getCellWidth());
+	}
+
+	/**
+	* Get the y range covered by the cells, from edge to edge
+	* @return the range
+	*/
+	public Range getRangeEdges()
+	{
+		return edges(y, getCellHeight());
+	}
+
+	/** Range from the first to the last cell edge */
+	private static Range edges(double[] c, double step)
+	{
+		double a = c[0] - 0.5*step;
+		double b = c[c.length-1] + 0.5*step;
+		return new Range(Math.min(a,b), Math.max(a,b));
+	}
+
+	// ---------------------------------------
+	//		XYZDataset implementation
+	// ---------------------------------------
+	public int getSeriesCount()
+	{
+		return 1;
+	}
+
+	public Comparable getSeriesKey(int series)
+	{
+		if( series != 0 )
+			throw new IllegalArgumentException("Series index out of bounds");
+		return key;
+	}
+
+	public DomainOrder getDomainOrder()
+	{
+		return DomainOrder.NONE;
+	}
+
+	public int getItemCount(int series)
+	{
+		return x.length*y.length;
+	}
+
+	public Number getX(int series, int item)
+	{
+		return Double.valueOf(getXValue(series, item));
+	}
+
+	public Number getY(int series, int item)
+	{
+		return Double.valueOf(getYValue(series, item));
+	}
+
+	public Number getZ(int series, int item)
+	{
+		return Double.valueOf(getZValue(series, item));
+	}
+
+	public double getXValue(int series, int item)
+	{
+		return x[item % x.length];
+	}
+
+	public double getYValue(int series, int item)
+	{
+		return y[item / x.length];
+	}
+
+	public double getZValue(int series, int item)
+	{
+		return z[item / x.length][item % x.length];
+	}
+
+	// ---------------------------------------
+	//	DomainInfo and RangeInfo, from the coordinates without scanning the cells
+	// ---------------------------------------
+	public double getDomainLowerBound(boolean includeInterval)
+	{
+		return getDomainBounds(includeInterval).getLowerBound();
+	}
+
+	public double getDomainUpperBound(boolean includeInterval)
+	{
+		return getDomainBounds(includeInterval).getUpperBound();
+	}
+
+	public Range getDomainBounds(boolean includeInterval)
+	{
+		return includeInterval ? getDomainEdges() : edges(x, 0);
+	}
+
+	public double getRangeLowerBound(boolean includeInterval)
+	{
+		return getRangeBounds(includeInterval).getLowerBound();
+	}
+
+	public double getRangeUpperBound(boolean includeInterval)
+	{
+		return getRangeBounds(includeInterval).getUpperBound();
+	}
+
+	public Range getRangeBounds(boolean includeInterval)
+	{
+		return includeInterval ? getRangeEdges() : edges(y, 0);
+	}
+}
@@ -0,0 +1,433 @@
+package SciTK;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+
+/** Histogram of a stream of samples (e.g. event energies) too large to
+ * keep, built up from chunks as they arrive. The bins are fixed when the
+ * builder is made, evenly spaced in value or in log(value); samples below
+ * or above them are counted as underflow and overflow, and NaN is ignored.
+ *
+ * Each chunk is counted into private arrays (per task for arrays and
+ * files, per thread for parallel streams) which are then added to the
+ * shared counts with atomic adds, so any number of threads can add at
+ * once without locking. The counts can be read at any time, e.g. by a
+ * HistogramXYDataset shown live in a PlotXYStep; such datasets are told
+ * when counts change.
+ *
+ * @package SciTK
+ * @class HistogramBuilder
+ * @brief Streaming, thread-safe histogram of samples
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class HistogramBuilder
+{
+	/** Minimum number of samples counted by one task */
+	public static int MIN_CHUNK = 1 << 16;
+	/** Number of samples read from a file at a time */
+	public static int FILE_BLOCK = 1 << 20;
+
+	private double min; /** Lower edge of the first bin */
+	private double max; /** Upper edge of the last bin */
+	private int n; /** Number of bins */
+	private boolean log; /** True if the bins are evenly spaced in log(value) */
+	private double origin; /** min, or log(min) for log bins */
+	private double scale; /** Bins per unit value, or per unit log(value) */
+
+	private AtomicLongArray counts; /** Underflow, then each bin, then overflow */
+	private CopyOnWriteArrayList<HistogramXYDataset> listeners; /** Datasets showing the counts */
+
+	/**
+	* Constructor for bins evenly spaced in value
+	* @param min the lower edge of the first bin
+	* @param max the upper edge of the last bin
+	* @param bins the number of bins
+	* @throws IllegalArgumentException if the range is empty or there are no bins
+	*/
+	public HistogramBuilder(double min, double max, int bins)
+	{
+		this(min, max, bins, false);
+	}
+
+	/**
+	* Constructor
+	* @param min the lower edge of the first bin
+	* @param max the upper edge of the last bin
+	* @param bins the number of bins
+	* @param log true for bins evenly spaced in log(value), which needs min &gt; 0
+	* @throws IllegalArgumentException if the range is empty or there are no bins
+	*/
+	public HistogramBuilder(double min, double max, int bins, boolean log)
+	{
+		if( bins < 1 )
+			throw new IllegalArgumentException("Histogram needs at least one bin");
+		if( !(max > min) || Double.isInfinite(max - min) )
+			throw new IllegalArgumentException("Histogram range must be finite and non-empty");
+		if( log && !(min > 0) )
+			throw new IllegalArgumentException("Logarithmic bins need a positive minimum");
+		this.min = min;
+		this.max = max;
+		this.n = bins;
+		this.log = log;
+		origin = log ? Math.log(min) : min;
+		scale = n / (log ? Math.log(max) - origin : max - min);
+		counts = new AtomicLongArray(n + 2);
+		listeners = new CopyOnWriteArrayList<HistogramXYDataset>();
+	}
+
+	// ---------------------------------------
+	//		Adding samples
+	// ---------------------------------------
+	/**
+	* Add a single sample
+	* @param v the sample
+	*/
+	public void add(double v)
+	{
+		int k = slot(v);
+		if( k >= 0 )
+		{
+			counts.incrementAndGet(k);
+			changed();
+		}
+	}
+
+	/**
+	* Add a chunk of samples
+	* @param samples the samples
+	*/
+	public void add(double[] samples)
+	{
+		add(samples, 0, samples.length);
+	}
+
+	/**
+	* Add part of a chunk of samples
+	* @param samples the samples
+	* @param offset the first sample to add
+	* @param length the number of samples to add
+	*/
+	public void add(double[] samples, int offset, int length)
+	{
+		add(samples, offset, length, ParallelUtil.getPool());
+	}
+
+	/**
+	* Add part of a chunk of samples
+	* @param samples the samples
+	* @param offset the first sample to add
+	* @param length the number of samples to add
+	* @param pool the pool to count in
+	*/
+	public void add(double[] samples, int offset, int length, ForkJoinPool pool)
+	{
+		if( length <= 0 )
+			return;
+		if( length < n )
+		{
+			// fewer samples than bins, so add them one at a time:
+			for(int i=offset; i<offset+length; i++)
+			{
+				int k = slot(samples[i]);
+				if( k >= 0 )
+					counts.incrementAndGet(k);
+			}
+		}
+		else
+			merge( pool.invoke( new CountTask(samples, offset, offset+length, ParallelUtil.chunkSize(length, MIN_CHUNK)) ) );
+		changed();
+	}
+
+	/**
+	* Add every sample of a stream, which may be parallel; each thread
+	* counts into its own arrays
+	* @param stream the samples
+	*/
+	public void add(DoubleStream stream)
+	{
+		long[] local = stream.collect(
+			new Supplier<long[]>() {
+				public long[] get() { return new long[n + 2]; }
+			},
+			new ObjDoubleConsumer<long[]>() {
+				public void accept(long[] c, double v) {
+					int k = slot(v);
+					if( k >= 0 )
+						c[k]++;
+				}
+			},
+			new BiConsumer<long[],long[]>() {
+				public void accept(long[] a, long[] b) {
+					for(int k=0; k<a.length; k++)
+						a[k] += b[k];
+				}
+			});
+		merge(local);
+		changed();
+	}
+
+	/**
+	* Add every sample in a binary file of native-order values (see MappedRawImage)
+	* @param file the file
+	* @param type the type of each value
+	* @throws IOException if reading fails
+	*/
+	public void addFile(File file, MappedRawImage.DataType type) throws IOException
+	{
+		addFile(file, type, ByteOrder.nativeOrder(), 0);
+	}
+
+	/**
+	* Add every sample in a binary file. The file is read a block at a time,
+	* and the counts are updated after each block.
+	* @param file the file
+	* @param type the type of each value
+	* @param order the byte order of the values
+	* @param header_bytes the number of bytes to skip at the start of the file
+	* @throws IOException if reading fails
+	*/
+	public void addFile(File file, MappedRawImage.DataType type, ByteOrder order, long header_bytes) throws IOException
+	{
+		int bytes = type.getBytes();
+		ByteBuffer buf = ByteBuffer.allocateDirect(FILE_BLOCK * bytes).order(order);
+		double[] block = new double[FILE_BLOCK];
+		FileInputStream in = new FileInputStream(file);
+		try
+		{
+			FileChannel ch = in.getChannel();
+			ch.position(header_bytes);
+			boolean eof = false;
+			while( !eof )
+			{
+				eof = (ch.read(buf) < 0);
+				buf.flip();
+				int m = buf.remaining() / bytes;
+				for(int i=0; i<m; i++)
+					block[i] = read(buf, type);
+				// a partial value is kept for the next read (or ignored at the end):
+				buf.compact();
+				if( m > 0 )
+					add(block, 0, m);
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/** Read the next value from a buffer */
+	private static double read(ByteBuffer buf, MappedRawImage.DataType type)
+	{
+		switch( type )
+		{
+			case UINT8: return buf.get() & 0xFF;
+			case INT8: return buf.get();
+			case UINT16: return buf.getShort() & 0xFFFF;
+			case INT16: return buf.getShort();
+			case UINT32: return buf.getInt() & 0xFFFFFFFFL;
+			case INT32: return buf.getInt();
+			case FLOAT32: return buf.getFloat();
+			default: return buf.getDouble();
+		}
+	}
+
+	/** Remove every sample */
+	public void clear()
+	{
+		for(int k=0; k<n+2; k++)
+			counts.set(k, 0);
+		changed();
+	}
+
+	// ---------------------------------------
+	//		Bins
+	// ---------------------------------------
+	/**
+	* Get the slot of a sample in the counts
+	* @param v the sample
+	* @return 0 for underflow, 1 to n for the bins, n+1 for overflow, or -1 for NaN
+	*/
+	private int slot(double v)
+	{
+		if( v != v )
+			return -1;
+		if( !(v >= min) ) // also v <= 0 for log bins
+			return 0;
+		if( v >= max )
+			return (v == max) ? n : n+1; // the last bin includes its upper edge
+		int k = (int)( ((log ? Math.log(v) : v) - origin) * scale );
+		return (k < n ? k : n-1) + 1; // rounding can reach n just below max
+	}
+
+	/** Add counts from a private array */
+	private void merge(long[] local)
+	{
+		for(int k=0; k<local.length; k++)
+		{
+			if( local[k] != 0 )
+				counts.addAndGet(k, local[k]);
+		}
+	}
+
+	/** Tell datasets showing the counts that they changed */
+	private void changed()
+	{
+		for(HistogramXYDataset d : listeners)
+			d.scheduleNotify();
+	}
+
+	/** Register a dataset to be told when the counts change */
+	void addListener(HistogramXYDataset d)
+	{
+		listeners.addIfAbsent(d);
+	}
+
+	/** Stop telling a dataset when the counts change */
+	void removeListener(HistogramXYDataset d)
+	{
+		listeners.remove(d);
+	}
+
+	/** @return the number of bins */
+	public int getBinCount() { return n; }
+	/** @return the lower edge of the first bin */
+	public double getMin() { return min; }
+	/** @return the upper edge of the last bin */
+	public double getMax() { return max; }
+	/** @return true if the bins are evenly spaced in log(value) */
+	public boolean isLog() { return log; }
+
+	/**
+	* Get the lower edge of a bin
+	* @param i the bin, from 0 to getBinCount(); bin getBinCount() gives the upper edge of the last bin
+	* @return the edge
+	*/
+	public double getBinEdge(int i)
+	{
+		if( i >= n )
+			return max;
+		double t = origin + i/scale;
+		return log ? Math.exp(t) : t;
+	}
+
+	/**
+	* Get the center of a bin (the geometric center for log bins)
+	* @param i the bin
+	* @return the center
+	*/
+	public double getBinCenter(int i)
+	{
+		double t = origin + (i+0.5)/scale;
+		return log ? Math.exp(t) : t;
+	}
+
+	/**
+	* Get the number of samples in a bin
+	* @param i the bin
+	* @return the count
+	*/
+	public long getCount(int i)
+	{
+		return counts.get(i+1);
+	}
+
+	/**
+	* Get the number of samples in each bin. Counts being added meanwhile
+	* may be partly included.
+	* @return a copy of the counts
+	*/
+	public long[] getCounts()
+	{
+		long[] out = new long[n];
+		for(int i=0; i<n; i++)
+			out[i] = counts.get(i+1);
+		return out;
+	}
+
+	/** @return the number of samples below the first bin */
+	public long getUnderflow() { return counts.get(0); }
+	/** @return the number of samples above the last bin */
+	public long getOverflow() { return counts.get(n+1); }
+
+	/**
+	* Get the number of samples added, including underflow and overflow
+	* @return the total
+	*/
+	public long getTotal()
+	{
+		long t = 0;
+		for(int k=0; k<n+2; k++)
+			t += counts.get(k);
+		return t;
+	}
+
+	/**
+	* Get the counts for a step plot (e.g. PlotXYStep)
+	* @return {lower edge, count} of each bin, then {upper edge, count} of the last bin so it is drawn
+	*/
+	public double[][] getPlotData()
+	{
+		double[][] out = new double[2][n+1];
+		for(int i=0; i<=n; i++)
+		{
+			out[0][i] = getBinEdge(i);
+			out[1][i] = counts.get(Math.min(i, n-1)+1);
+		}
+		return out;
+	}
+
+	/** Counts a range of samples into a private array */
+	private class CountTask extends RecursiveTask<long[]>
+	{
+		double[] samples;
+		int start, end, chunk;
+
+		CountTask(double[] samples, int start, int end, int chunk)
+		{
+			this.samples = samples;
+			this.start = start;
+			this.end = end;
+			this.chunk = chunk;
+		}
+
+		protected long[] compute()
+		{
+			if( end - start > chunk )
+			{
+				int mid = (start + end) >>> 1;
+				CountTask right = new CountTask(samples, mid, end, chunk);
+				right.fork();
+				long[] a = new CountTask(samples, start, mid, chunk).compute();
+				long[] b = right.join();
+				for(int k=0; k<a.length; k++)
+					a[k] += b[k];
+				return a;
+			}
+
+			long[] c = new long[n + 2];
+			for(int i=start; i<end; i++)
+			{
+				int k = slot(samples[i]);
+				if( k >= 0 )
+					c[k]++;
+			}
+			return c;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package SciTK;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
+
+import org.jfree.data.DomainOrder;
+import org.jfree.data.xy.AbstractXYDataset;
+
+/** An XY dataset showing the counts of HistogramBuilders as they are
+ * built. Each series reads its builder's counts directly, so adding
+ * samples never rebuilds a series: the builder just tells the dataset,
+ * and change notifications are coalesced so that listeners (i.e. the
+ * chart) update at most once per event-queue cycle, however fast samples
+ * arrive.
+ *
+ * Item i of a series is the lower edge of bin i and its count; one more
+ * item at the upper edge of the last bin repeats its count, so a step
+ * renderer draws every bin.
+ *
+ * @package SciTK
+ * @class HistogramXYDataset
+ * @brief Live XY view of streaming histograms
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class HistogramXYDataset extends AbstractXYDataset
+{
+	private ArrayList<Comparable> keys; /** Keys for each series */
+	private ArrayList<HistogramBuilder> series; /** Histogram shown by each series */
+
+	private AtomicBoolean notify_pending; /** True if a change notification is queued */
+	private Runnable notifier; /** Fires the queued notification on the EDT */
+
+	/** Constructor */
+	public HistogramXYDataset()
+	{
+		keys = new ArrayList<Comparable>();
+		series = new ArrayList<HistogramBuilder>();
+		notify_pending = new AtomicBoolean(false);
+		notifier = new Runnable() {
+			public void run() {
+				notify_pending.set(false);
+				fireDatasetChanged();
+			}
+		};
+	}
+
+	/**
+	* Add a series showing a histogram. If a series with this key already
+	* exists it shows the new histogram instead.
+	* @param key the series' key (name)
+	* @param hist the histogram
+	* @return the index of the series
+	*/
+	public int addSeries(Comparable key, HistogramBuilder hist)
+	{
+		int index;
+		synchronized(this)
+		{
+			index = keys.indexOf(key);
+			if( index >= 0 )
+			{
+				HistogramBuilder old = series.set(index, hist);
+				if( !series.contains(old) )
+					old.removeListener(this);
+			}
+			else
+			{
+				keys.add(key);
+				series.add(hist);
+				index = keys.size()-1;
+			}
+		}
+		hist.addListener(this);
+		scheduleNotify();
+		return index;
+	}
+
+	/**
+	* Get the histogram shown by a series
+	* @param index the index of the series
+	* @return the histogram
+	*/
+	public synchronized HistogramBuilder getHistogram(int index)
+	{
+		return series.get(index);
+	}
+
+	/** Queue a single change notification on the EDT, unless one is already queued */
+	void scheduleNotify()
+	{
+		if( notify_pending.compareAndSet(false,true) )
+			SwingUtilities.invokeLater(notifier);
+	}
+
+	// ---------------------------------------
+	//		XYDataset implementation
+	// ---------------------------------------
+	public synchronized int getSeriesCount()
+	{
+		return keys.size();
+	}
+
+	public synchronized Comparable getSeriesKey(int index)
+	{
+		return keys.get(index);
+	}
+
+	public DomainOrder getDomainOrder()
+	{
+		return DomainOrder.ASCENDING;
+	}
+
+	public synchronized int getItemCount(int index)
+	{
+		return series.get(index).getBinCount() + 1;
+	}
+
+	public Number getX(int index, int item)
+	{
+		return Double.valueOf(getXValue(index, item));
+	}
+
+	public Number getY(int index, int item)
+	{
+		return Double.valueOf(getYValue(index, item));
+	}
+
+	/**
+	* Get an x value
+	* @param index the index of the series
+	* @param item the bin, or the number of bins for the upper edge of the last bin
+	* @return the lower edge of the bin
+	*/
+	public double getXValue(int index, int item)
+	{
+		return getHistogram(index).getBinEdge(item);
+	}
+
+	/**
+	* Get a y value
+	* @param index the index of the series
+	* @param item the bin, or the number of bins for the upper edge of the last bin
+	* @return the count in the bin
+	*/
+	public double getYValue(int index, int item)
+	{
+		HistogramBuilder h = getHistogram(index);
+		return h.getCount( Math.min(item, h.getBinCount()-1) );
+	}
+}
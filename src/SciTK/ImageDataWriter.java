@@ -0,0 +1,230 @@
+package SciTK;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/** Write 2-D image data (a double[][] or any RawImage) as CSV text. Blocks of rows are formatted
+ * in parallel on the shared fork/join pool into reusable byte buffers,
+ * and the blocks are written to a FileChannel in order. Only a few
+ * blocks are in flight at any time, so the extra memory needed does
+ * not depend on the size of the image.
+ *
+ * @package SciTK
+ * @class ImageDataWriter
+ * @brief Parallel CSV output for image data
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class ImageDataWriter
+{
+	/** Approximate number of values formatted per block */
+	private static final int VALUES_PER_BLOCK = 65536;
+
+	public ImageDataWriter() {}
+
+	/**
+	* Write image data to a file
+	* @param data the data in an i x j array, e.g. data[i][j] = pixel_ij
+	* @param file the file to write to (overwritten if it exists)
+	* @throws IOException if writing fails
+	*/
+	public static void write(double[][] data, File file) throws IOException
+	{
+		write(new ArrayRawImage(data), file);
+	}
+
+	/**
+	* Write image data to a file, reading it a row at a time
+	* @param data the data
+	* @param file the file to write to (overwritten if it exists)
+	* @throws IOException if writing fails
+	*/
+	public static void write(RawImage data, File file) throws IOException
+	{
+		FileOutputStream fos = new FileOutputStream(file);
+		try
+		{
+			write(data, fos.getChannel());
+		}
+		finally
+		{
+			fos.close();
+		}
+	}
+
+	/**
+	* Write image data to a channel, starting at its current position
+	* @param data the data in an i x j array, e.g. data[i][j] = pixel_ij
+	* @param channel the channel to write to
+	* @throws IOException if writing fails
+	*/
+	public static void write(double[][] data, FileChannel channel) throws IOException
+	{
+		write(new ArrayRawImage(data), channel);
+	}
+
+	/**
+	* Write image data to a channel, starting at its current position
+	* @param data the data
+	* @param channel the channel to write to
+	* @throws IOException if writing fails
+	*/
+	public static void write(RawImage data, FileChannel channel) throws IOException
+	{
+		int height = data.getHeight();
+		if( height == 0 )
+			return;
+		int width = data.getWidth();
+
+		// number of rows in each block, and number of blocks:
+		int rows = Math.max(1, VALUES_PER_BLOCK / Math.max(width,1));
+		int num_blocks = (height + rows - 1) / rows;
+
+		// a ring of reusable blocks, a couple per worker:
+		ForkJoinPool pool = ParallelUtil.getPool();
+		int num_slots = Math.min(num_blocks, 2*pool.getParallelism());
+		Block[] slots = new Block[num_slots];
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[num_slots];
+		for(int k=0; k<num_slots; k++)
+		{
+			slots[k] = new Block(data);
+			tasks[k] = pool.submit( slots[k].task(k*rows, Math.min(height,(k+1)*rows)) );
+		}
+
+		// write blocks in order, refilling each slot as soon as it is written:
+		for(int b=0; b<num_blocks; b++)
+		{
+			int k = b % num_slots;
+			tasks[k].join();
+			slots[k].writeTo(channel);
+
+			int next = b + num_slots;
+			if( next < num_blocks )
+				tasks[k] = pool.submit( slots[k].task(next*rows, Math.min(height,(next+1)*rows)) );
+		}
+	}
+
+	/**
+	* Format a range of rows as CSV text. Each value is followed by the
+	* delimiter, and each row by a line break.
+	* @param data the data in an i x j array, e.g. data[i][j] = pixel_ij
+	* @param row_start the first row to format
+	* @param row_end one past the last row to format
+	* @param sb the StringBuilder to append to
+	*/
+	public static void formatRows(double[][] data, int row_start, int row_end, StringBuilder sb)
+	{
+		formatRows(new ArrayRawImage(data), row_start, row_end, sb);
+	}
+
+	/**
+	* Format a range of rows as CSV text. Each value is followed by the
+	* delimiter, and each row by a line break.
+	* @param data the data
+	* @param row_start the first row to format
+	* @param row_end one past the last row to format
+	* @param sb the StringBuilder to append to
+	*/
+	public static void formatRows(RawImage data, int row_start, int row_end, StringBuilder sb)
+	{
+		String delim = SciTK_Text.TOOLKIT_CSV_DELIM;
+		String newline = SciTK_Text.TOOLKIT_NEWLINE;
+		int width = data.getWidth();
+		double[] buf = new double[width];
+		for(int i=row_start; i<row_end; i++)
+		{
+			double[] row = data.getRow(i, buf);
+			for(int j=0; j<width; j++)
+			{
+				// add the number at [i][j], then a delim char:
+				sb.append(row[j]);
+				sb.append(delim);
+			}
+			// line break:
+			sb.append(newline);
+		}
+	}
+
+	/** One block of formatted rows, with buffers reused between uses */
+	private static class Block
+	{
+		RawImage data; /** data being written */
+		StringBuilder sb = new StringBuilder(); /** formatting buffer */
+		byte[] bytes = new byte[0]; /** encoded text */
+		ByteBuffer bb = ByteBuffer.wrap(bytes); /** view of bytes for the channel */
+		int length; /** number of valid bytes */
+
+		Block(RawImage data)
+		{
+			this.data = data;
+		}
+
+		/** Create a task which formats rows [row_start,row_end) into this block */
+		RecursiveAction task(final int row_start, final int row_end)
+		{
+			return new RecursiveAction() {
+				protected void compute() {
+					format(row_start, row_end);
+				}
+			};
+		}
+
+		/** Format and encode a range of rows */
+		void format(int row_start, int row_end)
+		{
+			sb.setLength(0);
+			formatRows(data, row_start, row_end, sb);
+
+			// encode to bytes; output is plain ASCII unless the delimiter is not:
+			int n = sb.length();
+			if( bytes.length < n )
+			{
+				bytes = new byte[n + n/4];
+				bb = ByteBuffer.wrap(bytes);
+			}
+			for(int i=0; i<n; i++)
+			{
+				char c = sb.charAt(i);
+				if( c > 127 )
+				{
+					encodeUTF8();
+					return;
+				}
+				bytes[i] = (byte)c;
+			}
+			length = n;
+		}
+
+		/** Fallback encoding for non-ASCII text */
+		void encodeUTF8()
+		{
+			try
+			{
+				bytes = sb.toString().getBytes("UTF-8");
+			}
+			catch(java.io.UnsupportedEncodingException e) // UTF-8 is always supported
+			{
+				throw new RuntimeException(e);
+			}
+			bb = ByteBuffer.wrap(bytes);
+			length = bytes.length;
+		}
+
+		/** Write the encoded block to a channel */
+		void writeTo(FileChannel channel) throws IOException
+		{
+			bb.clear();
+			bb.limit(length);
+			while( bb.hasRemaining() )
+				channel.write(bb);
+		}
+	}
+}
@@ -0,0 +1,451 @@
+package SciTK;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RecursiveAction;
+
+/** Histogram of all values in an image. Each worker on the shared pool
+ * counts a block of rows into its own array, which is then added to the
+ * histogram, so threads only contend once per block. NaN values are not
+ * counted.
+ *
+ * The bins are equal width, first spanning the image's min to max. If a
+ * few extreme values (e.g. hot pixels) leave the bulk of the data in a
+ * handful of bins, the data are counted again with the bins spanning just
+ * the bulk, and values outside are counted (and summed) as underflow and
+ * overflow. Once built, percentiles are found from the counts without
+ * reading the image again.
+ *
+ * A histogram can be built again for new data (e.g. the next frame of a
+ * movie) without allocating: its bins are refilled in place, and the
+ * arrays each task counts into are kept for later use. Given the bins of
+ * a similar image, build() tries them first, so if the bulk of the new
+ * data fits them the data are read only once.
+ *
+ * For display, code() gives each value a 16-bit code: its bin, or for
+ * values outside the bins, one of TAIL_CODES even steps between the min
+ * and the first bin (or the last bin and the max). An image stored as
+ * codes can be mapped to display levels for any contrast without reading
+ * the data again, and without losing the detail of sparse value ranges.
+ *
+ * @package SciTK
+ * @class ImageHistogram
+ * @brief Parallel full-data histogram and percentiles
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class ImageHistogram
+{
+	/** Default number of bins */
+	public static int DEFAULT_BINS = 16384;
+	/** Percent of the data on each side allowed outside the bins when they are narrowed */
+	public static double TAIL_PERCENT = 0.05;
+	/** Maximum number of times the data are counted again with narrower bins */
+	private static final int MAX_REFINE = 2;
+	/** Number of codes given to each of the underflow and overflow by code() */
+	public static final int TAIL_CODES = 8192;
+
+	private double min; /** Smallest value */
+	private double max; /** Largest value */
+	private double low; /** Left edge of bin 0 */
+	private double high; /** Right edge of the last bin */
+	private double scale; /** Bins per unit value */
+	private long[] counts; /** Number of values in each bin */
+	private long under; /** Number of values below low */
+	private long over; /** Number of values above high */
+	private double under_sum; /** Sum of values below low */
+	private double over_sum; /** Sum of values above high */
+	private long total; /** Number of values counted */
+
+	/** Arrays for tasks to count into, kept between builds; at most one per task running at once */
+	private static final ConcurrentLinkedQueue<long[]> scratch = new ConcurrentLinkedQueue<long[]>();
+
+	/**
+	* Build the histogram of an image with the default number of bins
+	* @param data the image
+	*/
+	public ImageHistogram(RawImage data)
+	{
+		this(data, DEFAULT_BINS);
+	}
+
+	/**
+	* Build the histogram of an image
+	* @param data the image
+	* @param num_bins the number of bins
+	*/
+	public ImageHistogram(RawImage data, int num_bins)
+	{
+		this(num_bins);
+		build(data);
+	}
+
+	/**
+	* Constructor for an empty histogram, to be filled by build()
+	* @param num_bins the number of bins
+	*/
+	public ImageHistogram(int num_bins)
+	{
+		counts = new long[Math.max(num_bins,1)];
+		setBins(0, 0);
+	}
+
+	/**
+	* Build the histogram again for new data, reusing the bins' storage, on the shared pool
+	* @param data the image
+	*/
+	public void build(RawImage data)
+	{
+		build(data, ParallelUtil.getPool());
+	}
+
+	/**
+	* Build the histogram again for new data, reusing the bins' storage
+	* @param data the image
+	* @param pool the pool to compute on
+	*/
+	public void build(RawImage data, ForkJoinPool pool)
+	{
+		double[] r = ImageNormalizer.range(data, pool);
+		if( Double.isNaN(r[0]) ) // no valid data
+		{
+			setBins(0, 0);
+			Arrays.fill(counts, 0);
+			min = max = 0;
+			under = over = total = 0;
+			under_sum = over_sum = 0;
+			return;
+		}
+		setBins(r[0], r[1]);
+		count(data, pool);
+
+		// narrow the bins while the bulk of the data is in a few of them:
+		for(int n=0; n<MAX_REFINE && narrow(); n++)
+		{
+			int k0 = Math.max(find(total*TAIL_PERCENT/100.0), 0);
+			int k1 = Math.min(find(total*(1-TAIL_PERCENT/100.0)), counts.length-1);
+			setBins(getBinEdge(k0), getBinEdge(k1+1));
+			count(data, pool);
+		}
+	}
+
+	/**
+	* Build the histogram again for new data, first trying bins spanning a
+	* given range, e.g. those of the previous frame of a movie. If at most
+	* twice TAIL_PERCENT of the new data fall on each side, and the bulk
+	* does not need narrower bins, the data are read only once; otherwise
+	* the histogram is built as by build(RawImage). Uses the shared pool.
+	* @param data the image
+	* @param low the left edge of the first bin to try
+	* @param high the right edge of the last bin to try
+	*/
+	public void build(RawImage data, double low, double high)
+	{
+		build(data, low, high, ParallelUtil.getPool());
+	}
+
+	/**
+	* Build the histogram again for new data, first trying bins spanning a
+	* given range, as by build(RawImage, double, double)
+	* @param data the image
+	* @param low the left edge of the first bin to try
+	* @param high the right edge of the last bin to try
+	* @param pool the pool to compute on
+	*/
+	public void build(RawImage data, double low, double high, ForkJoinPool pool)
+	{
+		if( !(high > low) || Double.isInfinite(high - low) )
+		{
+			build(data, pool);
+			return;
+		}
+		setBins(low, high);
+		count(data, pool);
+		double tail = total*2*TAIL_PERCENT/100.0;
+		if( total == 0 || under > tail || over > tail || narrow() )
+			build(data, pool);
+	}
+
+	/** Check if the bulk of the data (all but TAIL_PERCENT on each side) is in fewer than 1/64 of the bins */
+	private boolean narrow()
+	{
+		int k0 = Math.max(find(total*TAIL_PERCENT/100.0), 0);
+		int k1 = Math.min(find(total*(1-TAIL_PERCENT/100.0)), counts.length-1);
+		return 64L*(k1-k0+1) < counts.length;
+	}
+
+	/** Set the range covered by the bins */
+	private void setBins(double low, double high)
+	{
+		this.low = low;
+		this.high = high;
+		scale = (high > low) ? counts.length/(high-low) : 0;
+	}
+
+	/** Count the data into the current bins; also finds the min and max */
+	private void count(RawImage data, ForkJoinPool pool)
+	{
+		Arrays.fill(counts, 0);
+		under = over = 0;
+		under_sum = over_sum = 0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+		int h = data.getHeight();
+		pool.invoke( new CountTask(data, 0, h, ParallelUtil.chunkSize(h, 16)) );
+		total = under + over;
+		for(int k=0; k<counts.length; k++)
+			total += counts[k];
+	}
+
+	/**
+	* Get the bin containing a value
+	* @param v the value
+	* @return the bin index, or -1 for underflow (and NaN) and getBinCount() for overflow
+	*/
+	public int bin(double v)
+	{
+		if( !(v >= low) )
+			return -1;
+		int k = (int)((v - low) * scale);
+		if( k < counts.length )
+			return k;
+		// the largest value belongs in the last bin:
+		return (v <= high) ? counts.length-1 : counts.length;
+	}
+
+	/**
+	* Get the number of distinct codes given by code()
+	* @return getBinCount() + 2*TAIL_CODES
+	*/
+	public int getCodeCount()
+	{
+		return counts.length + 2*TAIL_CODES;
+	}
+
+	/**
+	* Get the code of a value: codes 0 to TAIL_CODES-1 split the underflow
+	* evenly from the min to the first bin, then come the bins, then
+	* TAIL_CODES codes splitting the overflow from the last bin to the max.
+	* Codes increase with value.
+	* @param v the value
+	* @return the code, from 0 to getCodeCount()-1; NaN gives 0
+	*/
+	public int code(double v)
+	{
+		int k = bin(v);
+		if( k < 0 )
+		{
+			// NaN casts to 0
+			int c = (low > min) ? (int)( (v - min) * TAIL_CODES / (low - min) ) : 0;
+			return (c < 0) ? 0 : (c >= TAIL_CODES ? TAIL_CODES-1 : c);
+		}
+		if( k < counts.length )
+			return TAIL_CODES + k;
+		int c = (max > high) ? (int)( (v - high) * TAIL_CODES / (max - high) ) : 0;
+		return TAIL_CODES + counts.length + (c >= TAIL_CODES ? TAIL_CODES-1 : c);
+	}
+
+	/**
+	* Get the value a code stands for, the center of its range
+	* @param c the code (see code())
+	* @return the value
+	*/
+	public double getCodeValue(int c)
+	{
+		if( c < TAIL_CODES )
+			return min + (low - min)*(c + 0.5)/TAIL_CODES;
+		c -= TAIL_CODES;
+		if( c < counts.length )
+			return low + (high - low)*(c + 0.5)/counts.length;
+		c -= counts.length;
+		return high + (max - high)*(c + 0.5)/TAIL_CODES;
+	}
+
+	/** Find the bin in which the cumulative count reaches a target, -1 or getBinCount() for the tails */
+	private int find(double target)
+	{
+		long cum = under;
+		if( cum >= target && under > 0 )
+			return -1;
+		for(int k=0; k<counts.length; k++)
+		{
+			cum += counts[k];
+			if( cum >= target )
+				return k;
+		}
+		return counts.length;
+	}
+
+	/** @return the smallest value in the image */
+	public double getMin() { return min; }
+	/** @return the largest value in the image */
+	public double getMax() { return max; }
+	/** @return the number of bins */
+	public int getBinCount() { return counts.length; }
+	/** @return the number of values counted (excluding NaN) */
+	public long getTotal() { return total; }
+	/** @return the number of values below the first bin */
+	public long getUnderflow() { return under; }
+	/** @return the number of values above the last bin */
+	public long getOverflow() { return over; }
+	/** @return the mean of the values below the first bin, or NaN if there are none */
+	public double getUnderflowMean() { return (under > 0) ? under_sum/under : Double.NaN; }
+	/** @return the mean of the values above the last bin, or NaN if there are none */
+	public double getOverflowMean() { return (over > 0) ? over_sum/over : Double.NaN; }
+
+	/**
+	* Get the number of values in a bin
+	* @param k the bin
+	* @return the count
+	*/
+	public long getCount(int k)
+	{
+		return counts[k];
+	}
+
+	/**
+	* Get the value at the left edge of a bin
+	* @param k the bin, from 0 to getBinCount() (the right edge of the last bin)
+	* @return the value
+	*/
+	public double getBinEdge(int k)
+	{
+		return low + (high-low)*k/counts.length;
+	}
+
+	/**
+	* Find the value below which a given percent of the data lie,
+	* interpolating linearly within the bin (or tail)
+	* @param percent the percentile, from 0 (the min) to 100 (the max)
+	* @return the value
+	*/
+	public double percentile(double percent)
+	{
+		if( total == 0 || percent <= 0 )
+			return min;
+		if( percent >= 100 )
+			return max;
+		double target = total * percent / 100.0;
+		if( target <= under )
+			return min + (low-min)*target/under;
+		long cum = under;
+		for(int k=0; k<counts.length; k++)
+		{
+			if( cum + counts[k] >= target )
+			{
+				double f = (counts[k] > 0) ? (target - cum) / counts[k] : 0;
+				return getBinEdge(k) + f*(getBinEdge(k+1) - getBinEdge(k));
+			}
+			cum += counts[k];
+		}
+		return high + (max-high)*(target-cum)/over;
+	}
+
+	/**
+	* Get the histogram in the [2][n] layout used by the plots, for a step
+	* plot. The underflow and overflow are not included.
+	* @param num_bins the number of bins to show; adjacent bins are summed if this is fewer than getBinCount()
+	* @return [0] the left edge of each bin and [1] its count
+	*/
+	public double[][] getPlotData(int num_bins)
+	{
+		int group = Math.max(1, (counts.length + num_bins - 1) / Math.max(num_bins,1));
+		int n = (counts.length + group - 1) / group;
+		double[][] out = new double[2][n];
+		for(int i=0; i<n; i++)
+		{
+			out[0][i] = getBinEdge(i*group);
+			long c = 0;
+			for(int k=i*group; k<Math.min((i+1)*group, counts.length); k++)
+				c += counts[k];
+			out[1][i] = c;
+		}
+		return out;
+	}
+
+	/** Counts a range of rows, then adds them to the histogram */
+	private class CountTask extends RecursiveAction
+	{
+		RawImage data;
+		int row_start, row_end, chunk;
+
+		CountTask(RawImage data, int row_start, int row_end, int chunk)
+		{
+			this.data = data;
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected void compute()
+		{
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				invokeAll( new CountTask(data, row_start, mid, chunk),
+					new CountTask(data, mid, row_end, chunk) );
+				return;
+			}
+
+			int n = counts.length;
+			long[] c = scratch.poll();
+			if( c == null || c.length != n )
+				c = new long[n];
+			long c_under = 0, c_over = 0;
+			double c_under_sum = 0, c_over_sum = 0;
+			double c_min = Double.POSITIVE_INFINITY, c_max = Double.NEGATIVE_INFINITY;
+			int width = data.getWidth();
+			double[] buf = new double[width];
+			for(int i=row_start; i<row_end; i++)
+			{
+				double[] row = data.getRow(i, buf);
+				for(int j=0; j<width; j++)
+				{
+					double v = row[j];
+					if( v != v ) // skip NaN
+						continue;
+					if( v < c_min )
+						c_min = v;
+					if( v > c_max )
+						c_max = v;
+					int k = bin(v);
+					if( k < 0 )
+					{
+						c_under++;
+						c_under_sum += v;
+					}
+					else if( k >= n )
+					{
+						c_over++;
+						c_over_sum += v;
+					}
+					else
+						c[k]++;
+				}
+			}
+
+			// add to the histogram, leaving the array empty for the next task:
+			synchronized(ImageHistogram.this)
+			{
+				for(int k=0; k<n; k++)
+				{
+					if( c[k] != 0 )
+					{
+						counts[k] += c[k];
+						c[k] = 0;
+					}
+				}
+				under += c_under;
+				over += c_over;
+				under_sum += c_under_sum;
+				over_sum += c_over_sum;
+				min = Math.min(min, c_min);
+				max = Math.max(max, c_max);
+			}
+			scratch.offer(c);
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package SciTK;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/** Map 2-D data to 8-bit levels for display. range() finds the min and
+ * max, ignoring NaN. quantize() then stores each value as a 16-bit code
+ * from the data's histogram (see ImageHistogram.code), and applyLevels()
+ * makes the 8-bit display for any contrast from the codes alone, through
+ * a table from levels(), without reading the data again. The passes over
+ * the data split the rows across a fork/join pool. Data may be a
+ * double[][] or any RawImage, such as a memory-mapped file, which is
+ * read a row at a time.
+ *
+ * @package SciTK
+ * @class ImageNormalizer
+ * @brief Parallel min/max and 8-bit levels of image data
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class ImageNormalizer
+{
+	/** Smallest number of rows handed to a worker */
+	private static final int MIN_ROWS = 16;
+
+	public ImageNormalizer() {}
+
+	/**
+	* Find the range of the data, using the shared pool
+	* @param data the data in an i x j array, e.g. data[i][j] = pixel_ij
+	* @return {min, max}, or {NaN, NaN} if there is no valid data
+	*/
+	public static double[] range(double[][] data)
+	{
+		return range(data, ParallelUtil.getPool());
+	}
+
+	/**
+	* Find the range of the data
+	* @param data the data in an i x j array, e.g. data[i][j] = pixel_ij
+	* @param pool the pool to compute on
+	* @return {min, max}, or {NaN, NaN} if there is no valid data
+	*/
+	public static double[] range(double[][] data, ForkJoinPool pool)
+	{
+		return range(new ArrayRawImage(data), pool);
+	}
+
+	/**
+	* Find the range of the data
+	* @param data the data
+	* @param pool the pool to compute on
+	* @return {min, max}, or {NaN, NaN} if there is no valid data
+	*/
+	public static double[] range(RawImage data, ForkJoinPool pool)
+	{
+		return range(data, 0, 0, data.getWidth(), data.getHeight(), pool);
+	}
+
+	/**
+	* Find the range of a rectangular region of the data, using the shared pool
+	* @param data the data
+	* @param x the first column of the region
+	* @param y the first row of the region
+	* @param w the number of columns in the region
+	* @param h the number of rows in the region
+	* @return {min, max}, or {NaN, NaN} if there is no valid data
+	*/
+	public static double[] range(RawImage data, int x, int y, int w, int h)
+	{
+		return range(data, x, y, w, h, ParallelUtil.getPool());
+	}
+
+	/**
+	* Find the range of a rectangular region of the data
+	* @param data the data
+	* @param x the first column of the region
+	* @param y the first row of the region
+	* @param w the number of columns in the region
+	* @param h the number of rows in the region
+	* @param pool the pool to compute on
+	* @return {min, max}, or {NaN, NaN} if there is no valid data
+	*/
+	public static double[] range(RawImage data, int x, int y, int w, int h, ForkJoinPool pool)
+	{
+		return pool.invoke( new RangeTask(data, x, x+w, y, y+h, chunkSize(h, pool)) );
+	}
+
+	/**
+	* Write the histogram code (see ImageHistogram.code) of each value into a
+	* 16-bit buffer, using the shared pool
+	* @param data the data
+	* @param hist the histogram of the data
+	* @param out the output, in row-major order; element [i][j] is written to out[i*stride + j]
+	* @param stride the length of a row in out
+	*/
+	public static void quantize(RawImage data, ImageHistogram hist, short[] out, int stride)
+	{
+		quantize(data, hist, out, stride, ParallelUtil.getPool());
+	}
+
+	/**
+	* Write the histogram code (see ImageHistogram.code) of each value into a
+	* 16-bit buffer. The codes keep the detail of the data to within a bin
+	* (or a tail step), so the display levels can then be made for any
+	* contrast with levels() and applyLevels(), without reading the data again.
+	* @param data the data
+	* @param hist the histogram of the data
+	* @param out the output, in row-major order; element [i][j] is written to out[i*stride + j]
+	* @param stride the length of a row in out
+	* @param pool the pool to compute on
+	* @throws IllegalArgumentException if the histogram has too many codes for 16 bits
+	*/
+	public static void quantize(RawImage data, ImageHistogram hist, short[] out, int stride, ForkJoinPool pool)
+	{
+		if( hist.getCodeCount() > 65536 )
+			throw new IllegalArgumentException("Histogram has too many bins for 16-bit codes");
+		int rows = data.getHeight();
+		pool.invoke( new QuantizeTask(data, hist, out, stride, 0, rows, chunkSize(rows, pool)) );
+	}
+
+	/**
+	* Make the table of display levels for the codes of a histogram: linear
+	* in value, with lo drawn as 0 and hi as 255, and clamped outside.
+	* If lo == hi, values from hi up are drawn as 255 and the rest as 0.
+	* @param hist the histogram
+	* @param lo the value drawn as level 0
+	* @param hi the value drawn as level 255
+	* @param table the output, of length at least hist.getCodeCount()
+	*/
+	public static void levels(ImageHistogram hist, double lo, double hi, byte[] table)
+	{
+		int n = hist.getCodeCount();
+		double k = (hi > lo) ? 256.0/(hi-lo) : 0.0;
+		for(int c=0; c<n; c++)
+		{
+			double v = hist.getCodeValue(c);
+			int l = (k > 0) ? (int)Math.floor( (v - lo) * k ) : (v >= hi ? 255 : 0);
+			table[c] = (byte)( l < 0 ? 0 : (l > 255 ? 255 : l) );
+		}
+	}
+
+	/**
+	* Look up the display level of each code, in parallel
+	* @param codes the codes, e.g. from quantize()
+	* @param table the level of each code, e.g. from levels()
+	* @param out the output, the same length as codes
+	* @param pool the pool to compute on
+	*/
+	public static void applyLevels(short[] codes, byte[] table, byte[] out, ForkJoinPool pool)
+	{
+		int chunk = Math.max(1 << 16, codes.length / (4*pool.getParallelism()));
+		pool.invoke( new LevelTask(codes, table, out, 0, codes.length, chunk) );
+	}
+
+	/** Rows per task, aiming for a few tasks per worker */
+	private static int chunkSize(int rows, ForkJoinPool pool)
+	{
+		return Math.max(MIN_ROWS, rows / (4*pool.getParallelism()));
+	}
+
+	/** Finds {min, max} over a range of rows */
+	private static class RangeTask extends RecursiveTask<double[]>
+	{
+		RawImage data;
+		int col_start, col_end, row_start, row_end, chunk;
+
+		RangeTask(RawImage data, int col_start, int col_end, int row_start, int row_end, int chunk)
+		{
+			this.data = data;
+			this.col_start = col_start;
+			this.col_end = col_end;
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected double[] compute()
+		{
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				RangeTask right = new RangeTask(data, col_start, col_end, mid, row_end, chunk);
+				right.fork();
+				double[] a = new RangeTask(data, col_start, col_end, row_start, mid, chunk).compute();
+				double[] b = right.join();
+				// NaN means no valid data in that half:
+				if( Double.isNaN(a[0]) )
+					return b;
+				if( Double.isNaN(b[0]) )
+					return a;
+				return new double[] { Math.min(a[0],b[0]), Math.max(a[1],b[1]) };
+			}
+
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			double[] buf = new double[data.getWidth()];
+			for(int i=row_start; i<row_end; i++)
+			{
+				double[] row = data.getRow(i, buf);
+				for(int j=col_start; j<col_end; j++)
+				{
+					// check both: a value can be the new min and max at once
+					double v = row[j];
+					if( v < min )
+						min = v;
+					if( v > max )
+						max = v;
+				}
+			}
+			if( min > max ) // no valid values
+				return new double[] { Double.NaN, Double.NaN };
+			return new double[] { min, max };
+		}
+	}
+
+	/** Writes the histogram code of each value for a range of rows */
+	private static class QuantizeTask extends RecursiveAction
+	{
+		RawImage data;
+		ImageHistogram hist;
+		short[] out;
+		int stride, row_start, row_end, chunk;
+
+		QuantizeTask(RawImage data, ImageHistogram hist, short[] out, int stride, int row_start, int row_end, int chunk)
+		{
+			this.data = data;
+			this.hist = hist;
+			this.out = out;
+			this.stride = stride;
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected void compute()
+		{
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				invokeAll( new QuantizeTask(data, hist, out, stride, row_start, mid, chunk),
+					new QuantizeTask(data, hist, out, stride, mid, row_end, chunk) );
+				return;
+			}
+
+			int width = data.getWidth();
+			double[] buf = new double[width];
+			for(int i=row_start; i<row_end; i++)
+			{
+				double[] row = data.getRow(i, buf);
+				int o = i*stride;
+				for(int j=0; j<width; j++)
+					out[o+j] = (short) hist.code(row[j]);
+			}
+		}
+	}
+
+	/** Looks up the levels of a range of codes */
+	private static class LevelTask extends RecursiveAction
+	{
+		short[] codes;
+		byte[] table, out;
+		int start, end, chunk;
+
+		LevelTask(short[] codes, byte[] table, byte[] out, int start, int end, int chunk)
+		{
+			this.codes = codes;
+			this.table = table;
+			this.out = out;
+			this.start = start;
+			this.end = end;
+			this.chunk = chunk;
+		}
+
+		protected void compute()
+		{
+			if( end - start > chunk )
+			{
+				int mid = (start + end) >>> 1;
+				invokeAll( new LevelTask(codes, table, out, start, mid, chunk),
+					new LevelTask(codes, table, out, mid, end, chunk) );
+				return;
+			}
+
+			for(int i=start; i<end; i++)
+				out[i] = table[ codes[i] & 0xFFFF ];
+		}
+	}
+}
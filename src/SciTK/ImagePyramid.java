@@ -0,0 +1,271 @@
+package SciTK;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.RecursiveAction;
+
+/** A multi-resolution (mipmap) pyramid of an image. Level 0 is the
+ * image itself, and each further level is a 2x reduction of the one
+ * before, averaging each 2x2 block of pixels. Levels are built on
+ * first use, so only the reductions actually needed for display are
+ * ever computed. Any scale can then be drawn from the nearest level,
+ * which is never reduced by more than 2x on the fly.
+ *
+ * Images with one byte per pixel (gray or indexed) are reduced directly
+ * on their data in parallel on the shared pool; other images fall back
+ * to Java2D. When the base image is replaced by one of the same size
+ * (e.g. the next frame of a movie), the reduced levels are rebuilt into
+ * their existing buffers instead of being reallocated.
+ *
+ * @package SciTK
+ * @class ImagePyramid
+ * @brief Lazily built mipmap levels of an image
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class ImagePyramid
+{
+	private BufferedImage[] levels; /** Reductions of the image, null until built */
+	private boolean[] current; /** True for levels built from the current base image */
+
+	/**
+	* Constructor. No reductions are computed until they are requested.
+	* @param base the full resolution image (level 0)
+	*/
+	public ImagePyramid(BufferedImage base)
+	{
+		levels = new BufferedImage[countLevels(base.getWidth(), base.getHeight())];
+		current = new boolean[levels.length];
+		levels[0] = base;
+		current[0] = true;
+	}
+
+	/**
+	* Replace the full resolution image. If it is the same size as before,
+	* levels already built are kept as buffers and are rebuilt in place
+	* when next requested.
+	* @param base the new full resolution image (level 0)
+	*/
+	public synchronized void setBase(BufferedImage base)
+	{
+		if( base.getWidth() != levels[0].getWidth() || base.getHeight() != levels[0].getHeight() )
+			levels = new BufferedImage[countLevels(base.getWidth(), base.getHeight())];
+		current = new boolean[levels.length];
+		levels[0] = base;
+		current[0] = true;
+	}
+
+	/** Number of levels until the image is a single pixel */
+	private static int countLevels(int w, int h)
+	{
+		int n = 1;
+		while( w > 1 || h > 1 )
+		{
+			w = (w+1)/2;
+			h = (h+1)/2;
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	* Get the full resolution image
+	* @return level 0
+	*/
+	public BufferedImage getBase()
+	{
+		return levels[0];
+	}
+
+	/**
+	* Create a pyramid sharing this one's pixel data, drawn with a different
+	* color model (e.g. a new colormap for indexed images). Levels already
+	* built are reused without copying.
+	* @param cm the new color model, which must be compatible with the image's raster
+	* @return the new pyramid
+	*/
+	public synchronized ImagePyramid withColorModel(ColorModel cm)
+	{
+		ImagePyramid p = new ImagePyramid( new BufferedImage(cm, levels[0].getRaster(), cm.isAlphaPremultiplied(), null) );
+		for(int k=1; k<levels.length; k++)
+		{
+			if( levels[k] != null )
+				p.levels[k] = new BufferedImage(cm, levels[k].getRaster(), cm.isAlphaPremultiplied(), null);
+			p.current[k] = current[k];
+		}
+		return p;
+	}
+
+	/**
+	* Get the number of levels (including the full resolution image)
+	* @return the number of levels
+	*/
+	public int getLevelCount()
+	{
+		return levels.length;
+	}
+
+	/**
+	* Get a level, building it (and any levels below it) if needed
+	* @param level the level, 0 for full resolution
+	* @return the image reduced by 2^level
+	*/
+	public synchronized BufferedImage getLevel(int level)
+	{
+		level = Math.max(0, Math.min(level, levels.length-1));
+		for(int k=1; k<=level; k++)
+		{
+			if( current[k] )
+				continue;
+			BufferedImage old = levels[k];
+			if( old != null && isBytePerPixel(old) && isBytePerPixel(levels[0]) )
+			{
+				// a new palette (e.g. the next frame's contrast) only needs the raster rewrapped:
+				ColorModel cm = levels[0].getColorModel();
+				if( old.getColorModel() != cm )
+					old = levels[k] = new BufferedImage(cm, old.getRaster(), cm.isAlphaPremultiplied(), null);
+				reduceInto(levels[k-1], old);
+			}
+			else
+				levels[k] = reduce(levels[k-1]);
+			current[k] = true;
+		}
+		return levels[level];
+	}
+
+	/**
+	* Choose the level to draw from for a display scale: the smallest
+	* level which is still at least as large as the displayed image
+	* @param scale display pixels per full resolution pixel
+	* @return the level to use
+	*/
+	public int levelFor(double scale)
+	{
+		int level = 0;
+		while( level+1 < levels.length && scale <= 0.5/(1 << level) )
+			level++;
+		return level;
+	}
+
+	/**
+	* Get the scale of a level relative to the full resolution image
+	* @param level the level
+	* @return the scale factor of that level, i.e. 2^-level
+	*/
+	public static double levelScale(int level)
+	{
+		return 1.0 / (double)(1L << level);
+	}
+
+	// ---------------------------------------
+	//		Reduction
+	// ---------------------------------------
+	/**
+	* Reduce an image by 2x in each direction, averaging 2x2 blocks
+	* @param src the image to reduce
+	* @return the reduced image, with the same color model
+	*/
+	public static BufferedImage reduce(BufferedImage src)
+	{
+		int w = (src.getWidth()+1)/2;
+		int h = (src.getHeight()+1)/2;
+		if( isBytePerPixel(src) )
+		{
+			ColorModel cm = src.getColorModel();
+			WritableRaster r = cm.createCompatibleWritableRaster(w, h);
+			BufferedImage dst = new BufferedImage(cm, r, cm.isAlphaPremultiplied(), null);
+			reduceInto(src, dst);
+			return dst;
+		}
+
+		// generic fallback: at exactly half size, bilinear sampling averages each 2x2 block
+		int type = (src.getType() == BufferedImage.TYPE_CUSTOM) ? BufferedImage.TYPE_INT_ARGB : src.getType();
+		BufferedImage dst = new BufferedImage(w, h, type);
+		Graphics2D g = dst.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(src, 0, 0, 2*w, 2*h, null);
+		g.dispose();
+		return dst;
+	}
+
+	/** Reduce a byte-per-pixel image into an existing image of half its size */
+	private static void reduceInto(BufferedImage src, BufferedImage dst)
+	{
+		int h = dst.getHeight();
+		ParallelUtil.getPool().invoke( new ReduceTask(src, dst, 0, h, ParallelUtil.chunkSize(h, 32)) );
+	}
+
+	/** Check if an image stores a single byte per pixel in a plain layout */
+	private static boolean isBytePerPixel(BufferedImage img)
+	{
+		WritableRaster r = img.getRaster();
+		if( r.getNumBands() != 1 || !(r.getDataBuffer() instanceof DataBufferByte) )
+			return false;
+		if( !(r.getSampleModel() instanceof ComponentSampleModel) || r.getParent() != null )
+			return false;
+		ComponentSampleModel sm = (ComponentSampleModel) r.getSampleModel();
+		return sm.getPixelStride() == 1 && sm.getSampleSize(0) == 8;
+	}
+
+	/** Reduces a range of output rows, splitting itself across the pool */
+	private static class ReduceTask extends RecursiveAction
+	{
+		BufferedImage src, dst;
+		int row_start, row_end, chunk;
+
+		ReduceTask(BufferedImage src, BufferedImage dst, int row_start, int row_end, int chunk)
+		{
+			this.src = src;
+			this.dst = dst;
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected void compute()
+		{
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				invokeAll( new ReduceTask(src, dst, row_start, mid, chunk),
+					new ReduceTask(src, dst, mid, row_end, chunk) );
+				return;
+			}
+
+			WritableRaster sr = src.getRaster();
+			WritableRaster dr = dst.getRaster();
+			byte[] s = ((DataBufferByte)sr.getDataBuffer()).getData();
+			byte[] d = ((DataBufferByte)dr.getDataBuffer()).getData();
+			ComponentSampleModel ssm = (ComponentSampleModel) sr.getSampleModel();
+			ComponentSampleModel dsm = (ComponentSampleModel) dr.getSampleModel();
+			int s_stride = ssm.getScanlineStride();
+			int d_stride = dsm.getScanlineStride();
+			int s_off = ssm.getOffset(0,0) + ((DataBufferByte)sr.getDataBuffer()).getOffset();
+			int d_off = dsm.getOffset(0,0) + ((DataBufferByte)dr.getDataBuffer()).getOffset();
+			int sw = src.getWidth(), sh = src.getHeight();
+			int dw = dst.getWidth();
+
+			for(int y=row_start; y<row_end; y++)
+			{
+				// odd sizes: the last row/column averages only what exists
+				int r0 = s_off + (2*y)*s_stride;
+				int r1 = (2*y+1 < sh) ? r0 + s_stride : r0;
+				int o = d_off + y*d_stride;
+				for(int x=0; x<dw; x++)
+				{
+					int c0 = 2*x;
+					int c1 = (c0+1 < sw) ? c0+1 : c0;
+					int sum = (s[r0+c0] & 0xFF) + (s[r0+c1] & 0xFF) + (s[r1+c0] & 0xFF) + (s[r1+c1] & 0xFF);
+					d[o+x] = (byte)((sum + 2) >> 2);
+				}
+			}
+		}
+	}
+}
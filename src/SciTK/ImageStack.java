@@ -0,0 +1,128 @@
+package SciTK;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/** A sequence of images of the same size, e.g. the frames of a time
+ * series. Each frame is a RawImage, so frames may be arrays in memory
+ * or regions of a memory-mapped file.
+ *
+ * @package SciTK
+ * @class ImageStack
+ * @brief Frames of a movie or image series
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class ImageStack
+{
+	private RawImage[] frames; /** The frames, in order */
+
+	/**
+	* Constructor
+	* @param frames the frames, which must all have the same size
+	*/
+	public ImageStack(RawImage[] frames)
+	{
+		if( frames.length == 0 )
+			throw new IllegalArgumentException("An image stack needs at least one frame");
+		for(int k=1; k<frames.length; k++)
+		{
+			if( frames[k].getWidth() != frames[0].getWidth() || frames[k].getHeight() != frames[0].getHeight() )
+				throw new IllegalArgumentException("Frame " + k + " is " + frames[k].getWidth() + " x " + frames[k].getHeight()
+					+ ", but frame 0 is " + frames[0].getWidth() + " x " + frames[0].getHeight());
+		}
+		this.frames = frames;
+	}
+
+	/**
+	* Constructor using data in memory
+	* @param data the frames, e.g. data[k][i][j] = pixel_ij of frame k
+	*/
+	public ImageStack(double[][][] data)
+	{
+		this( wrap(data) );
+	}
+
+	/**
+	* Map a raw binary file holding consecutive frames, e.g. from a detector.
+	* The file holds a header, then each frame's values in row-major order.
+	* @param file the file to read
+	* @param width the number of columns in each frame
+	* @param height the number of rows in each frame
+	* @param num_frames the number of frames
+	* @param type the type of each value
+	* @param order the byte order of the values (ByteOrder.BIG_ENDIAN or LITTLE_ENDIAN)
+	* @param header_bytes the number of bytes before the first frame
+	* @return the stack
+	* @throws IOException if the file cannot be opened or is too short
+	*/
+	public static ImageStack openRaw(File file, int width, int height, int num_frames,
+		MappedRawImage.DataType type, ByteOrder order, long header_bytes) throws IOException
+	{
+		long frame_bytes = (long)width*height*type.getBytes();
+		RawImage[] frames = new RawImage[num_frames];
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = raf.getChannel();
+			for(int k=0; k<num_frames; k++)
+				frames[k] = new MappedRawImage(channel, file.getName(), width, height, type, order, header_bytes + k*frame_bytes);
+		}
+		finally
+		{
+			raf.close();
+		}
+		return new ImageStack(frames);
+	}
+
+	/** Wrap arrays as frames */
+	private static RawImage[] wrap(double[][][] data)
+	{
+		RawImage[] frames = new RawImage[data.length];
+		for(int k=0; k<data.length; k++)
+			frames[k] = new ArrayRawImage(data[k]);
+		return frames;
+	}
+
+	/**
+	* Get the number of frames
+	* @return the number of frames
+	*/
+	public int getFrameCount()
+	{
+		return frames.length;
+	}
+
+	/**
+	* Get a frame
+	* @param k the frame number, starting at 0
+	* @return the frame's data
+	*/
+	public RawImage getFrame(int k)
+	{
+		return frames[k];
+	}
+
+	/**
+	* Get the width of every frame
+	* @return the number of columns
+	*/
+	public int getWidth()
+	{
+		return frames[0].getWidth();
+	}
+
+	/**
+	* Get the height of every frame
+	* @return the number of rows
+	*/
+	public int getHeight()
+	{
+		return frames[0].getHeight();
+	}
+}
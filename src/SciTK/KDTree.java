@@ -0,0 +1,403 @@
+package SciTK;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** A 2-D k-d tree over scattered points, for nearest neighbor searches.
+ * The tree is implicit: the points are reordered so each node is a range
+ * [lo, hi) of the arrays whose middle point splits the rest along the
+ * longer side of the node's box, and no node objects are made. Ranges of LEAF_SIZE or fewer
+ * points are searched linearly. Subtrees are built in parallel.
+ *
+ * The tree keeps its own reordered copy of the coordinates; getIndex()
+ * maps a position in the tree back to the caller's arrays. Points with a
+ * NaN coordinate are dropped. Searches do not modify the tree, so any
+ * number of threads can search at once, each with its own Neighbors.
+ *
+ * @package SciTK
+ * @class KDTree
+ * @brief Implicit 2-D k-d tree for nearest neighbor searches
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class KDTree
+{
+	/** Most points in a leaf */
+	public static int LEAF_SIZE = 8;
+	/** Minimum number of points in a subtree built by one task */
+	public static int MIN_CHUNK = 1 << 16;
+
+	private double[] xy; /** x and y of each point, interleaved, in tree order */
+	private int[] index; /** Index of each point in the caller's arrays */
+	private byte[] split; /** Split axis (0 = x, 1 = y) of the node split at each position */
+	private int n; /** Number of points */
+	private double x_min, x_max, y_min, y_max; /** Bounding box of the points */
+
+	/**
+	* Constructor, building the tree
+	* @param x the x coordinate of each point
+	* @param y the y coordinate of each point
+	* @throws IllegalArgumentException if the arrays differ in length
+	*/
+	public KDTree(double[] x, double[] y)
+	{
+		this(x, y, ParallelUtil.getPool());
+	}
+
+	/**
+	* Constructor, building the tree
+	* @param x the x coordinate of each point
+	* @param y the y coordinate of each point
+	* @param pool the pool to build subtrees in
+	* @throws IllegalArgumentException if the arrays differ in length
+	*/
+	public KDTree(double[] x, double[] y, ForkJoinPool pool)
+	{
+		if( x.length != y.length )
+			throw new IllegalArgumentException("KDTree needs one y for each x");
+
+		// copy the valid points:
+		int m = 0;
+		for(int i=0; i<x.length; i++)
+		{
+			if( x[i] == x[i] && y[i] == y[i] )
+				m++;
+		}
+		n = m;
+		xy = new double[2*n];
+		index = new int[n];
+		split = new byte[n];
+		x_min = y_min = Double.POSITIVE_INFINITY;
+		x_max = y_max = Double.NEGATIVE_INFINITY;
+		m = 0;
+		for(int i=0; i<x.length; i++)
+		{
+			double xi = x[i], yi = y[i];
+			if( xi != xi || yi != yi )
+				continue;
+			xy[2*m] = xi;
+			xy[2*m+1] = yi;
+			index[m++] = i;
+			x_min = Math.min(x_min, xi);
+			x_max = Math.max(x_max, xi);
+			y_min = Math.min(y_min, yi);
+			y_max = Math.max(y_max, yi);
+		}
+
+		if( n > LEAF_SIZE )
+			pool.invoke( new BuildTask(0, n, x_min, x_max, y_min, y_max, Math.max(MIN_CHUNK, LEAF_SIZE)) );
+	}
+
+	/** @return the number of points in the tree */
+	public int size() { return n; }
+	/** @return the smallest x of the points */
+	public double getXMin() { return x_min; }
+	/** @return the largest x of the points */
+	public double getXMax() { return x_max; }
+	/** @return the smallest y of the points */
+	public double getYMin() { return y_min; }
+	/** @return the largest y of the points */
+	public double getYMax() { return y_max; }
+
+	/**
+	* Map a position in the tree to the caller's arrays
+	* @param k the position, as returned by the searches
+	* @return the index of the point in the arrays given to the constructor
+	*/
+	public int getIndex(int k)
+	{
+		return index[k];
+	}
+
+	/**
+	* Get the x coordinate of a point
+	* @param k the position in the tree
+	* @return x
+	*/
+	public double getX(int k) { return xy[2*k]; }
+
+	/**
+	* Get the y coordinate of a point
+	* @param k the position in the tree
+	* @return y
+	*/
+	public double getY(int k) { return xy[2*k+1]; }
+
+	/**
+	* Find the point nearest to (qx, qy)
+	* @param qx the x coordinate to search from
+	* @param qy the y coordinate to search from
+	* @param max_dist2 only points closer than the square root of this are found
+	* @param hint the position of a point thought to be near, e.g. the result of
+	*  the previous search of a scan, which tightens the search; or -1
+	* @return the position in the tree of the nearest point, or -1 if there is none in range
+	*/
+	public int nearest(double qx, double qy, double max_dist2, int hint)
+	{
+		Neighbors nb = new Neighbors(1);
+		if( hint >= 0 && hint < n )
+		{
+			double dx = xy[2*hint]-qx, dy = xy[2*hint+1]-qy;
+			double d2 = dx*dx + dy*dy;
+			if( d2 < max_dist2 )
+			{
+				nb.offer(hint, d2);
+				max_dist2 = d2;
+			}
+		}
+		nb.limit = max_dist2;
+		search(0, n, qx, qy, nb);
+		return (nb.count > 0) ? nb.pos[0] : -1;
+	}
+
+	/**
+	* Find the k points nearest to (qx, qy)
+	* @param qx the x coordinate to search from
+	* @param qy the y coordinate to search from
+	* @param max_dist2 only points closer than the square root of this are found
+	* @param nb receives the points found, at most nb.capacity()
+	*/
+	public void nearest(double qx, double qy, double max_dist2, Neighbors nb)
+	{
+		nb.clear(max_dist2);
+		search(0, n, qx, qy, nb);
+	}
+
+	/** Search the node [lo, hi), nearer child first */
+	private void search(int lo, int hi, double qx, double qy, Neighbors nb)
+	{
+		if( hi - lo <= LEAF_SIZE )
+		{
+			for(int k=lo; k<hi; k++)
+			{
+				double dx = xy[2*k]-qx, dy = xy[2*k+1]-qy;
+				double d2 = dx*dx + dy*dy;
+				if( d2 < nb.limit )
+					nb.offer(k, d2);
+			}
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		double dx = xy[2*mid]-qx, dy = xy[2*mid+1]-qy;
+		double d2 = dx*dx + dy*dy;
+		if( d2 < nb.limit )
+			nb.offer(mid, d2);
+		double d = (split[mid] == 0) ? -dx : -dy;
+		if( d < 0 )
+		{
+			search(lo, mid, qx, qy, nb);
+			if( d*d < nb.limit )
+				search(mid+1, hi, qx, qy, nb);
+		}
+		else
+		{
+			search(mid+1, hi, qx, qy, nb);
+			if( d*d < nb.limit )
+				search(lo, mid, qx, qy, nb);
+		}
+	}
+
+	/** Builds the node [lo, hi) with the given box, and its children */
+	private class BuildTask extends RecursiveAction
+	{
+		int lo, hi, chunk;
+		double bx0, bx1, by0, by1;
+
+		BuildTask(int lo, int hi, double bx0, double bx1, double by0, double by1, int chunk)
+		{
+			this.lo = lo;
+			this.hi = hi;
+			this.bx0 = bx0;
+			this.bx1 = bx1;
+			this.by0 = by0;
+			this.by1 = by1;
+			this.chunk = chunk;
+		}
+
+		protected void compute()
+		{
+			build(lo, hi, bx0, bx1, by0, by1);
+		}
+
+		/** Split [lo, hi) at its middle point, then the points on either side, forking large halves */
+		private void build(int lo, int hi, double bx0, double bx1, double by0, double by1)
+		{
+			if( hi - lo <= LEAF_SIZE )
+				return;
+			int mid = (lo + hi) >>> 1;
+			byte axis = (byte)( (bx1-bx0 >= by1-by0) ? 0 : 1 );
+			split[mid] = axis;
+			select(lo, hi, mid, axis);
+			double s = xy[2*mid+axis];
+
+			// upper half, forked if large enough:
+			BuildTask right = null;
+			if( hi - mid > chunk )
+			{
+				right = (axis == 0) ? new BuildTask(mid+1, hi, s, bx1, by0, by1, chunk)
+					: new BuildTask(mid+1, hi, bx0, bx1, s, by1, chunk);
+				right.fork();
+			}
+			else if( axis == 0 )
+				build(mid+1, hi, s, bx1, by0, by1);
+			else
+				build(mid+1, hi, bx0, bx1, s, by1);
+
+			// then the lower half:
+			if( axis == 0 )
+				build(lo, mid, bx0, s, by0, by1);
+			else
+				build(lo, mid, bx0, bx1, by0, s);
+			if( right != null )
+				right.join();
+		}
+	}
+
+	/** Reorder [lo, hi) so the point at k has the k-th coordinate along an axis, smaller before and larger after */
+	private void select(int lo, int hi, int k, int axis)
+	{
+		selectRange(lo, hi-1, k, axis);
+	}
+
+	/** Floyd-Rivest selection in [lo, hi] (inclusive): a sample first brings
+	 * the k-th point near k, so the full partition is done about once */
+	private void selectRange(int lo, int hi, int k, int axis)
+	{
+		double[] c = xy;
+		while( hi > lo )
+		{
+			if( hi - lo > 600 )
+			{
+				// select within a sample around k, sized to hold the k-th point:
+				int n = hi - lo + 1;
+				int i = k - lo + 1;
+				double z = Math.log(n);
+				double s = 0.5*Math.exp(2*z/3);
+				double sd = 0.5*Math.sqrt(z*s*(n-s)/n) * (i < n/2 ? -1 : 1);
+				selectRange( Math.max(lo, (int)(k - i*s/n + sd)), Math.min(hi, (int)(k + (n-i)*s/n + sd)), k, axis );
+			}
+			else
+			{
+				// small ranges: median of three moved to k
+				int m = (lo + hi) >>> 1;
+				if( c[2*m+axis] < c[2*lo+axis] ) swap(m, lo);
+				if( c[2*hi+axis] < c[2*lo+axis] ) swap(hi, lo);
+				if( c[2*hi+axis] < c[2*m+axis] ) swap(hi, m);
+				swap(m, k);
+			}
+
+			// partition about the point at k:
+			double t = c[2*k+axis];
+			int i = lo, j = hi;
+			swap(lo, k);
+			if( c[2*hi+axis] > t )
+				swap(hi, lo);
+			while( i < j )
+			{
+				swap(i++, j--);
+				while( c[2*i+axis] < t ) i++;
+				while( c[2*j+axis] > t ) j--;
+			}
+			if( c[2*lo+axis] == t )
+				swap(lo, j);
+			else
+				swap(++j, hi);
+
+			if( j <= k )
+				lo = j + 1;
+			if( k <= j )
+				hi = j - 1;
+		}
+	}
+
+	/** Swap two points */
+	private void swap(int a, int b)
+	{
+		double t = xy[2*a]; xy[2*a] = xy[2*b]; xy[2*b] = t;
+		t = xy[2*a+1]; xy[2*a+1] = xy[2*b+1]; xy[2*b+1] = t;
+		int u = index[a]; index[a] = index[b]; index[b] = u;
+	}
+
+	/** The nearest points found by a search, kept as a max-heap on distance
+	 * so the farthest is replaced first. Reuse one per thread. */
+	public static class Neighbors
+	{
+		int[] pos; /** Positions in the tree */
+		double[] dist2; /** Squared distance of each */
+		int count; /** Number found */
+		double limit; /** Points must be closer than this (squared) */
+
+		/**
+		* Constructor
+		* @param k the number of points to find
+		*/
+		public Neighbors(int k)
+		{
+			pos = new int[Math.max(k, 1)];
+			dist2 = new double[pos.length];
+		}
+
+		/** @return the number of points to find */
+		public int capacity() { return pos.length; }
+		/** @return the number of points found */
+		public int size() { return count; }
+		/**
+		* @param i which point found, in no particular order
+		* @return its position in the tree
+		*/
+		public int getPosition(int i) { return pos[i]; }
+		/**
+		* @param i which point found, in no particular order
+		* @return its squared distance
+		*/
+		public double getDistance2(int i) { return dist2[i]; }
+
+		void clear(double max_dist2)
+		{
+			count = 0;
+			limit = max_dist2;
+		}
+
+		/** Add a point closer than the limit */
+		void offer(int k, double d2)
+		{
+			if( count < pos.length )
+			{
+				// sift up:
+				int i = count++;
+				while( i > 0 && dist2[(i-1) >> 1] < d2 )
+				{
+					int parent = (i-1) >> 1;
+					pos[i] = pos[parent];
+					dist2[i] = dist2[parent];
+					i = parent;
+				}
+				pos[i] = k;
+				dist2[i] = d2;
+				if( count == pos.length )
+					limit = Math.min(limit, dist2[0]);
+				return;
+			}
+			// replace the farthest and sift down:
+			int i = 0;
+			while( true )
+			{
+				int c = 2*i + 1;
+				if( c >= count )
+					break;
+				if( c+1 < count && dist2[c+1] > dist2[c] )
+					c++;
+				if( dist2[c] <= d2 )
+					break;
+				pos[i] = pos[c];
+				dist2[i] = dist2[c];
+				i = c;
+			}
+			pos[i] = k;
+			dist2[i] = d2;
+			limit = dist2[0];
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package SciTK;
+
+/** Extract lineouts (1-D profiles) from image data. Horizontal and
+ * vertical lineouts read whole rows or step down a column, and can be
+ * averaged over a band of rows/columns (e.g. a selected rectangle).
+ * Lineouts at any other angle are sampled every pixel along the line
+ * with bilinear interpolation, and averaged over parallel lines.
+ *
+ * Each result is in the [2][n] layout used by the plots: [0] the
+ * position along the line and [1] the value. An output array of the
+ * right size can be passed in to be reused, so a lineout which follows
+ * the mouse does not allocate.
+ *
+ * @package SciTK
+ * @class Lineout
+ * @brief Horizontal, vertical and angled lineouts of images
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class Lineout
+{
+	public Lineout() {}
+
+	/**
+	* Horizontal lineout, averaged over a band of rows
+	* @param data the image
+	* @param row_start the first row to average (clipped to the image)
+	* @param row_end one past the last row to average (clipped to the image)
+	* @param col_start the first column of the lineout (clipped to the image)
+	* @param col_end one past the last column of the lineout (clipped to the image)
+	* @param out an array to reuse if it is [2][col_end-col_start], or null
+	* @return [0] the column and [1] the mean value over the rows
+	*/
+	public static double[][] horizontal(RawImage data, int row_start, int row_end, int col_start, int col_end, double[][] out)
+	{
+		row_start = Math.max(row_start, 0);
+		row_end = Math.min(row_end, data.getHeight());
+		col_start = Math.max(col_start, 0);
+		col_end = Math.min(col_end, data.getWidth());
+		int n = Math.max(col_end - col_start, 0);
+		out = allocate(out, n);
+
+		double[] x = out[0], y = out[1];
+		for(int j=0; j<n; j++)
+		{
+			x[j] = col_start + j;
+			y[j] = 0;
+		}
+		// sum whole rows, which are contiguous:
+		double[] buf = new double[data.getWidth()];
+		for(int i=row_start; i<row_end; i++)
+		{
+			double[] row = data.getRow(i, buf);
+			for(int j=0; j<n; j++)
+				y[j] += row[col_start+j];
+		}
+		double norm = 1.0 / Math.max(row_end - row_start, 1);
+		for(int j=0; j<n; j++)
+			y[j] *= norm;
+		return out;
+	}
+
+	/**
+	* Vertical lineout, averaged over a band of columns
+	* @param data the image
+	* @param col_start the first column to average (clipped to the image)
+	* @param col_end one past the last column to average (clipped to the image)
+	* @param row_start the first row of the lineout (clipped to the image)
+	* @param row_end one past the last row of the lineout (clipped to the image)
+	* @param out an array to reuse if it is [2][row_end-row_start], or null
+	* @return [0] the row and [1] the mean value over the columns
+	*/
+	public static double[][] vertical(RawImage data, int col_start, int col_end, int row_start, int row_end, double[][] out)
+	{
+		col_start = Math.max(col_start, 0);
+		col_end = Math.min(col_end, data.getWidth());
+		row_start = Math.max(row_start, 0);
+		row_end = Math.min(row_end, data.getHeight());
+		int n = Math.max(row_end - row_start, 0);
+		out = allocate(out, n);
+
+		double[] x = out[0], y = out[1];
+		double norm = 1.0 / Math.max(col_end - col_start, 1);
+		if( data instanceof ArrayRawImage )
+		{
+			// step down the columns of the array directly:
+			double[][] a = ((ArrayRawImage)data).getData();
+			for(int i=0; i<n; i++)
+			{
+				double[] row = a[row_start+i];
+				double sum = 0;
+				for(int j=col_start; j<col_end; j++)
+					sum += row[j];
+				x[i] = row_start + i;
+				y[i] = sum*norm;
+			}
+		}
+		else
+		{
+			for(int i=0; i<n; i++)
+			{
+				double sum = 0;
+				for(int j=col_start; j<col_end; j++)
+					sum += data.get(row_start+i, j);
+				x[i] = row_start + i;
+				y[i] = sum*norm;
+			}
+		}
+		return out;
+	}
+
+	/**
+	* Lineout along a line through a point, across the whole image.
+	* Angles of 0 and 90 degrees use the horizontal and vertical lineouts.
+	* @param data the image
+	* @param x0 the column of a point on the line
+	* @param y0 the row of a point on the line
+	* @param angle the angle of the line in degrees, counterclockwise from horizontal as displayed
+	* @param avg_width the number of parallel lines (1 pixel apart) to average, centered on the line
+	* @param out an array to reuse if it has the right size, or null
+	* @return [0] the distance along the line from (x0,y0) and [1] the mean value
+	*/
+	public static double[][] angled(RawImage data, double x0, double y0, double angle, int avg_width, double[][] out)
+	{
+		avg_width = Math.max(avg_width, 1);
+		int before = (avg_width-1)/2;
+		double a = ((angle % 180) + 180) % 180;
+		if( a == 0 )
+		{
+			int row = (int)Math.round(y0);
+			out = horizontal(data, row-before, row-before+avg_width, 0, data.getWidth(), out);
+			shift(out[0], -x0);
+			return out;
+		}
+		if( a == 90 )
+		{
+			int col = (int)Math.round(x0);
+			out = vertical(data, col-before, col-before+avg_width, 0, data.getHeight(), out);
+			// upwards on screen is positive:
+			for(int i=0; i<out[0].length; i++)
+				out[0][i] = y0 - out[0][i];
+			reverse(out);
+			return out;
+		}
+
+		// direction along the line (rows increase downwards on screen):
+		double rad = Math.toRadians(a);
+		double ux = Math.cos(rad), uy = -Math.sin(rad);
+		int w = data.getWidth(), h = data.getHeight();
+
+		// range of t for which (x0,y0) + t*u is inside the image:
+		double t_min = Double.NEGATIVE_INFINITY, t_max = Double.POSITIVE_INFINITY;
+		double[] lim = { (0-x0)/ux, (w-1-x0)/ux, (0-y0)/uy, (h-1-y0)/uy };
+		t_min = Math.max(t_min, Math.min(lim[0], lim[1]));
+		t_max = Math.min(t_max, Math.max(lim[0], lim[1]));
+		t_min = Math.max(t_min, Math.min(lim[2], lim[3]));
+		t_max = Math.min(t_max, Math.max(lim[2], lim[3]));
+		int k0 = (int)Math.ceil(t_min), k1 = (int)Math.floor(t_max);
+		int n = Math.max(k1 - k0 + 1, 0);
+		out = allocate(out, n);
+
+		for(int k=0; k<n; k++)
+		{
+			double t = k0 + k;
+			double sum = 0;
+			int count = 0;
+			for(int m=-before; m<avg_width-before; m++)
+			{
+				// parallel lines are offset along the normal (-uy, ux):
+				double px = x0 + t*ux - m*uy;
+				double py = y0 + t*uy + m*ux;
+				if( px >= 0 && py >= 0 && px <= w-1 && py <= h-1 )
+				{
+					sum += bilinear(data, px, py);
+					count++;
+				}
+			}
+			out[0][k] = t;
+			out[1][k] = (count > 0) ? sum/count : Double.NaN;
+		}
+		return out;
+	}
+
+	/**
+	* Bilinear interpolation of the data
+	* @param data the image
+	* @param x the column, between 0 and width-1
+	* @param y the row, between 0 and height-1
+	* @return the interpolated value
+	*/
+	public static double bilinear(RawImage data, double x, double y)
+	{
+		int j = Math.min((int)x, data.getWidth()-2);
+		int i = Math.min((int)y, data.getHeight()-2);
+		if( j < 0 || i < 0 ) // single row or column
+		{
+			j = Math.max(j, 0);
+			i = Math.max(i, 0);
+			return data.get(i, j);
+		}
+		double fx = x - j, fy = y - i;
+		double top = data.get(i, j)*(1-fx) + data.get(i, j+1)*fx;
+		double bottom = data.get(i+1, j)*(1-fx) + data.get(i+1, j+1)*fx;
+		return top*(1-fy) + bottom*fy;
+	}
+
+	/** Reuse out if it is [2][n], otherwise allocate */
+	private static double[][] allocate(double[][] out, int n)
+	{
+		if( out != null && out.length == 2 && out[0].length == n && out[1].length == n )
+			return out;
+		return new double[2][n];
+	}
+
+	/** Add a constant to every element */
+	private static void shift(double[] x, double dx)
+	{
+		for(int i=0; i<x.length; i++)
+			x[i] += dx;
+	}
+
+	/** Reverse the order of points, so positions increase */
+	private static void reverse(double[][] out)
+	{
+		for(int r=0; r<2; r++)
+		{
+			double[] v = out[r];
+			for(int i=0, k=v.length-1; i<k; i++, k--)
+			{
+				double tmp = v[i];
+				v[i] = v[k];
+				v[k] = tmp;
+			}
+		}
+	}
+}
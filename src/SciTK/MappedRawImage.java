@@ -0,0 +1,227 @@
+package SciTK;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** RawImage read directly from a raw binary file (e.g. a detector image)
+ * through memory mapping. The file holds a header of a given length,
+ * then width x height values of one data type in row-major order.
+ * Nothing is read until it is used, and the operating system pages the
+ * file in and out as needed, so files larger than the Java heap can be
+ * displayed. Files over 2 GB are mapped as several chunks of whole rows.
+ *
+ * @package SciTK
+ * @class MappedRawImage
+ * @brief Memory-mapped raw binary image data
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class MappedRawImage implements RawImage
+{
+	/** Types of values which can be read */
+	public enum DataType
+	{
+		UINT8(1), INT8(1), UINT16(2), INT16(2), UINT32(4), INT32(4), FLOAT32(4), FLOAT64(8);
+
+		private final int bytes; /** Size of one value */
+
+		DataType(int bytes)
+		{
+			this.bytes = bytes;
+		}
+
+		/**
+		* Get the size of one value
+		* @return the number of bytes per value
+		*/
+		public int getBytes()
+		{
+			return bytes;
+		}
+	}
+
+	/** Largest mapping made for one chunk of rows, in bytes */
+	public static int MAX_CHUNK_BYTES = 1 << 30;
+
+	private int width; /** Number of columns */
+	private int height; /** Number of rows */
+	private DataType type; /** Type of each value */
+	private int row_bytes; /** Bytes per row */
+	private int rows_per_chunk; /** Rows in each mapped chunk */
+	private MappedByteBuffer[] chunks; /** The mapped file */
+
+	/**
+	* Map a raw image file with no header, in native byte order
+	* @param file the file to read
+	* @param width the number of columns
+	* @param height the number of rows
+	* @param type the type of each value
+	* @throws IOException if the file cannot be opened or is too short
+	*/
+	public MappedRawImage(File file, int width, int height, DataType type) throws IOException
+	{
+		this(file, width, height, type, ByteOrder.nativeOrder(), 0);
+	}
+
+	/**
+	* Map a raw image file
+	* @param file the file to read
+	* @param width the number of columns
+	* @param height the number of rows
+	* @param type the type of each value
+	* @param order the byte order of the values (ByteOrder.BIG_ENDIAN or LITTLE_ENDIAN)
+	* @param header_bytes the number of bytes before the first value
+	* @throws IOException if the file cannot be opened or is too short
+	*/
+	public MappedRawImage(File file, int width, int height, DataType type, ByteOrder order, long header_bytes) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			map(raf.getChannel(), file.getName(), width, height, type, order, header_bytes);
+		}
+		finally
+		{
+			// the mappings stay valid after the channel is closed
+			raf.close();
+		}
+	}
+
+	/**
+	* Map an image from an open channel, e.g. one frame of a stack
+	* @param channel the file to read
+	* @param name the file's name, for error messages
+	* @param width the number of columns
+	* @param height the number of rows
+	* @param type the type of each value
+	* @param order the byte order of the values
+	* @param header_bytes the number of bytes before the first value
+	* @throws IOException if the file is too short or cannot be mapped
+	*/
+	MappedRawImage(FileChannel channel, String name, int width, int height, DataType type, ByteOrder order, long header_bytes) throws IOException
+	{
+		map(channel, name, width, height, type, order, header_bytes);
+	}
+
+	/** Set up the image and map its chunks */
+	private void map(FileChannel channel, String name, int width, int height, DataType type, ByteOrder order, long header_bytes) throws IOException
+	{
+		if( width <= 0 || height <= 0 )
+			throw new IllegalArgumentException("Image size must be positive: " + width + " x " + height);
+		if( (long)width*type.getBytes() > MAX_CHUNK_BYTES )
+			throw new IllegalArgumentException("Rows of " + width + " values are too long to map");
+		this.width = width;
+		this.height = height;
+		this.type = type;
+		row_bytes = width*type.getBytes();
+		rows_per_chunk = Math.min(height, MAX_CHUNK_BYTES / row_bytes);
+
+		long needed = header_bytes + (long)row_bytes*height;
+		if( channel.size() < needed )
+			throw new IOException("File " + name + " has " + channel.size()
+				+ " bytes, but " + needed + " are needed for a " + width + " x " + height + " " + type + " image");
+
+		// map whole rows in each chunk:
+		int num_chunks = (height + rows_per_chunk - 1) / rows_per_chunk;
+		chunks = new MappedByteBuffer[num_chunks];
+		for(int k=0; k<num_chunks; k++)
+		{
+			int rows = Math.min(rows_per_chunk, height - k*rows_per_chunk);
+			long start = header_bytes + (long)k*rows_per_chunk*row_bytes;
+			chunks[k] = channel.map(FileChannel.MapMode.READ_ONLY, start, (long)rows*row_bytes);
+			chunks[k].order(order);
+		}
+	}
+
+	/**
+	* Get the type of each value
+	* @return the data type
+	*/
+	public DataType getDataType()
+	{
+		return type;
+	}
+
+	public int getWidth()
+	{
+		return width;
+	}
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	public double get(int row, int col)
+	{
+		if( col < 0 || col >= width )
+			throw new IndexOutOfBoundsException("Column " + col + " outside image of width " + width);
+		MappedByteBuffer chunk = chunks[row / rows_per_chunk];
+		return read(chunk, (row % rows_per_chunk)*row_bytes + col*type.getBytes());
+	}
+
+	public double[] getRow(int row, double[] buf)
+	{
+		// absolute reads only, so concurrent readers do not interfere:
+		MappedByteBuffer chunk = chunks[row / rows_per_chunk];
+		int o = (row % rows_per_chunk)*row_bytes;
+		switch( type )
+		{
+			case UINT8:
+				for(int j=0; j<width; j++)
+					buf[j] = chunk.get(o+j) & 0xFF;
+				break;
+			case INT8:
+				for(int j=0; j<width; j++)
+					buf[j] = chunk.get(o+j);
+				break;
+			case UINT16:
+				for(int j=0; j<width; j++)
+					buf[j] = chunk.getShort(o+2*j) & 0xFFFF;
+				break;
+			case INT16:
+				for(int j=0; j<width; j++)
+					buf[j] = chunk.getShort(o+2*j);
+				break;
+			case UINT32:
+				for(int j=0; j<width; j++)
+					buf[j] = chunk.getInt(o+4*j) & 0xFFFFFFFFL;
+				break;
+			case INT32:
+				for(int j=0; j<width; j++)
+					buf[j] = chunk.getInt(o+4*j);
+				break;
+			case FLOAT32:
+				for(int j=0; j<width; j++)
+					buf[j] = chunk.getFloat(o+4*j);
+				break;
+			default: // FLOAT64
+				for(int j=0; j<width; j++)
+					buf[j] = chunk.getDouble(o+8*j);
+				break;
+		}
+		return buf;
+	}
+
+	/** Read one value at a byte offset within a chunk */
+	private double read(MappedByteBuffer chunk, int offset)
+	{
+		switch( type )
+		{
+			case UINT8: return chunk.get(offset) & 0xFF;
+			case INT8: return chunk.get(offset);
+			case UINT16: return chunk.getShort(offset) & 0xFFFF;
+			case INT16: return chunk.getShort(offset);
+			case UINT32: return chunk.getInt(offset) & 0xFFFFFFFFL;
+			case INT32: return chunk.getInt(offset);
+			case FLOAT32: return chunk.getFloat(offset);
+			default: return chunk.getDouble(offset);
+		}
+	}
+}
@@ -0,0 +1,341 @@
+package SciTK;
+
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/** Iso-contours of values on a grid by marching squares. Each square of
+ * four neighbouring cell centers is classified by which corners are above
+ * the level, and the level is crossed where linear interpolation along
+ * the square's edges reaches it. Saddle squares (opposite corners above)
+ * are resolved with the mean of the four corners.
+ *
+ * Bands of rows are traced in parallel, and the segments of each level are
+ * then joined end to end into polylines held in a single path, in data
+ * coordinates, so a contour is drawn with one call and can be transformed
+ * to any zoom. Squares with a
+ * NaN corner are skipped, leaving a gap in the contour.
+ *
+ * @package SciTK
+ * @class MarchingSquares
+ * @brief Parallel marching squares contouring of a grid
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class MarchingSquares
+{
+	/** Crossed edges for each corner case, in pairs; edge 0 is from corner 0 to 1,
+	 * 1 from corner 1 to 2, 2 from corner 3 to 2, 3 from corner 0 to 3. Corners are
+	 * 0 = (j, i), 1 = (j+1, i), 2 = (j+1, i+1), 3 = (j, i+1). Saddles (5, 10) list
+	 * the pairs for a center below the level, then for a center above it. */
+	private static final int[][] SEGMENTS = {
+		{},
+		{3,0},
+		{0,1},
+		{3,1},
+		{1,2},
+		{3,0, 1,2,  0,1, 2,3},
+		{0,2},
+		{3,2},
+		{2,3},
+		{0,2},
+		{0,1, 2,3,  3,0, 1,2},
+		{1,2},
+		{3,1},
+		{0,1},
+		{3,0},
+		{}
+	};
+
+	/** First and last corner of each edge */
+	private static final int[] EDGE_START = {0, 1, 3, 0};
+	private static final int[] EDGE_END = {1, 2, 2, 3};
+
+	/** Minimum number of rows in a band traced by one task */
+	public static int MIN_CHUNK = 16;
+
+	public MarchingSquares() {}
+
+	/**
+	* Trace contours of a grid
+	* @param z the values, z[i][j] is at (x[j], y[i])
+	* @param x the center of each column
+	* @param y the center of each row
+	* @param levels the contour levels
+	* @return a path of polylines for each level, in data coordinates
+	*/
+	public static Path2D.Float[] contour(double[][] z, double[] x, double[] y, double[] levels)
+	{
+		return contour(z, x, y, levels, ParallelUtil.getPool());
+	}
+
+	/**
+	* Trace contours of a grid
+	* @param z the values, z[i][j] is at (x[j], y[i])
+	* @param x the center of each column
+	* @param y the center of each row
+	* @param levels the contour levels
+	* @param pool the pool to trace bands of rows in
+	* @return a path of polylines for each level, in data coordinates
+	*/
+	public static Path2D.Float[] contour(double[][] z, double[] x, double[] y, double[] levels, ForkJoinPool pool)
+	{
+		Path2D.Float[] paths = new Path2D.Float[levels.length];
+		int squares = y.length - 1;
+		Segments[] segs = (squares > 0 && x.length > 1 && levels.length > 0)
+			? pool.invoke( new TraceTask(z, x, y, levels, 0, squares, ParallelUtil.chunkSize(squares, MIN_CHUNK)) )
+			: null;
+
+		// join each level's segments into polylines, one path per level:
+		if( segs == null )
+			segs = new Segments[levels.length];
+		if( levels.length > 0 )
+			pool.invoke( new JoinTask(segs, paths, 0, levels.length) );
+		return paths;
+	}
+
+	/**
+	* Join segments which share end points into polylines. Neighbouring
+	* squares compute a shared edge's crossing the same way, so the ends
+	* match exactly.
+	* @param s the segments, or null for none
+	* @return the polylines as one path
+	*/
+	private static Path2D.Float polylines(Segments s)
+	{
+		int n = (s != null) ? s.n/4 : 0;
+		Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, n+1);
+		if( n == 0 )
+			return path;
+		float[] xy = s.xy;
+
+		// hash the 2n end points (end e is point e of xy), chaining equal buckets:
+		int size = Integer.highestOneBit(4*n-1) << 1;
+		int[] head = new int[size];
+		int[] next = new int[2*n];
+		Arrays.fill(head, -1);
+		for(int e=0; e<2*n; e++)
+		{
+			int h = hash(xy[2*e], xy[2*e+1]) & (size-1);
+			next[e] = head[h];
+			head[h] = e;
+		}
+
+		boolean[] used = new boolean[n];
+		float[] back = new float[64];
+		for(int start=0; start<n; start++)
+		{
+			if( used[start] )
+				continue;
+			used[start] = true;
+
+			// walk back from the first end, collecting points in reverse:
+			int nb = 0;
+			int e = 2*start;
+			while( (e = partner(e, xy, head, next, used, size)) >= 0 )
+			{
+				used[e >> 1] = true;
+				e ^= 1; // continue from the other end of that segment
+				if( nb + 2 > back.length )
+					back = Arrays.copyOf(back, 2*back.length);
+				back[nb++] = xy[2*e];
+				back[nb++] = xy[2*e+1];
+			}
+			if( nb > 0 )
+			{
+				path.moveTo(back[nb-2], back[nb-1]);
+				for(int k=nb-4; k>=0; k-=2)
+					path.lineTo(back[k], back[k+1]);
+				path.lineTo(xy[4*start], xy[4*start+1]);
+			}
+			else
+				path.moveTo(xy[4*start], xy[4*start+1]);
+
+			// then forward from the second end:
+			e = 2*start+1;
+			path.lineTo(xy[2*e], xy[2*e+1]);
+			while( (e = partner(e, xy, head, next, used, size)) >= 0 )
+			{
+				used[e >> 1] = true;
+				e ^= 1;
+				path.lineTo(xy[2*e], xy[2*e+1]);
+			}
+		}
+		return path;
+	}
+
+	/** Find an end of an unused segment at the same point as end e, or -1 */
+	private static int partner(int e, float[] xy, int[] head, int[] next, boolean[] used, int size)
+	{
+		float px = xy[2*e], py = xy[2*e+1];
+		for(int f = head[hash(px, py) & (size-1)]; f >= 0; f = next[f])
+		{
+			if( !used[f >> 1] && xy[2*f] == px && xy[2*f+1] == py )
+				return f;
+		}
+		return -1;
+	}
+
+	/** Hash of a point */
+	private static int hash(float x, float y)
+	{
+		int h = Float.floatToIntBits(x)*31 + Float.floatToIntBits(y);
+		return h ^ (h >>> 16);
+	}
+
+	/** Joins the segments of a range of levels, each level by itself */
+	private static class JoinTask extends RecursiveAction
+	{
+		Segments[] segs;
+		Path2D.Float[] paths;
+		int start, end;
+
+		JoinTask(Segments[] segs, Path2D.Float[] paths, int start, int end)
+		{
+			this.segs = segs;
+			this.paths = paths;
+			this.start = start;
+			this.end = end;
+		}
+
+		protected void compute()
+		{
+			if( end - start > 1 )
+			{
+				int mid = (start + end) >>> 1;
+				invokeAll( new JoinTask(segs, paths, start, mid), new JoinTask(segs, paths, mid, end) );
+				return;
+			}
+			paths[start] = polylines(segs[start]);
+		}
+	}
+
+	/** Growable list of segments, as x0, y0, x1, y1 */
+	private static class Segments
+	{
+		float[] xy = new float[64];
+		int n;
+
+		void add(double x0, double y0, double x1, double y1)
+		{
+			if( n + 4 > xy.length )
+				grow(n + 4);
+			xy[n++] = (float)x0;
+			xy[n++] = (float)y0;
+			xy[n++] = (float)x1;
+			xy[n++] = (float)y1;
+		}
+
+		void addAll(Segments s)
+		{
+			if( n + s.n > xy.length )
+				grow(n + s.n);
+			System.arraycopy(s.xy, 0, xy, n, s.n);
+			n += s.n;
+		}
+
+		private void grow(int min)
+		{
+			float[] bigger = new float[Math.max(min, 2*xy.length)];
+			System.arraycopy(xy, 0, bigger, 0, n);
+			xy = bigger;
+		}
+	}
+
+	/** Traces a band of rows of squares, giving the segments of each level */
+	private static class TraceTask extends RecursiveTask<Segments[]>
+	{
+		double[][] z;
+		double[] x, y, levels;
+		int row_start, row_end, chunk;
+
+		TraceTask(double[][] z, double[] x, double[] y, double[] levels, int row_start, int row_end, int chunk)
+		{
+			this.z = z;
+			this.x = x;
+			this.y = y;
+			this.levels = levels;
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected Segments[] compute()
+		{
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				TraceTask right = new TraceTask(z, x, y, levels, mid, row_end, chunk);
+				right.fork();
+				Segments[] a = new TraceTask(z, x, y, levels, row_start, mid, chunk).compute();
+				Segments[] b = right.join();
+				// keep the lower band's segments first:
+				for(int l=0; l<a.length; l++)
+				{
+					if( a[l] == null )
+						a[l] = b[l];
+					else if( b[l] != null )
+						a[l].addAll(b[l]);
+				}
+				return a;
+			}
+
+			Segments[] out = new Segments[levels.length];
+			double[] c = new double[4], cx = new double[4], cy = new double[4];
+			int nx = x.length;
+			for(int i=row_start; i<row_end; i++)
+			{
+				double[] r0 = z[i], r1 = z[i+1];
+				for(int j=0; j<nx-1; j++)
+				{
+					c[0] = r0[j]; c[1] = r0[j+1]; c[2] = r1[j+1]; c[3] = r1[j];
+					double lo = Math.min(Math.min(c[0], c[1]), Math.min(c[2], c[3]));
+					double hi = Math.max(Math.max(c[0], c[1]), Math.max(c[2], c[3]));
+					if( lo != lo || hi != hi ) // NaN corner
+						continue;
+					cx[0] = x[j]; cx[1] = x[j+1]; cx[2] = x[j+1]; cx[3] = x[j];
+					cy[0] = y[i]; cy[1] = y[i]; cy[2] = y[i+1]; cy[3] = y[i+1];
+
+					for(int l=0; l<levels.length; l++)
+					{
+						double v = levels[l];
+						// only squares which span the level are crossed; corners equal
+						// to it count as above, so a crossing may sit on a corner:
+						if( !(v > lo && v <= hi) )
+							continue;
+						int index = (c[0] >= v ? 1 : 0) | (c[1] >= v ? 2 : 0) | (c[2] >= v ? 4 : 0) | (c[3] >= v ? 8 : 0);
+						int[] edges = SEGMENTS[index];
+						int first = 0, count = edges.length;
+						if( count == 8 ) // saddle
+						{
+							count = 4;
+							if( 0.25*(c[0]+c[1]+c[2]+c[3]) >= v )
+								first = 4;
+						}
+						if( out[l] == null )
+							out[l] = new Segments();
+						for(int k=first; k<first+count; k+=2)
+						{
+							int e0 = edges[k], e1 = edges[k+1];
+							out[l].add( cross(e0, v, c, cx), cross(e0, v, c, cy),
+								cross(e1, v, c, cx), cross(e1, v, c, cy) );
+						}
+					}
+				}
+			}
+			return out;
+		}
+
+		/** Position along an edge where it crosses a level, by linear interpolation */
+		private static double cross(int edge, double v, double[] c, double[] p)
+		{
+			int a = EDGE_START[edge], b = EDGE_END[edge];
+			double t = (v - c[a]) / (c[b] - c[a]);
+			return p[a] + t*(p[b] - p[a]);
+		}
+	}
+}
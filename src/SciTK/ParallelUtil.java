@@ -0,0 +1,54 @@
+package SciTK;
+
+import java.util.concurrent.ForkJoinPool;
+
+/** Shared fork/join pool for the toolkit's data-parallel routines,
+ * so that image and plot operations do not each spin up their own threads.
+ *
+ * @package SciTK
+ * @class ParallelUtil
+ * @brief Shared worker pool for parallel computations
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class ParallelUtil
+{
+	private static ForkJoinPool pool; /** The shared pool, created on first use */
+
+	public ParallelUtil() {}
+
+	/**
+	* Get the shared fork/join pool (one worker per available processor)
+	* @return the pool
+	*/
+	public static synchronized ForkJoinPool getPool()
+	{
+		if( pool == null )
+			pool = new ForkJoinPool();
+		return pool;
+	}
+
+	/**
+	* Get the number of workers in the shared pool
+	* @return the pool's parallelism
+	*/
+	public static int getParallelism()
+	{
+		return getPool().getParallelism();
+	}
+
+	/**
+	* Split a range of n items into chunks suitable for the shared pool
+	* @param n the total number of items
+	* @param min_chunk the smallest chunk worth handing to a worker
+	* @return the number of items per chunk
+	*/
+	public static int chunkSize(int n, int min_chunk)
+	{
+		// aim for a few chunks per worker so that the load balances:
+		int chunk = n / (4*getParallelism());
+		return Math.max(chunk, Math.max(min_chunk,1));
+	}
+}
@@ -24,23 +24,13 @@ import java.awt.datatransfer.StringSelection;
 
 import javax.swing.JFileChooser;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
 
-// For SVG files:
+// For vector graphics files:
 import java.awt.Rectangle;
 import java.io.Writer;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.FileOutputStream;
-import org.apache.batik.svggen.SVGGraphics2D;
-import org.w3c.dom.Document;
-import org.w3c.dom.DOMImplementation;
-import org.apache.batik.dom.GenericDOMImplementation;
-
-// for PS/EPS files
-import org.apache.xmlgraphics.java2d.ps.AbstractPSDocumentGraphics2D;
-import org.apache.xmlgraphics.java2d.ps.PSDocumentGraphics2D;
-import org.apache.xmlgraphics.java2d.ps.EPSDocumentGraphics2D;
 
 // for fiddling with axes
 import org.jfree.chart.axis.LogAxis;
@@ -149,16 +139,19 @@ public abstract class Plot extends SciTK_Frame implements ClipboardOwner
                 save_file = new File(save_file.getAbsolutePath()+".csv");
             }
 
-            // create a string to save
-            String s = toString();
-
             // IO inside a try/catch
             try
             {
-                // Create a File Writer
-                FileWriter fw = new FileWriter(save_file);
-                fw.write(s);
-                fw.close();
+                // stream the data straight to the file's channel:
+                Writer fw = Channels.newWriter(new FileOutputStream(save_file).getChannel(), "UTF-8");
+                try
+                {
+                    writeData(fw);
+                }
+                finally
+                {
+                    fw.close();
+                }
             }
             // If there was an error, launch an error dialog box:
             catch(IOException e)
@@ -270,11 +263,33 @@ public abstract class Plot extends SciTK_Frame implements ClipboardOwner
         chart_panel.doCopy();
     }
 
+    /** 
+    * Get a string representation of the plotted data. This is intended
+    * for small data sets, use writeData for large ones.
+    * @return the data in CSV format, contained in a String.
+    */
+    public String toString()
+    {
+        StringWriter sw = new StringWriter();
+        try
+        {
+            writeData(sw);
+        }
+        catch(IOException e) // StringWriter does not throw
+        {
+            return "";
+        }
+        return sw.toString();
+    }
+
     // ---------------------------------------
     //      Abstract methods
     // ---------------------------------------
-    /** Create a string representation of the chart */
-    public abstract String toString();
+    /** Write the plotted data in CSV format
+     * @param out the Writer to send the data to
+     * @throws IOException if writing fails
+     */
+    public abstract void writeData(Writer out) throws IOException;
     /** Update the displayed data */
     public abstract void updateData(float[][] new_data, String name);
     /** Update the displayed data */
@@ -601,11 +616,6 @@ public abstract class Plot extends SciTK_Frame implements ClipboardOwner
         // Set menubar as this JFrame's menu
         setJMenuBar(menubar);
 
-        // set default plot colors:
-        chart.setBackgroundPaint( new Color(255,255,255,0) );
-        chart.getPlot().setBackgroundPaint( new Color(255,255,255,255) );
-        setBackgroundAlpha(0.0f);
-
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         pack();
         setTitle(window_title);
@@ -613,6 +623,33 @@ public abstract class Plot extends SciTK_Frame implements ClipboardOwner
         setVisible(true);
     }   
 
+    /**
+    * Apply the default SciTK look to a chart (colors, gridlines). This is
+    * used by each subclass's createChart, so charts created without a
+    * window look the same as those displayed in one.
+    * @param chart the chart to style
+    */
+    protected static void applyDefaultStyle(JFreeChart chart)
+    {
+        // for some reason default is white, change it to black:
+        chart.getXYPlot().setDomainGridlinePaint(Color.BLACK);
+        chart.getXYPlot().setRangeGridlinePaint(Color.BLACK);
+
+        // set default plot colors:
+        chart.setBackgroundPaint( new Color(255,255,255,0) );
+        chart.getPlot().setBackgroundPaint( new Color(255,255,255,255) );
+        chart.getPlot().setBackgroundImageAlpha(0.0f);
+    }
+
+    /**
+    * Get the chart displayed in this window
+    * @return the JFreeChart for this plot
+    */
+    public JFreeChart getChart()
+    {
+        return chart;
+    }
+
     // ---------------------------------------------------------
     //                 Plot option functionality
     // ---------------------------------------------------------
@@ -794,7 +831,7 @@ public abstract class Plot extends SciTK_Frame implements ClipboardOwner
     //                 Chart export util
     // ---------------------------------------------------------
     /**
-     * Exports a JFreeChart to a SVG file using Apache Batik library.
+     * Exports a JFreeChart to a SVG file, streaming elements as the chart is drawn.
      * 
      * @param chart JFreeChart to export
      * @param bounds the dimensions of the viewport
@@ -803,27 +840,7 @@ public abstract class Plot extends SciTK_Frame implements ClipboardOwner
      */
     protected void exportChartAsSVG(JFreeChart chart, Rectangle bounds, File svgFile) throws IOException 
     {
-        // see http://dolf.trieschnigg.nl/jfreechart/
-
-        // Get a DOMImplementation and create an XML document
-        DOMImplementation domImpl =
-            GenericDOMImplementation.getDOMImplementation();
-        Document document = domImpl.createDocument(null, "svg", null);
-
-        // Create an instance of the SVG Generator
-        SVGGraphics2D svgGenerator = new SVGGraphics2D(document);
-
-        // draw the chart in the SVG generator
-        chart.draw(svgGenerator, bounds);
-
-        // Write svg file
-        OutputStream outputStream = new FileOutputStream(svgFile);
-        Writer out = new OutputStreamWriter(outputStream, "UTF-8");
-        svgGenerator.stream(out, true /* use css */);    
-
-        // write and close file:                   
-        outputStream.flush();
-        outputStream.close();
+        ChartExport.writeSVG(chart, bounds, svgFile);
     }
 
     /**
@@ -837,30 +854,7 @@ public abstract class Plot extends SciTK_Frame implements ClipboardOwner
      */
     protected void exportChartAsPS(JFreeChart chart, Rectangle bounds, File psFile, String mode) throws IOException
     {
-        // see http://xmlgraphics.apache.org/commons/postscript.html#creating-eps
-
-        // set up file:
-        OutputStream outputStream = new FileOutputStream(psFile);
-
-        AbstractPSDocumentGraphics2D g2d;
-        if( mode == "ps" )
-            g2d = new PSDocumentGraphics2D(false);
-        else
-            g2d = new EPSDocumentGraphics2D(false);
-
-        g2d.setGraphicContext(new org.apache.xmlgraphics.java2d.GraphicContext());
-
-        //Set up the document size
-        g2d.setupDocument(outputStream, (int)bounds.getWidth(), (int)bounds.getHeight());
-        //out is the OutputStream to write the EPS to
-
-        // draw the chart to g2d:
-        chart.draw(g2d,bounds);
-
-        // write and close file:    
-        g2d.finish(); //Wrap up and finalize the EPS file
-        outputStream.flush();
-        outputStream.close();
+        ChartExport.writePS(chart, bounds, psFile, mode);
     }
 
     /** Implementation of this is required for clipboard usage */
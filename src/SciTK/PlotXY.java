@@ -1,10 +1,15 @@
 package SciTK;
 
 import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.data.xy.DefaultXYDataset;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.data.xy.XYDataset;
 
-import java.awt.Color;
+
+import java.io.IOException;
+import java.io.Writer;
 
 /** Implement a class which uses JFreeChart
  * to make a generic XY scatter plot.
@@ -19,7 +24,8 @@ import java.awt.Color;
  */
 public class PlotXY extends Plot
 {
-	private DefaultXYDataset data; /** JFreeChart dataset for this plot */
+	private FloatXYDataset data; /** JFreeChart dataset for this plot */
+	private RingBufferXYDataset live_data; /** Dataset for live (appended) series, if any */
 
 	// ---------------------------------------
 	//		Constructors minimal things
@@ -167,8 +173,12 @@ public class PlotXY extends Plot
 	*/
 	public PlotXY(float[][] data_in, String name, String x_label, String y_label, String window_title)
 	{
-		// call other constructor:
-		this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, window_title);
+		// float data is used directly, without conversion:
+		data = new FloatXYDataset();
+		data.addSeries(name,data_in);
+
+		// common routine:
+		init(x_label, y_label, window_title);
 	}
 
 	/** 
@@ -182,7 +192,7 @@ public class PlotXY extends Plot
 	*/
 	public PlotXY(double[][] data_in, String name, String x_label, String y_label, String window_title)
 	{
-		data = new DefaultXYDataset();
+		data = new FloatXYDataset();
 		data.addSeries(name,data_in);
 
 		// common routine:
@@ -200,8 +210,13 @@ public class PlotXY extends Plot
 	*/
 	public PlotXY(float[][][] data_in, String name[], String x_label, String y_label, String window_title)
 	{
-		// call other constructor:
-		this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, window_title);
+		// float data is used directly, without conversion:
+		data = new FloatXYDataset();
+		for(int i=0; i<data_in.length; i++)
+			data.addSeries(name[i], data_in[i]);
+
+		// common routine:
+		init(x_label, y_label, window_title);
 	}
 
 	/** 
@@ -215,7 +230,7 @@ public class PlotXY extends Plot
 	*/
 	public PlotXY(double[][][] data_in, String name[], String x_label, String y_label, String window_title)
 	{
-		data = new DefaultXYDataset();
+		data = new FloatXYDataset();
 		// iterate over input data sets:
 		for(int i=0; i<data_in.length; i++)
 		{
@@ -237,8 +252,8 @@ public class PlotXY extends Plot
 	*/
 	public void updateData(float[][] new_data, String name)
 	{
-		// convert data to double, and call next function:
-		updateData(ArrayUtil.convertFloatDouble(new_data), name);
+		// add series, float data is used directly:
+		data.addSeries(name,new_data);
 	}
 
 	/**
@@ -259,8 +274,12 @@ public class PlotXY extends Plot
 	*/
 	public void updateData(float[][][] new_data, String[] name)
 	{
-		// convert data to double, and call next function:
-		updateData(ArrayUtil.convertFloatDouble(new_data), name);
+		// loop over all data sets given:
+		for(int i=0; i < new_data.length; i++)
+		{
+			// add series, float data is used directly:
+			data.addSeries(name[i],new_data[i]);
+		}
 	}
 
 	/**
@@ -278,44 +297,141 @@ public class PlotXY extends Plot
 		}
 	}
 
+	// ---------------------------------------
+	//		Live data
+	// ---------------------------------------
+	/**
+	* Add a live series, to which points can be appended as they are acquired.
+	* Once the series holds capacity points, the oldest are dropped.
+	* @param name the data set's name
+	* @param capacity maximum number of points displayed for this series
+	* @return the index of the series, for use with appendData
+	*/
+	public int addLiveSeries(String name, int capacity)
+	{
+		// live series are kept in a second dataset on the same plot:
+		if( live_data == null )
+		{
+			live_data = new RingBufferXYDataset();
+			XYPlot p = chart.getXYPlot();
+			p.setDataset(1, live_data);
+			p.setRenderer(1, new XYLineAndShapeRenderer(false, true));
+		}
+		return live_data.addSeries(name, capacity);
+	}
+
+	/**
+	* Append a point to a live series (see addLiveSeries)
+	* @param series the index of the series
+	* @param x the x value
+	* @param y the y value
+	* @throws IllegalStateException if there are no live series
+	* @throws IllegalArgumentException if there is no such series
+	*/
+	public void appendData(int series, double x, double y)
+	{
+		live_data.append(liveSeries(series), x, y);
+	}
+
+	/**
+	* Append a block of points to a live series (see addLiveSeries)
+	* @param series the index of the series
+	* @param x the x values
+	* @param y the y values, same length as x
+	* @throws IllegalStateException if there are no live series
+	* @throws IllegalArgumentException if there is no such series
+	*/
+	public void appendData(int series, double[] x, double[] y)
+	{
+		live_data.append(liveSeries(series), x, y);
+	}
+
+	/**
+	* Append a point to a live series (see addLiveSeries)
+	* @param name the data set's name
+	* @param x the x value
+	* @param y the y value
+	* @throws IllegalStateException if there are no live series
+	* @throws IllegalArgumentException if there is no series with this name
+	*/
+	public void appendData(String name, double x, double y)
+	{
+		live_data.append(liveSeries(name), x, y);
+	}
+
+	/**
+	* Append a block of points to a live series (see addLiveSeries)
+	* @param name the data set's name
+	* @param x the x values
+	* @param y the y values, same length as x
+	* @throws IllegalStateException if there are no live series
+	* @throws IllegalArgumentException if there is no series with this name
+	*/
+	public void appendData(String name, double[] x, double[] y)
+	{
+		live_data.append(liveSeries(name), x, y);
+	}
+
+	/** Check that a live series exists, returning its index */
+	private int liveSeries(int series)
+	{
+		if( live_data == null )
+			throw new IllegalStateException("No live series; call addLiveSeries first");
+		if( series < 0 || series >= live_data.getSeriesCount() )
+			throw new IllegalArgumentException("No live series with index " + series);
+		return series;
+	}
+
+	/** Find the index of a live series by name */
+	private int liveSeries(String name)
+	{
+		if( live_data == null )
+			throw new IllegalStateException("No live series; call addLiveSeries first");
+		int series = live_data.indexOf(name);
+		if( series < 0 )
+			throw new IllegalArgumentException("No live series named " + name);
+		return series;
+	}
+
 	/**
 	* Initialize the chart itself
 	*/
 	private void init(String x_label, String y_label, String window_title)
 	{
-        chart = ChartFactory.createScatterPlot("",
-                x_label, y_label, data, PlotOrientation.VERTICAL, true, true,
-                false);
-
-        // for some reason default is white, change it to black:
-        setGridlineColor(Color.BLACK);
+        chart = createChart(data, x_label, y_label);
 
         super.window_title = window_title;
 		super.initUI();
 	}
 
-    /** 
-    * Get a string representation of the plotted data 
-	* @return the data in CSV format, contained in a String.
+    /**
+    * Create the chart for a scatter plot without any window, e.g. for
+    * offscreen rendering with ChartExport
+    * @param data the dataset to plot
+    * @param x_label the label for the x axis
+    * @param y_label the label for the y axis
+    * @return the chart, styled like the one shown by this class
     */
-    public String toString()
-    {	
-    	String s = "";
-    	// iterate over all data series:
-    	for(int i=0; i<data.getSeriesCount(); i++)
-    	{
-    		// iterate over items in the series:
-    		for(int j=0; j<data.getItemCount(i); j++)
-    		{
-    			// add x,y then new line:
-    			s = s.concat( Double.toString(data.getXValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_CSV_DELIM);
-    			s = s.concat( Double.toString(data.getYValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_NEWLINE);
-    		}
-	    	// add another line break after series is done:
-	    	s = s.concat(SciTK_Text.TOOLKIT_NEWLINE);
-    	}
-    	return s;
+    public static JFreeChart createChart(XYDataset data, String x_label, String y_label)
+    {
+        JFreeChart chart = ChartFactory.createScatterPlot("",
+                x_label, y_label, data, PlotOrientation.VERTICAL, true, true,
+                false);
+
+        applyDefaultStyle(chart);
+        return chart;
+    }
+
+    /** Write the plotted data in CSV format
+     * @param out the Writer to send the data to
+     * @throws IOException if writing fails
+     */
+    public void writeData(Writer out) throws IOException
+    {
+        CSVWriter csv = new CSVWriter(out);
+        csv.writeXY(data);
+        if( live_data != null )
+            csv.writeXY(live_data);
+        csv.flush();
     }
 }
\ No newline at end of file
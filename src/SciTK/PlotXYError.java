@@ -1,12 +1,15 @@
 package SciTK;
 
 import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.data.xy.DefaultIntervalXYDataset;
 import org.jfree.chart.renderer.xy.XYErrorRenderer;
 import org.jfree.chart.plot.XYPlot;
+import org.jfree.data.xy.IntervalXYDataset;
 
-import java.awt.Color;
+
+import java.io.IOException;
+import java.io.Writer;
 
 /** Implement a class which uses JFreeChart
  * to make a generic XY scatter plot with error bars.
@@ -21,7 +24,7 @@ import java.awt.Color;
  */
 public class PlotXYError extends Plot
 {
-	private DefaultIntervalXYDataset data; /** JFreeChart dataset for this plot */
+	private FloatIntervalXYDataset data; /** JFreeChart dataset for this plot */
 
     // ---------------------------------------
     //   Constructors taking minimal things
@@ -147,8 +150,12 @@ public class PlotXYError extends Plot
     */
     public PlotXYError(float[][] data_in, String name, String x_label, String y_label, String window_title)
     {
-        // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, window_title);
+        // float data is used directly, without conversion:
+        data = new FloatIntervalXYDataset();
+        data.addSeries(name,data_in);
+
+        // common routine:
+        init(x_label, y_label, window_title);
     }
 
 	/** Constructor for a single set of data 
@@ -160,7 +167,7 @@ public class PlotXYError extends Plot
 	*/
 	public PlotXYError(double[][] data_in, String name, String x_label, String y_label, String window_title)
 	{
-		data = new DefaultIntervalXYDataset();
+		data = new FloatIntervalXYDataset();
 		data.addSeries(name,data_in);
 
 		init(x_label, y_label, window_title);
@@ -175,8 +182,13 @@ public class PlotXYError extends Plot
     */
     public PlotXYError(float[][][] data_in, String name[], String x_label, String y_label, String window_title)
     {
-        // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, window_title);
+        // float data is used directly, without conversion:
+        data = new FloatIntervalXYDataset();
+        for(int i=0; i<data_in.length; i++)
+            data.addSeries(name[i], data_in[i]);
+
+        // common routine:
+        init(x_label, y_label, window_title);
     }
 
 	/** Constructor for multiple sets of data 
@@ -189,7 +201,7 @@ public class PlotXYError extends Plot
 	public PlotXYError(double[][][] data_in, String name[], String x_label, String y_label, String window_title)
 	{
 		// create dataset:
-		data = new DefaultIntervalXYDataset();
+		data = new FloatIntervalXYDataset();
 		for(int i=0; i < data_in.length; i++)
 			data.addSeries(name[i],data_in[i]);
 
@@ -207,8 +219,8 @@ public class PlotXYError extends Plot
     */
     public void updateData(float[][] new_data, String name)
     {
-        // convert data to double, and call next function:
-        updateData(ArrayUtil.convertFloatDouble(new_data), name);
+        // add series, float data is used directly:
+        data.addSeries(name,new_data);
     }
 
     /**
@@ -229,8 +241,12 @@ public class PlotXYError extends Plot
     */
     public void updateData(float[][][] new_data, String[] name)
     {
-        // convert data to double, and call next function:
-        updateData(ArrayUtil.convertFloatDouble(new_data), name);
+        // loop over all data sets given:
+        for(int i=0; i < new_data.length; i++)
+        {
+            // add series, float data is used directly:
+            data.addSeries(name[i],new_data[i]);
+        }
     }
 
     /**
@@ -251,50 +267,42 @@ public class PlotXYError extends Plot
 	/** More (common) initialization routines */
 	private void init(String x_label, String y_label, String window_title)
 	{	
-        chart = ChartFactory.createScatterPlot("",
+        chart = createChart(data, x_label, y_label);
+
+        super.window_title = window_title;
+		super.initUI();
+	}
+
+    /**
+    * Create the chart for a plot with error bars without any window, e.g. for
+    * offscreen rendering with ChartExport
+    * @param data the dataset to plot
+    * @param x_label the label for the x axis
+    * @param y_label the label for the y axis
+    * @return the chart, styled like the one shown by this class
+    */
+    public static JFreeChart createChart(IntervalXYDataset data, String x_label, String y_label)
+    {
+        JFreeChart chart = ChartFactory.createScatterPlot("",
                 x_label, y_label, data, PlotOrientation.VERTICAL, false, true,
                 false);
 
         XYErrorRenderer renderer = new XYErrorRenderer();
         XYPlot plot = chart.getXYPlot(); // the plot itself
         plot.setRenderer(renderer);
-        
-        // for some reason default is white, change it to black:
-        setGridlineColor(Color.BLACK);
 
-        super.window_title = window_title;
-		super.initUI();
-	}
+        applyDefaultStyle(chart);
+        return chart;
+    }
 
-    /** Get a string representation of the plotted data 
-	 * @return the data plotted in CSV format.
-    */
-    public String toString()
-    {	
-    	String s = "";
-    	// iterate over all data series:
-    	for(int i=0; i<data.getSeriesCount(); i++)
-    	{
-    		// iterate over items in the series:
-    		for(int j=0; j<data.getItemCount(i); j++)
-    		{
-    			// add x,y then new line:
-    			s = s.concat( Double.toString(data.getXValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_CSV_DELIM);
-    			s = s.concat( Double.toString(data.getStartXValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_CSV_DELIM);
-    			s = s.concat( Double.toString(data.getEndXValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_CSV_DELIM);
-    			s = s.concat( Double.toString(data.getYValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_CSV_DELIM);
-    			s = s.concat( Double.toString(data.getStartYValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_CSV_DELIM);
-    			s = s.concat( Double.toString(data.getEndYValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_NEWLINE);
-    		}
-	    	// add another line break after series is done:
-	    	s = s.concat(SciTK_Text.TOOLKIT_NEWLINE);
-    	}
-    	return s;
+    /** Write the plotted data in CSV format
+     * @param out the Writer to send the data to
+     * @throws IOException if writing fails
+     */
+    public void writeData(Writer out) throws IOException
+    {
+        CSVWriter csv = new CSVWriter(out);
+        csv.writeIntervalXY(data);
+        csv.flush();
     }
 }
\ No newline at end of file
@@ -1,10 +1,25 @@
 package SciTK;
 
 import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.data.xy.DefaultXYDataset;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.chart.event.ChartProgressEvent;
+import org.jfree.chart.event.ChartProgressListener;
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.data.Range;
+import org.jfree.data.xy.XYDataset;
 
-import java.awt.Color;
+
+// for adding to menu bar:
+import javax.swing.JCheckBoxMenuItem;
+import javax.swing.AbstractButton;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import java.io.IOException;
+import java.io.Writer;
 
 /** Implement a class which uses JFreeChart
  * to make a generic XY line plot. The data points
@@ -20,7 +35,9 @@ import java.awt.Color;
  */
 public class PlotXYLine extends Plot
 {
-	private DefaultXYDataset data; /** JFreeChart dataset for this plot */
+	private FloatXYDataset data; /** JFreeChart dataset for this plot */
+	private RingBufferXYDataset live_data; /** Dataset for live (appended) series, if any */
+	private DecimatedXYDataset lod_data; /** Decimated view of data, used in level-of-detail mode */
 
     // ---------------------------------------
     //   Constructors taking minimal things
@@ -31,7 +48,7 @@ public class PlotXYLine extends Plot
 	public PlotXYLine(float[][] data_in)
 	{
 		// call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , DEFAULT_NAME, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
+        this(data_in, DEFAULT_NAME, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
 	}
 
 	/** Constructor for a single set of data 
@@ -50,7 +67,7 @@ public class PlotXYLine extends Plot
 	public PlotXYLine(float[][] data_in, String name)
 	{
 		// call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
+        this(data_in, name, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
 	}
 
 	/** Constructor for a single set of data 
@@ -70,7 +87,7 @@ public class PlotXYLine extends Plot
 	public PlotXYLine(float[][][] data_in, String name[])
 	{
 		// call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
+        this(data_in, name, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
     }
 
 	/** Constructor for multiple sets of data
@@ -95,7 +112,7 @@ public class PlotXYLine extends Plot
 	public PlotXYLine(float[][] data_in, String name, String x_label, String y_label)
 	{
 		// call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, DEFAULT_TITLE);
+        this(data_in, name, x_label, y_label, DEFAULT_TITLE);
 	}
 
 	/** Constructor for a single set of data 
@@ -119,7 +136,7 @@ public class PlotXYLine extends Plot
 	public PlotXYLine(float[][][] data_in, String name[], String x_label, String y_label)
 	{
 		// call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, DEFAULT_TITLE);
+        this(data_in, name, x_label, y_label, DEFAULT_TITLE);
     }
 
 	/** Constructor for multiple sets of data
@@ -146,8 +163,12 @@ public class PlotXYLine extends Plot
 	*/
 	public PlotXYLine(float[][] data_in, String name, String x_label, String y_label, String window_title)
 	{
-		// call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, window_title);
+		// float data is used directly, without conversion:
+		data = new FloatXYDataset();
+		data.addSeries(name,data_in);
+
+		// common routine:
+		init(x_label, y_label, window_title);
 	}
 
 	/** Constructor for a single set of data 
@@ -160,7 +181,7 @@ public class PlotXYLine extends Plot
 	public PlotXYLine(double[][] data_in, String name, String x_label, String y_label, String window_title)
 	{
 		// set up the data set:
-		data = new DefaultXYDataset();
+		data = new FloatXYDataset();
 		data.addSeries(name,data_in);
         
         init(x_label, y_label, window_title);
@@ -175,9 +196,14 @@ public class PlotXYLine extends Plot
 	*/
 	public PlotXYLine(float[][][] data_in, String name[], String x_label, String y_label, String window_title)
 	{
-		// call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, window_title);
-    }
+		// float data is used directly, without conversion:
+		data = new FloatXYDataset();
+		for(int i=0; i<data_in.length; i++)
+			data.addSeries(name[i], data_in[i]);
+
+		// common routine:
+		init(x_label, y_label, window_title);
+	}
 
 	/** Constructor for multiple sets of data
 	 * @param data_in the data to plot. m x n x 2 size, eg data_in[0][i] = [x_i,y_i]; m data sets of n points.
@@ -189,7 +215,7 @@ public class PlotXYLine extends Plot
 	public PlotXYLine(double[][][] data_in, String name[], String x_label, String y_label, String window_title)
 	{
 		// set up the data set:
-		data = new DefaultXYDataset();
+		data = new FloatXYDataset();
 		// iterate over input data sets:
 		for(int i=0; i<data_in.length; i++)
 		{
@@ -210,8 +236,8 @@ public class PlotXYLine extends Plot
 	*/
 	public void updateData(float[][] new_data, String name)
 	{
-		// convert data to double, and call next function:
-		updateData(ArrayUtil.convertFloatDouble(new_data), name);
+		// add series, float data is used directly:
+		data.addSeries(name,new_data);
 	}
 
 	/**
@@ -232,8 +258,12 @@ public class PlotXYLine extends Plot
 	*/
 	public void updateData(float[][][] new_data, String[] name)
 	{
-		// convert data to double, and call next function:
-		updateData(ArrayUtil.convertFloatDouble(new_data), name);
+		// loop over all data sets given:
+		for(int i=0; i < new_data.length; i++)
+		{
+			// add series, float data is used directly:
+			data.addSeries(name[i],new_data[i]);
+		}
 	}
 
 	/**
@@ -251,43 +281,212 @@ public class PlotXYLine extends Plot
 		}
 	}
 
+	// ---------------------------------------
+	//		Live data
+	// ---------------------------------------
+	/**
+	* Add a live series, to which points can be appended as they are acquired.
+	* Once the series holds capacity points, the oldest are dropped.
+	* @param name the data set's name
+	* @param capacity maximum number of points displayed for this series
+	* @return the index of the series, for use with appendData
+	*/
+	public int addLiveSeries(String name, int capacity)
+	{
+		// live series are kept in a second dataset on the same plot:
+		if( live_data == null )
+		{
+			live_data = new RingBufferXYDataset();
+			XYPlot p = chart.getXYPlot();
+			p.setDataset(1, live_data);
+			p.setRenderer(1, new XYLineAndShapeRenderer(true, false));
+		}
+		return live_data.addSeries(name, capacity);
+	}
+
+	/**
+	* Append a point to a live series (see addLiveSeries)
+	* @param series the index of the series
+	* @param x the x value
+	* @param y the y value
+	* @throws IllegalStateException if there are no live series
+	* @throws IllegalArgumentException if there is no such series
+	*/
+	public void appendData(int series, double x, double y)
+	{
+		live_data.append(liveSeries(series), x, y);
+	}
+
+	/**
+	* Append a block of points to a live series (see addLiveSeries)
+	* @param series the index of the series
+	* @param x the x values
+	* @param y the y values, same length as x
+	* @throws IllegalStateException if there are no live series
+	* @throws IllegalArgumentException if there is no such series
+	*/
+	public void appendData(int series, double[] x, double[] y)
+	{
+		live_data.append(liveSeries(series), x, y);
+	}
+
+	/**
+	* Append a point to a live series (see addLiveSeries)
+	* @param name the data set's name
+	* @param x the x value
+	* @param y the y value
+	* @throws IllegalStateException if there are no live series
+	* @throws IllegalArgumentException if there is no series with this name
+	*/
+	public void appendData(String name, double x, double y)
+	{
+		live_data.append(liveSeries(name), x, y);
+	}
+
+	/**
+	* Append a block of points to a live series (see addLiveSeries)
+	* @param name the data set's name
+	* @param x the x values
+	* @param y the y values, same length as x
+	* @throws IllegalStateException if there are no live series
+	* @throws IllegalArgumentException if there is no series with this name
+	*/
+	public void appendData(String name, double[] x, double[] y)
+	{
+		live_data.append(liveSeries(name), x, y);
+	}
+
+	/** Check that a live series exists, returning its index */
+	private int liveSeries(int series)
+	{
+		if( live_data == null )
+			throw new IllegalStateException("No live series; call addLiveSeries first");
+		if( series < 0 || series >= live_data.getSeriesCount() )
+			throw new IllegalArgumentException("No live series with index " + series);
+		return series;
+	}
+
+	/** Find the index of a live series by name */
+	private int liveSeries(String name)
+	{
+		if( live_data == null )
+			throw new IllegalStateException("No live series; call addLiveSeries first");
+		int series = live_data.indexOf(name);
+		if( series < 0 )
+			throw new IllegalArgumentException("No live series named " + name);
+		return series;
+	}
+
 	/** Common chart initialization routine */
 	private void init(String x_label, String y_label, String window_title)
 	{
 		// make the chart:
-        chart = ChartFactory.createXYLineChart("",
-                x_label, y_label, data, PlotOrientation.VERTICAL, true, true,
-                false);
-        
-        // for some reason default is white, change it to black:
-        setGridlineColor(Color.BLACK);
+        chart = createChart(data, x_label, y_label);
 
         // Use Plot routine initUI to do most of the UI work:
         super.window_title = window_title;
 		super.initUI();
+
+        // Add a checkbox for level-of-detail rendering to the "Plot" menu
+        JCheckBoxMenuItem menu_plot_lod = new JCheckBoxMenuItem("Level of detail");
+        menu_plot_lod.setToolTipText("Draw only the envelope of large data sets?");
+        menu_plot_lod.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent event) {
+                AbstractButton aButton = (AbstractButton) event.getSource();
+                boolean selected = aButton.getModel().isSelected();
+                setLevelOfDetail(selected);
+            }
+        });
+        menu_plot_lod.setState(false);
+        plot.add(menu_plot_lod);
 	}
 
-    /** Get a string representation of the plotted data 
-	 * @return the data plotted in CSV format.
+    /**
+    * Create the chart for a line plot without any window, e.g. for
+    * offscreen rendering with ChartExport
+    * @param data the dataset to plot
+    * @param x_label the label for the x axis
+    * @param y_label the label for the y axis
+    * @return the chart, styled like the one shown by this class
     */
-    public String toString()
-    {	
-    	String s = "";
-    	// iterate over all data series:
-    	for(int i=0; i<data.getSeriesCount(); i++)
-    	{
-    		// iterate over items in the series:
-    		for(int j=0; j<data.getItemCount(i); j++)
-    		{
-    			// add x,y then new line:
-    			s = s.concat( Double.toString(data.getXValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_CSV_DELIM);
-    			s = s.concat( Double.toString(data.getYValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_NEWLINE);
-    		}
-	    	// add another line break after series is done:
-	    	s = s.concat(SciTK_Text.TOOLKIT_NEWLINE);
-    	}
-    	return s;
+    public static JFreeChart createChart(XYDataset data, String x_label, String y_label)
+    {
+        JFreeChart chart = ChartFactory.createXYLineChart("",
+                x_label, y_label, data, PlotOrientation.VERTICAL, true, true,
+                false);
+
+        applyDefaultStyle(chart);
+        return chart;
+    }
+
+	// ---------------------------------------
+	//		Level of detail
+	// ---------------------------------------
+	/**
+	* Enable or disable level-of-detail rendering. When enabled, only about two
+	* points per horizontal pixel are drawn for each series (the min and max of
+	* each block of points), recomputed when the plot is zoomed, panned or resized.
+	* Saved and copied data always come from the full resolution series.
+	* @param enabled true to draw decimated data
+	*/
+	public void setLevelOfDetail(boolean enabled)
+	{
+		XYPlot p = chart.getXYPlot();
+		if( enabled )
+		{
+			if( lod_data == null )
+			{
+				lod_data = new DecimatedXYDataset(data);
+				// recompute the view at every redraw of the chart:
+				chart.addProgressListener(new ChartProgressListener() {
+					public void chartProgress(ChartProgressEvent event) {
+						updateLevelOfDetail(event);
+					}
+				});
+			}
+			p.setDataset(0, lod_data);
+		}
+		else
+			p.setDataset(0, data);
+	}
+
+	/** Keep the decimated view in step with the visible domain and plot size */
+	private void updateLevelOfDetail(ChartProgressEvent event)
+	{
+		XYPlot p = chart.getXYPlot();
+		if( p.getDataset(0) != lod_data )
+			return;
+
+		// width of the data area from the last draw (or the panel, before the first):
+		int pixels = chart_panel.getWidth();
+		ChartRenderingInfo info = chart_panel.getChartRenderingInfo();
+		if( info != null && info.getPlotInfo().getDataArea().getWidth() > 0 )
+			pixels = (int) info.getPlotInfo().getDataArea().getWidth();
+		Range r = p.getDomainAxis().getRange();
+
+		if( event.getType() == ChartProgressEvent.DRAWING_STARTED )
+		{
+			// the view is updated quietly, and used by the draw in progress:
+			lod_data.setView(r.getLowerBound(), r.getUpperBound(), pixels);
+		}
+		else if( event.getType() == ChartProgressEvent.DRAWING_FINISHED && pixels != lod_data.getViewPixels() )
+		{
+			// plot was resized, redraw at the new width:
+			lod_data.setView(r.getLowerBound(), r.getUpperBound(), pixels);
+			chart.fireChartChanged();
+		}
+	}
+
+    /** Write the plotted data in CSV format
+     * @param out the Writer to send the data to
+     * @throws IOException if writing fails
+     */
+    public void writeData(Writer out) throws IOException
+    {
+        CSVWriter csv = new CSVWriter(out);
+        csv.writeXY(data);
+        if( live_data != null )
+            csv.writeXY(live_data);
+        csv.flush();
     }
 }
\ No newline at end of file
@@ -1,8 +1,8 @@
 package SciTK;
 
 import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.data.xy.DefaultXYDataset;
 import org.jfree.chart.renderer.xy.XYStepRenderer;
 import org.jfree.chart.plot.XYPlot;
 
@@ -10,8 +10,13 @@ import org.jfree.chart.labels.StandardXYToolTipGenerator;
 import org.jfree.chart.labels.MultipleXYSeriesLabelGenerator;
 
 import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.data.xy.XYDataset;
 
 import java.awt.Color;
+
+import java.io.IOException;
+import java.io.Writer;
 import java.awt.BasicStroke;
 
 /** Implement a class which uses JFreeChart
@@ -30,7 +35,8 @@ import java.awt.BasicStroke;
  */
 public class PlotXYStep extends Plot
 {
-	private DefaultXYDataset data; /** JFreeChart dataset for this plot */
+	private FloatXYDataset data; /** JFreeChart dataset for this plot */
+	private HistogramXYDataset live_data; /** Dataset for live histograms, if any */
 
     // ---------------------------------------
     //   Constructors taking minimal things
@@ -41,7 +47,7 @@ public class PlotXYStep extends Plot
     public PlotXYStep(float[][] data_in)
     {
         // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , DEFAULT_NAME, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
+        this(data_in, DEFAULT_NAME, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
     }
 
     /** Constructor for a single set of data 
@@ -60,7 +66,7 @@ public class PlotXYStep extends Plot
     public PlotXYStep(float[][] data_in, String name)
     {
         // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
+        this(data_in, name, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
     }
 
     /** Constructor for a single set of data 
@@ -80,7 +86,7 @@ public class PlotXYStep extends Plot
     public PlotXYStep(float[][][] data_in, String name[])
     {
         // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
+        this(data_in, name, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
     }
 
     /** Constructor for multipe sets of data 
@@ -105,7 +111,7 @@ public class PlotXYStep extends Plot
     public PlotXYStep(float[][] data_in, String name, String x_label, String y_label)
     {
         // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, DEFAULT_TITLE);
+        this(data_in, name, x_label, y_label, DEFAULT_TITLE);
     }
 
     /** Constructor for a single set of data 
@@ -129,7 +135,7 @@ public class PlotXYStep extends Plot
     public PlotXYStep(float[][][] data_in, String name[], String x_label, String y_label)
     {
         // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, DEFAULT_TITLE);
+        this(data_in, name, x_label, y_label, DEFAULT_TITLE);
     }
 
     /** Constructor for multipe sets of data 
@@ -156,8 +162,12 @@ public class PlotXYStep extends Plot
     */
     public PlotXYStep(float[][] data_in, String name, String x_label, String y_label, String window_title)
     {
-        // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, window_title);
+        // float data is used directly, without conversion:
+        data = new FloatXYDataset();
+        data.addSeries(name,data_in);
+
+        // common routine:
+        init(x_label, y_label, window_title);
     }
 
     /** Constructor for a single set of data 
@@ -169,22 +179,11 @@ public class PlotXYStep extends Plot
     */
     public PlotXYStep(double[][] data_in, String name, String x_label, String y_label, String window_title)
     {
-		data = new DefaultXYDataset();
+		data = new FloatXYDataset();
 		data.addSeries(name,data_in);
 
-        // Step Chart requires some hand-holding for the horizontal (domain) axis
-        double x_min = 0;
-        double x_max = 0;
-        for(int i=0; i<data_in.length; i++)
-        {
-        	if( data_in[i][0] < x_min )
-        		x_min = data_in[i][0];
-        	else if( data_in[i][0] > x_max )
-        		x_max = data_in[i][0];
-        }
-
         // call common initialization routine:
-        init(x_label, y_label, window_title, x_min, x_max);
+        init(x_label, y_label, window_title);
 	}
 
     /** Constructor for multipe sets of data 
@@ -196,8 +195,13 @@ public class PlotXYStep extends Plot
     */
     public PlotXYStep(float[][][] data_in, String name[], String x_label, String y_label, String window_title)
     {
-        // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, window_title);
+        // float data is used directly, without conversion:
+        data = new FloatXYDataset();
+        for(int i=0; i<data_in.length; i++)
+            data.addSeries(name[i], data_in[i]);
+
+        // common routine:
+        init(x_label, y_label, window_title);
     }
 
 	/** Constructor for multipe sets of data 
@@ -209,33 +213,47 @@ public class PlotXYStep extends Plot
 	*/
 	public PlotXYStep(double[][][] data_in, String name[], String x_label, String y_label, String window_title)
 	{
-		data = new DefaultXYDataset();
+		data = new FloatXYDataset();
 		// iterate over input data sets:
 		for(int i=0; i<data_in.length; i++)
 		{
 			data.addSeries(name[i], data_in[i]);
 		}
-        
-
-        // Step Chart requires some hand-holding for the horizontal (domain) axis
-        double x_min = 0;
-        double x_max = 0;
-        for(int i=0; i<data_in.length; i++)
-        {
-        	for(int j=0; j<data_in[i].length; j++)
-        	{
-	        	if( data_in[i][j][0] < x_min )
-	        		x_min = data_in[i][j][0];
-	        	else if( data_in[i][j][0] > x_max )
-	        		x_max = data_in[i][j][0];
-        	}
-        }
 
         // call common init routine:
-        init(x_label, y_label, window_title, x_min, x_max);
+        init(x_label, y_label, window_title);
 	}
 
 
+    // ---------------------------------------
+    //     Constructors taking a histogram
+    // ---------------------------------------
+    /** Constructor for a histogram which is shown live as it is built
+     * @param hist the histogram
+    */
+    public PlotXYStep(HistogramBuilder hist)
+    {
+        // call other constructor:
+        this(hist, DEFAULT_NAME, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
+    }
+
+    /** Constructor for a histogram which is shown live as it is built
+     * @param hist the histogram
+     * @param name the data set's name
+     * @param x_label the label for the abscissa
+     * @param y_label the label for the ordinate
+     * @param window_title a label for the window title
+    */
+    public PlotXYStep(HistogramBuilder hist, String name, String x_label, String y_label, String window_title)
+    {
+        // no fixed data:
+        data = new FloatXYDataset();
+
+        // common routine:
+        init(x_label, y_label, window_title);
+        addHistogram(name, hist);
+    }
+
     // ---------------------------------------
     //     Actual Routines:
     // ---------------------------------------
@@ -246,8 +264,9 @@ public class PlotXYStep extends Plot
     */
     public void updateData(float[][] new_data, String name)
     {
-        // convert data to double, and call next function:
-        updateData(ArrayUtil.convertFloatDouble(new_data), name);
+        // add series, float data is used directly:
+        data.addSeries(name,new_data);
+        fitDomain();
     }
 
     /**
@@ -259,6 +278,7 @@ public class PlotXYStep extends Plot
     {
         // add series:
         data.addSeries(name,new_data);
+        fitDomain();
     }
 
     /**
@@ -268,8 +288,13 @@ public class PlotXYStep extends Plot
     */
     public void updateData(float[][][] new_data, String[] name)
     {
-        // convert data to double, and call next function:
-        updateData(ArrayUtil.convertFloatDouble(new_data), name);
+        // loop over all data sets given:
+        for(int i=0; i < new_data.length; i++)
+        {
+            // add series, float data is used directly:
+            data.addSeries(name[i],new_data[i]);
+        }
+        fitDomain();
     }
 
     /**
@@ -285,12 +310,60 @@ public class PlotXYStep extends Plot
             // add series:
             data.addSeries(name[i],new_data[i]);  
         }
+        fitDomain();
+    }
+
+    /**
+    * Show a histogram live as it is built: the plot redraws as samples are
+    * added, without the series being rebuilt.
+    * @param name the data set's name
+    * @param hist the histogram
+    * @return the index of the series
+    */
+    public int addHistogram(String name, HistogramBuilder hist)
+    {
+        // live histograms are kept in a second dataset on the same plot:
+        XYPlot p = chart.getXYPlot();
+        if( live_data == null )
+        {
+            live_data = new HistogramXYDataset();
+            p.setDataset(1, live_data);
+            XYStepRenderer renderer = new XYStepRenderer();
+            renderer.setBaseStroke(new BasicStroke(2.0f));
+            renderer.setBaseToolTipGenerator(new StandardXYToolTipGenerator());
+            p.setRenderer(1, renderer);
+        }
+
+        // a domain fixed to the other data must include the bins:
+        ValueAxis axis = p.getDomainAxis();
+        if( !axis.isAutoRange() )
+            axis.setRange(Math.min(axis.getLowerBound(), hist.getMin()), Math.max(axis.getUpperBound(), hist.getMax()));
+        return live_data.addSeries(name, hist);
     }
 
     /** Initialization routine (common to both constructors) */
-    private void init(String x_label, String y_label, String window_title, double x_min, double x_max)
+    private void init(String x_label, String y_label, String window_title)
+    {
+        chart = createChart(data, x_label, y_label);
+
+        super.window_title = window_title;
+        super.initUI();
+    }
+
+    /**
+    * Create the chart for a step plot without any window, e.g. for
+    * offscreen rendering with ChartExport
+    * @param data the dataset to plot
+    * @param x_label the label for the x axis
+    * @param y_label the label for the y axis
+    * @return the chart, styled like the one shown by this class
+    */
+    public static JFreeChart createChart(XYDataset data, String x_label, String y_label)
     {
-        chart = ChartFactory.createXYStepChart("",
+        // Step Chart requires some hand-holding for the horizontal (domain) axis
+        double[] x_range = xRange(data, null);
+
+        JFreeChart chart = ChartFactory.createXYStepChart("",
                 x_label, y_label, data, PlotOrientation.VERTICAL, false, true,
                 false);
 
@@ -306,39 +379,67 @@ public class PlotXYStep extends Plot
         // need to tell the plot to use this renderer
         plot.setRenderer(renderer);
 
-        // create new axis with range set by dataset max/min:
+        // create new axis with range set by dataset max/min, or automatic if there is no range:
         NumberAxis domainAxis = new NumberAxis(x_label);
-        domainAxis.setRange(x_min,x_max);
+        if( x_range[1] > x_range[0] )
+            domainAxis.setRange(x_range[0],x_range[1]);
         plot.setDomainAxis(domainAxis);
 
-        // for some reason default is white, change it to black:
-        setGridlineColor(Color.BLACK);
-
-        super.window_title = window_title;
-        super.initUI();
+        applyDefaultStyle(chart);
+        return chart;
     }
 
-    /** Get a string representation of the plotted data 
-	 * @return the data plotted in CSV format.
+    /**
+    * Find the range of x values in up to two datasets
+    * @param a the first dataset
+    * @param b the second dataset, or null
+    * @return {min, max}, or {+inf, -inf} if there are no values
     */
-    public String toString()
-    {	
-    	String s = "";
-    	// iterate over all data series:
-    	for(int i=0; i<data.getSeriesCount(); i++)
-    	{
-    		// iterate over items in the series:
-    		for(int j=0; j<data.getItemCount(i); j++)
-    		{
-    			// add x,y then new line:
-    			s = s.concat( Double.toString(data.getXValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_CSV_DELIM);
-    			s = s.concat( Double.toString(data.getYValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_NEWLINE);
-    		}
-	    	// add another line break after series is done:
-	    	s = s.concat(SciTK_Text.TOOLKIT_NEWLINE);
-    	}
-    	return s;
+    private static double[] xRange(XYDataset a, XYDataset b)
+    {
+        double[] r = { Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+        XYDataset[] sets = { a, b };
+        for(XYDataset d : sets)
+        {
+            if( d == null )
+                continue;
+            for(int i=0; i<d.getSeriesCount(); i++)
+            {
+                for(int j=0; j<d.getItemCount(i); j++)
+                {
+                    // check both: a value can be the new min and max at once (NaN is neither)
+                    double x = d.getXValue(i,j);
+                    if( x < r[0] )
+                        r[0] = x;
+                    if( x > r[1] )
+                        r[1] = x;
+                }
+            }
+        }
+        return r;
+    }
+
+    /** Fit the domain axis to the data after it changed, or leave it on auto range if there is none */
+    private void fitDomain()
+    {
+        double[] r = xRange(data, live_data);
+        ValueAxis axis = chart.getXYPlot().getDomainAxis();
+        if( r[1] > r[0] )
+            axis.setRange(r[0], r[1]);
+        else
+            axis.setAutoRange(true);
+    }
+
+    /** Write the plotted data in CSV format
+     * @param out the Writer to send the data to
+     * @throws IOException if writing fails
+     */
+    public void writeData(Writer out) throws IOException
+    {
+        CSVWriter csv = new CSVWriter(out);
+        csv.writeXY(data);
+        if( live_data != null )
+            csv.writeXY(live_data);
+        csv.flush();
     }
 }
\ No newline at end of file
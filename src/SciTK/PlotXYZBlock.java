@@ -1,15 +1,16 @@
 package SciTK;
 
 import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
 
-import org.jfree.data.xy.DefaultXYZDataset;
 import org.jfree.chart.renderer.xy.XYBlockRenderer;
 import org.jfree.chart.plot.XYPlot;
+import org.jfree.data.xy.XYZDataset;
 
-import org.jfree.chart.renderer.LookupPaintScale;
 import org.jfree.chart.title.PaintScaleLegend;
-import org.jfree.chart.axis.SymbolAxis;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.axis.ValueAxis;
 import java.text.DecimalFormat;
 
 import org.jfree.chart.plot.PiePlot;
@@ -20,13 +21,19 @@ import org.jfree.ui.RectangleInsets;
 import org.jfree.chart.block.LineBorder;
 
 import java.awt.Color;
+
+import java.io.IOException;
+import java.io.Writer;
 import java.awt.Paint;
 import java.awt.BasicStroke;
 
 // for adding to menu bar:
 import javax.swing.JMenuBar;
 import javax.swing.JMenu;
+import javax.swing.JMenuItem;
 import javax.swing.JCheckBoxMenuItem;
+import javax.swing.JRadioButtonMenuItem;
+import javax.swing.ButtonGroup;
 import javax.swing.AbstractButton;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -46,10 +53,13 @@ import java.awt.event.ActionListener;
  */
 public class PlotXYZBlock extends Plot
 {
-	private DefaultXYZDataset data; /** JFreeChart dataset for this plot */
+	private FloatXYZDataset data; /** JFreeChart dataset for this plot, or null for a grid */
+	private GridXYZDataset grid; /** Dataset for a regular grid, or null */
 	private PaintScaleLegend psl; /** Scale bar for the color mapping */
-    private LookupPaintScale paintScale; /** Lookup table for the color mapping */
-    int num_labels; /** Number of labels to use for the scale bar */
+    private ColormapPaintScale paintScale; /** Color table shared by the renderer and the scale bar */
+    private ZRangeTracker z_range; /** Range of z in each series, for the color scale */
+    private ContourAnnotation contours; /** Contour lines over a grid, or null */
+    private int contour_count; /** Number of evenly spaced contour levels, or 0 if the levels were given */
 
     // ---------------------------------------
     //   Constructors taking minimal things
@@ -60,7 +70,7 @@ public class PlotXYZBlock extends Plot
     public PlotXYZBlock(float[][] data_in)
     {
         // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , DEFAULT_NAME, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
+        this(data_in, DEFAULT_NAME, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
     }
 
     /** Constructor for a single set of data 
@@ -79,7 +89,7 @@ public class PlotXYZBlock extends Plot
     public PlotXYZBlock(float[][] data_in, String name)
     {
         // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
+        this(data_in, name, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
     }
 
     /** Constructor for a single set of data 
@@ -99,7 +109,7 @@ public class PlotXYZBlock extends Plot
     public PlotXYZBlock(float[][][] data_in, String name[])
     {
         // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
+        this(data_in, name, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
     }
 
     /** Constructor for multiple sets of data 
@@ -124,7 +134,7 @@ public class PlotXYZBlock extends Plot
     public PlotXYZBlock(float[][] data_in, String name, String x_label, String y_label)
     {
         // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, DEFAULT_TITLE);
+        this(data_in, name, x_label, y_label, DEFAULT_TITLE);
     }
 
     /** Constructor for a single set of data 
@@ -148,7 +158,7 @@ public class PlotXYZBlock extends Plot
     public PlotXYZBlock(float[][][] data_in, String name[], String x_label, String y_label)
     {
         // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, DEFAULT_TITLE);
+        this(data_in, name, x_label, y_label, DEFAULT_TITLE);
     }
 
     /** Constructor for multiple sets of data 
@@ -175,8 +185,12 @@ public class PlotXYZBlock extends Plot
     */
     public PlotXYZBlock(float[][] data_in, String name, String x_label, String y_label, String window_title)
     {
-        // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, window_title);
+        // float data is used directly, without conversion:
+        data = new FloatXYZDataset();
+        data.addSeries(name,data_in);
+
+        // common routine:
+        init(x_label, y_label, window_title);
     }
 
 	/** Constructor for a single set of data 
@@ -188,7 +202,7 @@ public class PlotXYZBlock extends Plot
 	*/
 	public PlotXYZBlock(double[][] data_in, String name, String x_label, String y_label, String window_title)
 	{
-		data = new DefaultXYZDataset();
+		data = new FloatXYZDataset();
 		data.addSeries(name,data_in);
 
 		// common routine:
@@ -204,8 +218,13 @@ public class PlotXYZBlock extends Plot
     */
     public PlotXYZBlock(float[][][] data_in, String name[], String x_label, String y_label, String window_title)
     {
-        // call other constructor:
-        this( ArrayUtil.convertFloatDouble(data_in) , name, x_label, y_label, window_title);
+        // float data is used directly, without conversion:
+        data = new FloatXYZDataset();
+        for(int i=0; i<data_in.length; i++)
+            data.addSeries(name[i], data_in[i]);
+
+        // common routine:
+        init(x_label, y_label, window_title);
     }
 
     /** Constructor for multiple sets of data 
@@ -217,7 +236,7 @@ public class PlotXYZBlock extends Plot
     */
     public PlotXYZBlock(double[][][] data_in, String name[], String x_label, String y_label, String window_title)
     {
-        data = new DefaultXYZDataset();
+        data = new FloatXYZDataset();
         // iterate over input data sets:
         for(int i=0; i<data_in.length; i++)
         {
@@ -228,9 +247,94 @@ public class PlotXYZBlock extends Plot
         init(x_label, y_label, window_title);
     }
 
+    // ---------------------------------------
+    //     Constructors taking a regular grid
+    // ---------------------------------------
+    /** Constructor for values on a regular grid. The grid is drawn as a
+     * single image, which is much faster than blocks for large grids.
+     * @param z the values, z[i][j] is at (x[j], y[i])
+     * @param x the center of each column, evenly spaced
+     * @param y the center of each row, evenly spaced
+    */
+    public PlotXYZBlock(double[][] z, double[] x, double[] y)
+    {
+        // call other constructor:
+        this(z, x, y, DEFAULT_NAME, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
+    }
+
+    /** Constructor for values on a regular grid. The grid is drawn as a
+     * single image, which is much faster than blocks for large grids.
+     * @param z the values, z[i][j] is at (x[j], y[i])
+     * @param x the center of each column, evenly spaced
+     * @param y the center of each row, evenly spaced
+     * @param name the data set's name
+     * @param x_label the label for the abscissa
+     * @param y_label the label for the ordinate
+     * @param window_title a label for the window title
+    */
+    public PlotXYZBlock(double[][] z, double[] x, double[] y, String name, String x_label, String y_label, String window_title)
+    {
+        // the array is used directly, without x/y/z triplets:
+        grid = new GridXYZDataset(name, z, x, y);
+
+        // common routine:
+        init(x_label, y_label, window_title);
+    }
+
+    // ---------------------------------------
+    //     Constructors taking scattered points
+    // ---------------------------------------
+    /** Constructor for scattered points, which are interpolated onto a
+     * grid spanning them (see ScatterGridder) and drawn as a grid.
+     * @param data_in the points, as three arrays of equal length containing the x-values, y-values and z-values
+     * @param nx the number of grid columns
+     * @param ny the number of grid rows
+     * @param method how to interpolate
+    */
+    public PlotXYZBlock(double[][] data_in, int nx, int ny, ScatterGridder.Method method)
+    {
+        // call other constructor:
+        this(data_in, nx, ny, method, DEFAULT_NAME, DEFAULT_XLABEL, DEFAULT_YLABEL, DEFAULT_TITLE);
+    }
+
+    /** Constructor for scattered points, which are interpolated onto a
+     * grid spanning them (see ScatterGridder) and drawn as a grid.
+     * @param data_in the points, as three arrays of equal length containing the x-values, y-values and z-values
+     * @param nx the number of grid columns
+     * @param ny the number of grid rows
+     * @param method how to interpolate
+     * @param name the data set's name
+     * @param x_label the label for the abscissa
+     * @param y_label the label for the ordinate
+     * @param window_title a label for the window title
+    */
+    public PlotXYZBlock(double[][] data_in, int nx, int ny, ScatterGridder.Method method, String name, String x_label, String y_label, String window_title)
+    {
+        grid = new ScatterGridder(data_in).grid(name, nx, ny, method);
+
+        // common routine:
+        init(x_label, y_label, window_title);
+    }
+
     // ---------------------------------------
     //     Actual Routines:
     // ---------------------------------------
+    /**
+    * Update the values of a grid plot
+    * @param z the values, z[i][j] is at (x[j], y[i])
+    * @param x the center of each column, evenly spaced
+    * @param y the center of each row, evenly spaced
+    * @throws IllegalStateException if this plot was not created with a grid
+    */
+    public void updateData(double[][] z, double[] x, double[] y)
+    {
+        if( grid == null )
+            throw new IllegalStateException("Plot was not created with a grid");
+        grid.setData(z, x, y);
+        if( z_range.update(grid, 0) )
+            rescale();
+    }
+
     /**
     * Update a single set of data 
     * @param new_data the data to plot. n x 2 size, eg new_data[i] = [x_i,y_i]
@@ -238,8 +342,12 @@ public class PlotXYZBlock extends Plot
     */
     public void updateData(float[][] new_data, String name)
     {
-        // convert data to double, and call next function:
-        updateData(ArrayUtil.convertFloatDouble(new_data), name);
+        checkTriplets();
+        // add series, float data is used directly:
+        data.addSeries(name,new_data);
+        // only the new series is scanned for the color scale:
+        if( z_range.update(data, data.indexOf(name)) )
+            rescale();
     }
 
     /**
@@ -249,8 +357,12 @@ public class PlotXYZBlock extends Plot
     */
     public void updateData(double[][] new_data, String name)
     {
+        checkTriplets();
         // add series:
         data.addSeries(name,new_data);
+        // only the new series is scanned for the color scale:
+        if( z_range.update(data, data.indexOf(name)) )
+            rescale();
     }
 
     /**
@@ -260,8 +372,18 @@ public class PlotXYZBlock extends Plot
     */
     public void updateData(float[][][] new_data, String[] name)
     {
-        // convert data to double, and call next function:
-        updateData(ArrayUtil.convertFloatDouble(new_data), name);
+        checkTriplets();
+        // loop over all data sets given:
+        boolean changed = false;
+        for(int i=0; i < new_data.length; i++)
+        {
+            // add series, float data is used directly:
+            data.addSeries(name[i],new_data[i]);
+            changed |= z_range.update(data, data.indexOf(name[i]));
+        }
+        // rebuild the color scale once:
+        if( changed )
+            rescale();
     }
 
     /**
@@ -271,18 +393,132 @@ public class PlotXYZBlock extends Plot
     */
     public void updateData(double[][][] new_data, String[] name)
     {
+        checkTriplets();
         // loop over all data sets given:
+        boolean changed = false;
         for(int i=0; i < new_data.length; i++)
         {
             // add series:
             data.addSeries(name[i],new_data[i]);  
+            changed |= z_range.update(data, data.indexOf(name[i]));
         }
+        // rebuild the color scale once:
+        if( changed )
+            rescale();
+    }
+
+    /** Triplet updates need a triplet dataset */
+    private void checkTriplets()
+    {
+        if( data == null )
+            throw new IllegalStateException("Plot was created with a grid, use updateData(z, x, y)");
     }
 
     /* Common Initialization routine */
 	private void init(String x_label, String y_label, String window_title)
 	{
-        chart = ChartFactory.createScatterPlot("",
+        XYZDataset dataset = (grid != null) ? (XYZDataset)grid : data;
+        z_range = new ZRangeTracker(dataset);
+        chart = createChart(dataset, x_label, y_label, z_range.getMin(), z_range.getMax());
+
+        // keep the color bar so it can be turned on and off:
+        for(int i=0; i<chart.getSubtitleCount(); i++)
+        {
+            if( chart.getSubtitle(i) instanceof PaintScaleLegend )
+                psl = (PaintScaleLegend) chart.getSubtitle(i);
+        }
+        paintScale = (ColormapPaintScale) psl.getScale();
+
+        // --------------------------------------------
+        //          WINDOW-RELATED UI
+        // --------------------------------------------
+        // set up the generic plot UI:
+        super.window_title = window_title;
+		super.initUI();
+
+		// add another menu item
+		JMenuBar mb = super.getJMenuBar(); // get the menu bar
+        // find menu named "Plot"
+        JMenu menu_plot = null;
+        for(int i=0; i<mb.getMenuCount(); i++)
+        {
+            if(mb.getMenu(i).getText() == "Plot")
+                menu_plot = mb.getMenu(i);
+        }
+        // Add a new checkbox for the color scale bar
+        JCheckBoxMenuItem menu_plot_scalebar = new JCheckBoxMenuItem("Color Scale");
+        menu_plot_scalebar.setToolTipText("Show color scale bar?");
+        menu_plot_scalebar.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent event) {
+                AbstractButton aButton = (AbstractButton) event.getSource();
+                boolean selected = aButton.getModel().isSelected();
+                setScaleBar(selected);
+            }
+        });
+        // set appropirate checkbox state:
+        menu_plot_scalebar.setState(true);
+        if( menu_plot != null ) // sanity check
+            menu_plot.add(menu_plot_scalebar);
+
+        // and a submenu to choose the colormap:
+        JMenu menu_plot_colormap = new JMenu("Colormap");
+        ButtonGroup colormap_group = new ButtonGroup();
+        for(final Colormap cm : Colormap.STANDARD)
+        {
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(cm.getName(), cm == paintScale.getColormap());
+            item.addActionListener(new ActionListener() {
+                public void actionPerformed(ActionEvent event) {
+                    setColormap(cm);
+                }
+            });
+            colormap_group.add(item);
+            menu_plot_colormap.add(item);
+        }
+        if( menu_plot != null )
+            menu_plot.add(menu_plot_colormap);
+
+        // contours can be drawn over a grid:
+        if( grid != null && menu_plot != null )
+        {
+            JMenuItem menu_plot_contours = new JMenuItem("Contours...");
+            menu_plot_contours.setToolTipText("Draw contour lines");
+            menu_plot_contours.addActionListener(new ActionListener() {
+                public void actionPerformed(ActionEvent event) {
+                    promptContours();
+                }
+            });
+            menu_plot.add(menu_plot_contours);
+        }
+
+	}
+
+    /**
+    * Create the chart for a block (2-D color) plot without any window, e.g. for
+    * offscreen rendering with ChartExport
+    * @param data the dataset to plot
+    * @param x_label the label for the x axis
+    * @param y_label the label for the y axis
+    * @return the chart, styled like the one shown by this class
+    */
+    public static JFreeChart createChart(XYZDataset data, String x_label, String y_label)
+    {
+        ZRangeTracker z_range = new ZRangeTracker(data);
+        return createChart(data, x_label, y_label, z_range.getMin(), z_range.getMax());
+    }
+
+    /**
+    * Create the chart for a block (2-D color) plot without any window, with
+    * a known range of z (so the data are not scanned)
+    * @param data the dataset to plot
+    * @param x_label the label for the x axis
+    * @param y_label the label for the y axis
+    * @param z_min the z drawn with the first color
+    * @param z_max the z drawn with the last color
+    * @return the chart, styled like the one shown by this class
+    */
+    public static JFreeChart createChart(XYZDataset data, String x_label, String y_label, double z_min, double z_max)
+    {
+        JFreeChart chart = ChartFactory.createScatterPlot("",
                 x_label, y_label, data, PlotOrientation.VERTICAL, false, true,
                 false);
 
@@ -296,28 +532,11 @@ public class PlotXYZBlock extends Plot
         // --------------------------------------------
         //          set up a lookup table
         // --------------------------------------------
-        // this is how we render the block plots:
-        XYBlockRenderer renderer = new XYBlockRenderer();
-        // need to find max and min z of the data set:
-        double min = 0; double max = 0;
-        for(int i=0; i < data.getSeriesCount(); i++) // iterate over data sets
-        {
-            for(int j=0; j<data.getItemCount(i); j++) // iterate over points in dataset
-            {
-                if( data.getZValue(i,j) < min )
-                    min = data.getZValue(i,j);
-                else if( data.getZValue(i,j) > max )
-                    max = data.getZValue(i,j);
-            }
-        }
-        // create paint scale using min and max values, default color black:
-        LookupPaintScale paintScale = new LookupPaintScale(min, max, Color.black);
-        // set up the LUT:
-        double step_size = (max-min)/255.; // step size for LUT
-        for(int i=0; i < 256; i++)
-        {
-            paintScale.add( min+i*step_size , new Color(i,i,i,255));
-        }
+        // this is how we render the block plots, with grids drawn as an image:
+        XYBlockRenderer renderer = (data instanceof GridXYZDataset) ? new GridImageRenderer() : new XYBlockRenderer();
+        // create paint scale using min and max values, shared with the color bar:
+        double[] bounds = scaleBounds(z_min, z_max);
+        ColormapPaintScale paintScale = new ColormapPaintScale(bounds[0], bounds[1], Colormap.GRAY);
         renderer.setPaintScale(paintScale);
         // set this renderer to the plot:
         p.setRenderer(renderer);
@@ -325,24 +544,8 @@ public class PlotXYZBlock extends Plot
         // --------------------------------------------
         //          set up a color bar
         // --------------------------------------------
-        // create an array of display labels:
-        num_labels = 10; // default to 10 labels on color bar
-        double display_step_size = (max-min)/((double)num_labels);
-        String[] scale_bar_labels = new String[num_labels+1];
-        // to format numbers in scientific notation:
-        DecimalFormat formater = new DecimalFormat("0.#E0");
-        // create list of labesl:
-        for(int i=0; i <= num_labels; i++)
-        {
-            scale_bar_labels[i] = formater.format(min+i*display_step_size);
-        }
-        // create axis:
-        SymbolAxis scaleAxis = new SymbolAxis(null, scale_bar_labels);
-        scaleAxis.setRange(min, max);
-        scaleAxis.setPlot(new PiePlot());
-        scaleAxis.setGridBandsVisible(false);
         // set up the paint scale:
-        psl = new PaintScaleLegend(paintScale, scaleAxis);
+        PaintScaleLegend psl = new PaintScaleLegend(paintScale, createScaleAxis(bounds[0], bounds[1]));
         psl.setBackgroundPaint(new Color(255,255,255,0)); // clear background
         // set up frame with buffer region to allow text display
         psl.setFrame(new LineBorder( (Paint)Color.BLACK, 
@@ -356,38 +559,169 @@ public class PlotXYZBlock extends Plot
         // add to the chart so it will be displayed by default:
         chart.addSubtitle(psl); 
 
-        // --------------------------------------------
-        //          WINDOW-RELATED UI
-        // --------------------------------------------
-        // set up the generic plot UI:
-        super.window_title = window_title;
-		super.initUI();
+        applyDefaultStyle(chart);
+        return chart;
+    }
 
-		// add another menu item
-		JMenuBar mb = super.getJMenuBar(); // get the menu bar
-        // find menu named "Plot"
-        JMenu menu_plot = null;
-        for(int i=0; i<mb.getMenuCount(); i++)
+    /** Bounds for the color scale from the range of z, widened if the range is empty */
+    private static double[] scaleBounds(double z_min, double z_max)
+    {
+        if( z_min != z_min ) // no valid data
+            return new double[] { 0, 1 };
+        if( z_max <= z_min )
+            return new double[] { z_min, z_min + Math.max(1, Math.abs(z_min)) };
+        return new double[] { z_min, z_max };
+    }
+
+    /** Create the axis of the scale bar */
+    private static ValueAxis createScaleAxis(double min, double max)
+    {
+        NumberAxis scaleAxis = new NumberAxis(null);
+        scaleAxis.setRange(min, max);
+        // to format numbers in scientific notation:
+        scaleAxis.setNumberFormatOverride(new DecimalFormat("0.#E0"));
+        scaleAxis.setPlot(new PiePlot());
+        return scaleAxis;
+    }
+
+    /** Update the paint scale and scale bar to the current range of z */
+    private void rescale()
+    {
+        double[] bounds = scaleBounds(z_range.getMin(), z_range.getMax());
+        paintScale = paintScale.withBounds(bounds[0], bounds[1]);
+        ((XYBlockRenderer)chart.getXYPlot().getRenderer()).setPaintScale(paintScale);
+        psl.setScale(paintScale);
+        psl.setAxis(createScaleAxis(bounds[0], bounds[1]));
+        // evenly spaced contours follow the range:
+        if( contours != null && contour_count > 0 )
+            contours.setLevels(contourLevels(contour_count));
+    }
+
+    /**
+     * Set the colors used for z. The renderer and the color bar share one
+     * table, so both change together; for grids only the image is recolored.
+     * @param colormap the colors, from the lowest to the highest z
+     */
+    public void setColormap(Colormap colormap)
+    {
+        paintScale = new ColormapPaintScale(paintScale.getLowerBound(), paintScale.getUpperBound(), colormap);
+        ((XYBlockRenderer)chart.getXYPlot().getRenderer()).setPaintScale(paintScale);
+        psl.setScale(paintScale);
+    }
+
+    /**
+     * Get the paint scale used for z, which is shared with the color bar
+     * @return the paint scale
+     */
+    public ColormapPaintScale getPaintScale()
+    {
+        return paintScale;
+    }
+
+    /**
+     * Draw contour lines at given levels over a grid
+     * @param levels the contour levels, or null or empty for no contours
+     * @throws IllegalStateException if this plot was not created with a grid
+     */
+    public void setContours(double[] levels)
+    {
+        if( grid == null )
+            throw new IllegalStateException("Contours need a plot created with a grid");
+        contour_count = 0;
+        showContours(levels);
+    }
+
+    /**
+     * Draw contour lines at evenly spaced levels over a grid. The levels
+     * divide the range of z into n+1 equal steps, and follow it when the
+     * data are updated.
+     * @param n the number of levels, or 0 for no contours
+     * @throws IllegalStateException if this plot was not created with a grid
+     */
+    public void setContours(int n)
+    {
+        if( grid == null )
+            throw new IllegalStateException("Contours need a plot created with a grid");
+        contour_count = Math.max(n, 0);
+        showContours( contourLevels(contour_count) );
+    }
+
+    /**
+     * Get the contour lines drawn over the grid, e.g. to change their color
+     * @return the contours, or null if none are drawn
+     */
+    public ContourAnnotation getContours()
+    {
+        return contours;
+    }
+
+    /** Add, change or remove the contour annotation */
+    private void showContours(double[] levels)
+    {
+        XYPlot p = chart.getXYPlot();
+        if( levels == null || levels.length == 0 )
         {
-            if(mb.getMenu(i).getText() == "Plot")
-                menu_plot = mb.getMenu(i);
+            if( contours != null )
+                p.removeAnnotation(contours);
+            contours = null;
         }
-        // Add a new checkbox for the color scale bar
-        JCheckBoxMenuItem menu_plot_scalebar = new JCheckBoxMenuItem("Color Scale");
-        menu_plot_scalebar.setToolTipText("Show color scale bar?");
-        menu_plot_scalebar.addActionListener(new ActionListener() {
-            public void actionPerformed(ActionEvent event) {
-                AbstractButton aButton = (AbstractButton) event.getSource();
-                boolean selected = aButton.getModel().isSelected();
-                setScaleBar(selected);
-            }
-        });
-        // set appropirate checkbox state:
-        menu_plot_scalebar.setState(true);
-        if( menu_plot != null ) // sanity check
-            menu_plot.add(menu_plot_scalebar);
+        else if( contours == null )
+        {
+            contours = new ContourAnnotation(grid, levels);
+            p.addAnnotation(contours);
+        }
+        else
+            contours.setLevels(levels);
+    }
 
-	}
+    /** Evenly spaced levels inside the range of z */
+    private double[] contourLevels(int n)
+    {
+        double lo = z_range.getMin(), hi = z_range.getMax();
+        if( n <= 0 || !(hi > lo) )
+            return new double[0];
+        double[] levels = new double[n];
+        for(int k=0; k<n; k++)
+            levels[k] = lo + (k+1)*(hi-lo)/(n+1);
+        return levels;
+    }
+
+    /** Ask for the contour levels, as a number of evenly spaced levels or a list */
+    public void promptContours()
+    {
+        if( grid == null )
+            return;
+        String list = "";
+        if( contours != null && contour_count == 0 )
+        {
+            for(double v : contours.getLevels())
+                list += (list.length() > 0 ? ", " : "") + v;
+        }
+        DialogMultiPrompt prompt = new DialogMultiPrompt(
+            new PromptValue[] { new PromptValueNumeric(Integer.toString(contour_count),"Number of levels (0 for none)"),
+                new PromptValueString(list,"Or levels, comma separated") },
+            "Contours");
+        if( prompt.getAccepted() == false ) // user cancelled
+            return;
+        try
+        {
+            PromptValue[] values = prompt.getValuesArray();
+            String[] given = values[1].getValueString().trim().split("[,\\s]+");
+            if( given.length > 0 && given[0].length() > 0 )
+            {
+                double[] levels = new double[given.length];
+                for(int i=0; i<given.length; i++)
+                    levels[i] = Double.parseDouble(given[i]);
+                setContours(levels);
+            }
+            else
+                setContours( (int)((PromptValueNumeric)values[0]).get_value_double() );
+        }
+        catch(Exception e)
+        {
+            DialogError emsg = new DialogError(this," Unable to set contours, try again. " + '\n' + e.getMessage());
+        }
+    }
 
 	/** Set the color bar display  status
      * @param enabled true enables color bar display, false disables
@@ -405,29 +739,14 @@ public class PlotXYZBlock extends Plot
         }
     }
 
-    /** Get a string representation of the plotted data 
-	 * @return the data plotted in CSV format.
-    */
-    public String toString()
-    {	
-    	String s = "";
-    	// iterate over all data series:
-    	for(int i=0; i<data.getSeriesCount(); i++)
-    	{
-    		// iterate over items in the series:
-    		for(int j=0; j<data.getItemCount(i); j++)
-    		{
-    			// add x,y then new line:
-    			s = s.concat( Double.toString(data.getXValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_CSV_DELIM);
-    			s = s.concat( Double.toString(data.getYValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_CSV_DELIM);
-    			s = s.concat( Double.toString(data.getZValue(i,j)) );
-    			s = s.concat(SciTK_Text.TOOLKIT_NEWLINE);
-    		}
-	    	// add another line break after series is done:
-	    	s = s.concat(SciTK_Text.TOOLKIT_NEWLINE);
-    	}
-    	return s;
+    /** Write the plotted data in CSV format
+     * @param out the Writer to send the data to
+     * @throws IOException if writing fails
+     */
+    public void writeData(Writer out) throws IOException
+    {
+        CSVWriter csv = new CSVWriter(out);
+        csv.writeXYZ( (grid != null) ? (XYZDataset)grid : data );
+        csv.flush();
     }
 }
\ No newline at end of file
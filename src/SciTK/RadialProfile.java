@@ -0,0 +1,224 @@
+package SciTK;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/** Azimuthally averaged radial profile of an image about a center,
+ * e.g. for X-ray diffraction rings. The radius bin of every pixel is
+ * computed once per center (in parallel), and the sum and count of each
+ * bin over the whole image are then accumulated once per image. A
+ * profile out to any radius is just the first bins, so changing the
+ * radius (e.g. while dragging a circle) costs nothing more, and a new
+ * image (e.g. the next frame) with the same center reuses the bins.
+ *
+ * @package SciTK
+ * @class RadialProfile
+ * @brief Cached radial (azimuthal average) profiles
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class RadialProfile
+{
+	private int width; /** Image width */
+	private int height; /** Image height */
+	private double center_x; /** Center column */
+	private double center_y; /** Center row */
+	private double bin_width; /** Width of each radius bin, in pixels */
+	private int num_bins; /** Number of bins reaching the farthest pixel */
+	private int[] bins; /** Bin of each pixel, row-major */
+
+	private RawImage data; /** Image the sums were accumulated for, or null */
+	private double[] sums; /** Sum of values in each bin */
+	private long[] counts; /** Number of pixels in each bin */
+
+	/**
+	* Compute the radius bins for an image size and center
+	* @param width the image width
+	* @param height the image height
+	* @param center_x the center column (may be fractional)
+	* @param center_y the center row (may be fractional)
+	* @param bin_width the width of each radius bin, in pixels
+	*/
+	public RadialProfile(int width, int height, double center_x, double center_y, double bin_width)
+	{
+		this.width = width;
+		this.height = height;
+		this.center_x = center_x;
+		this.center_y = center_y;
+		this.bin_width = bin_width;
+
+		// the farthest pixel is at one of the corners:
+		double dx = Math.max(center_x, width-1-center_x);
+		double dy = Math.max(center_y, height-1-center_y);
+		num_bins = (int)(Math.sqrt(dx*dx + dy*dy) / bin_width) + 1;
+
+		bins = new int[width*height];
+		ParallelUtil.getPool().invoke( new BinTask(0, height, ParallelUtil.chunkSize(height, 16)) );
+	}
+
+	/**
+	* Check if this profile's bins can be used for an image and center
+	* @param width the image width
+	* @param height the image height
+	* @param center_x the center column
+	* @param center_y the center row
+	* @return true if the size and center match
+	*/
+	public boolean matches(int width, int height, double center_x, double center_y)
+	{
+		return width == this.width && height == this.height && center_x == this.center_x && center_y == this.center_y;
+	}
+
+	/**
+	* Get the profile of an image out to a radius. The image's bin sums
+	* are computed on the first call for that image, and reused afterwards.
+	* @param image the image, which must have the size given to the constructor
+	* @param radius the largest radius to include, in pixels
+	* @return the profile, [0] the radius of each bin's center and [1] the mean value in the bin; empty bins are omitted
+	*/
+	public synchronized double[][] getProfile(RawImage image, double radius)
+	{
+		if( image.getWidth() != width || image.getHeight() != height )
+			throw new IllegalArgumentException("Image is " + image.getWidth() + " x " + image.getHeight()
+				+ ", but the profile bins are for " + width + " x " + height);
+		if( image != data )
+		{
+			Sums s = ParallelUtil.getPool().invoke( new SumTask(image, 0, height, ParallelUtil.chunkSize(height, 16)) );
+			sums = s.sums;
+			counts = s.counts;
+			data = image;
+		}
+
+		// the bins within the radius:
+		int n = Math.min(num_bins, (int)(radius / bin_width) + 1);
+		int m = 0;
+		for(int k=0; k<n; k++)
+		{
+			if( counts[k] > 0 )
+				m++;
+		}
+		double[][] profile = new double[2][m];
+		m = 0;
+		for(int k=0; k<n; k++)
+		{
+			if( counts[k] > 0 )
+			{
+				profile[0][m] = (k+0.5)*bin_width;
+				profile[1][m] = sums[k] / counts[k];
+				m++;
+			}
+		}
+		return profile;
+	}
+
+	/**
+	* Get the number of radius bins covering the image
+	* @return the number of bins
+	*/
+	public int getBinCount()
+	{
+		return num_bins;
+	}
+
+	/** Computes the bin of each pixel in a range of rows */
+	private class BinTask extends RecursiveAction
+	{
+		int row_start, row_end, chunk;
+
+		BinTask(int row_start, int row_end, int chunk)
+		{
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected void compute()
+		{
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				invokeAll( new BinTask(row_start, mid, chunk), new BinTask(mid, row_end, chunk) );
+				return;
+			}
+
+			for(int i=row_start; i<row_end; i++)
+			{
+				double dy = i - center_y;
+				int o = i*width;
+				for(int j=0; j<width; j++)
+				{
+					double dx = j - center_x;
+					bins[o+j] = (int)( Math.sqrt(dx*dx + dy*dy) / bin_width );
+				}
+			}
+		}
+	}
+
+	/** Per-bin sums and counts */
+	private static class Sums
+	{
+		double[] sums;
+		long[] counts;
+
+		Sums(int n)
+		{
+			sums = new double[n];
+			counts = new long[n];
+		}
+	}
+
+	/** Accumulates bin sums over a range of rows */
+	private class SumTask extends RecursiveTask<Sums>
+	{
+		RawImage image;
+		int row_start, row_end, chunk;
+
+		SumTask(RawImage image, int row_start, int row_end, int chunk)
+		{
+			this.image = image;
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected Sums compute()
+		{
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				SumTask right = new SumTask(image, mid, row_end, chunk);
+				right.fork();
+				Sums a = new SumTask(image, row_start, mid, chunk).compute();
+				Sums b = right.join();
+				for(int k=0; k<num_bins; k++)
+				{
+					a.sums[k] += b.sums[k];
+					a.counts[k] += b.counts[k];
+				}
+				return a;
+			}
+
+			Sums s = new Sums(num_bins);
+			double[] buf = new double[width];
+			for(int i=row_start; i<row_end; i++)
+			{
+				double[] row = image.getRow(i, buf);
+				int o = i*width;
+				for(int j=0; j<width; j++)
+				{
+					// NaN pixels (e.g. masked) do not count:
+					double v = row[j];
+					if( v == v )
+					{
+						int k = bins[o+j];
+						s.sums[k] += v;
+						s.counts[k]++;
+					}
+				}
+			}
+			return s;
+		}
+	}
+}
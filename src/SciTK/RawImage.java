@@ -0,0 +1,47 @@
+package SciTK;
+
+/** Read access to 2-D image data, independent of how it is stored
+ * (e.g. a double[][] array or a memory-mapped detector file). Rows
+ * are read one at a time, so large images never need to be converted
+ * to a double[][] in memory. Implementations must allow concurrent
+ * reads from several threads.
+ *
+ * @package SciTK
+ * @class RawImage
+ * @brief Row access to image data
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public interface RawImage
+{
+	/**
+	* Get the width of the image
+	* @return the number of columns
+	*/
+	int getWidth();
+
+	/**
+	* Get the height of the image
+	* @return the number of rows
+	*/
+	int getHeight();
+
+	/**
+	* Get a single value
+	* @param row the row (i)
+	* @param col the column (j)
+	* @return the value of pixel_ij
+	*/
+	double get(int row, int col);
+
+	/**
+	* Get a row of values. The returned array is either buf, filled with
+	* the row, or an internal array which must not be modified.
+	* @param row the row (i)
+	* @param buf an array of at least getWidth() elements which may be filled
+	* @return an array whose first getWidth() elements are the row
+	*/
+	double[] getRow(int row, double[] buf);
+}
@@ -0,0 +1,67 @@
+package SciTK;
+
+/** Statistics of the values in a region of an image:
+ * number of pixels, sum, mean, standard deviation, min and max.
+ * The standard deviation is the population value (dividing by N).
+ *
+ * @package SciTK
+ * @class RegionStats
+ * @brief Summary statistics for a region of interest
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class RegionStats
+{
+	private long count; /** Number of pixels */
+	private double sum; /** Sum of values */
+	private double mean; /** Mean value */
+	private double std; /** Standard deviation */
+	private double min; /** Smallest value */
+	private double max; /** Largest value */
+
+	/**
+	* Constructor
+	* @param count the number of pixels
+	* @param sum the sum of values
+	* @param mean the mean value
+	* @param std the standard deviation
+	* @param min the smallest value
+	* @param max the largest value
+	*/
+	public RegionStats(long count, double sum, double mean, double std, double min, double max)
+	{
+		this.count = count;
+		this.sum = sum;
+		this.mean = mean;
+		this.std = std;
+		this.min = min;
+		this.max = max;
+	}
+
+	/** @return the number of pixels */
+	public long getCount() { return count; }
+	/** @return the sum of values */
+	public double getSum() { return sum; }
+	/** @return the mean value, or NaN for an empty region */
+	public double getMean() { return mean; }
+	/** @return the standard deviation, or NaN for an empty region */
+	public double getStd() { return std; }
+	/** @return the smallest value, or NaN for an empty region */
+	public double getMin() { return min; }
+	/** @return the largest value, or NaN for an empty region */
+	public double getMax() { return max; }
+
+	public String toString()
+	{
+		return "N: " + count + ", Sum: " + format(sum) + ", Mean: " + format(mean)
+			+ ", Std: " + format(std) + ", Min: " + format(min) + ", Max: " + format(max);
+	}
+
+	/** Format a value compactly for display */
+	private static String format(double v)
+	{
+		return String.format("%.7g", v);
+	}
+}
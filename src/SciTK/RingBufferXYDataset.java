@@ -0,0 +1,287 @@
+package SciTK;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
+
+import org.jfree.data.DomainOrder;
+import org.jfree.data.xy.AbstractXYDataset;
+
+/** An XY dataset for live data. Each series is a fixed-capacity ring
+ * buffer of primitive x and y values: points are appended one at a time
+ * or in blocks, and once a series is full the oldest points are dropped.
+ * Appending does not allocate, and change notifications are coalesced
+ * so that listeners (i.e. the chart) update at most once per event-queue
+ * cycle no matter how fast points arrive. Appends may be made from any thread.
+ *
+ * Each getter is synchronized on its own, so a chart drawn while another
+ * thread appends does not see a single snapshot: items keep their order,
+ * but item i may already be a newer point than when the item count was
+ * read, and the series can look shifted by the points appended meanwhile.
+ * Those appends queue another notification, so the next redraw catches
+ * up. Items past the end of a series (e.g. after it was replaced by a
+ * smaller one during a redraw) read as its newest point, or as NaN if it
+ * is empty, which is not drawn.
+ *
+ * @package SciTK
+ * @class RingBufferXYDataset
+ * @brief Append-only XY dataset with bounded memory
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class RingBufferXYDataset extends AbstractXYDataset
+{
+	private ArrayList<Comparable> keys; /** Keys for each series */
+	private ArrayList<Ring> series; /** Storage for each series */
+
+	private AtomicBoolean notify_pending; /** True if a change notification is queued */
+	private Runnable notifier; /** Fires the queued notification on the EDT */
+
+	/** Constructor */
+	public RingBufferXYDataset()
+	{
+		keys = new ArrayList<Comparable>();
+		series = new ArrayList<Ring>();
+		notify_pending = new AtomicBoolean(false);
+		notifier = new Runnable() {
+			public void run() {
+				notify_pending.set(false);
+				fireDatasetChanged();
+			}
+		};
+	}
+
+	// ---------------------------------------
+	//		Managing series
+	// ---------------------------------------
+	/**
+	* Add a new, empty series. If a series with this key already exists
+	* it is cleared and given the new capacity.
+	* @param key the series' key (name)
+	* @param capacity maximum number of points kept in the series
+	* @return the index of the series
+	*/
+	public int addSeries(Comparable key, int capacity)
+	{
+		if( capacity < 1 )
+			throw new IllegalArgumentException("Capacity must be positive");
+		int index;
+		synchronized(this)
+		{
+			index = keys.indexOf(key);
+			if( index >= 0 )
+				series.set(index, new Ring(capacity));
+			else
+			{
+				keys.add(key);
+				series.add(new Ring(capacity));
+				index = keys.size()-1;
+			}
+		}
+		scheduleNotify();
+		return index;
+	}
+
+	/**
+	* Remove all points from a series
+	* @param index the index of the series
+	*/
+	public void clear(int index)
+	{
+		synchronized(this)
+		{
+			Ring r = series.get(index);
+			r.start = 0;
+			r.count = 0;
+		}
+		scheduleNotify();
+	}
+
+	/**
+	* Get the maximum number of points kept in a series
+	* @param index the index of the series
+	* @return the capacity of the series
+	*/
+	public synchronized int getCapacity(int index)
+	{
+		return series.get(index).x.length;
+	}
+
+	// ---------------------------------------
+	//		Appending data
+	// ---------------------------------------
+	/**
+	* Append a single point to a series, dropping the oldest if it is full
+	* @param index the index of the series
+	* @param x the x value
+	* @param y the y value
+	*/
+	public void append(int index, double x, double y)
+	{
+		synchronized(this)
+		{
+			series.get(index).append(x, y);
+		}
+		scheduleNotify();
+	}
+
+	/**
+	* Append a block of points to a series, dropping the oldest as needed
+	* @param index the index of the series
+	* @param x the x values
+	* @param y the y values (same length as x)
+	*/
+	public void append(int index, double[] x, double[] y)
+	{
+		append(index, x, y, 0, x.length);
+	}
+
+	/**
+	* Append part of a block of points to a series, dropping the oldest as needed
+	* @param index the index of the series
+	* @param x the x values
+	* @param y the y values
+	* @param offset the first element of x and y to use
+	* @param length the number of points to append
+	*/
+	public void append(int index, double[] x, double[] y, int offset, int length)
+	{
+		synchronized(this)
+		{
+			series.get(index).append(x, y, offset, length);
+		}
+		scheduleNotify();
+	}
+
+	/** Queue a single change notification on the EDT, unless one is already queued */
+	private void scheduleNotify()
+	{
+		if( notify_pending.compareAndSet(false,true) )
+			SwingUtilities.invokeLater(notifier);
+	}
+
+	// ---------------------------------------
+	//		XYDataset implementation
+	// ---------------------------------------
+	public synchronized int getSeriesCount()
+	{
+		return keys.size();
+	}
+
+	public synchronized Comparable getSeriesKey(int index)
+	{
+		return keys.get(index);
+	}
+
+	public DomainOrder getDomainOrder()
+	{
+		return DomainOrder.NONE;
+	}
+
+	public synchronized int getItemCount(int index)
+	{
+		return series.get(index).count;
+	}
+
+	public Number getX(int index, int item)
+	{
+		return Double.valueOf(getXValue(index, item));
+	}
+
+	public Number getY(int index, int item)
+	{
+		return Double.valueOf(getYValue(index, item));
+	}
+
+	/**
+	* Get an x value (oldest point is item 0)
+	* @param index the index of the series
+	* @param item the item within the series
+	* @return the x value, clamped to the newest point (see the class comment)
+	*/
+	public synchronized double getXValue(int index, int item)
+	{
+		Ring r = series.get(index);
+		return (r.count > 0) ? r.x[r.position(Math.min(item, r.count-1))] : Double.NaN;
+	}
+
+	/**
+	* Get a y value (oldest point is item 0)
+	* @param index the index of the series
+	* @param item the item within the series
+	* @return the y value, clamped to the newest point (see the class comment)
+	*/
+	public synchronized double getYValue(int index, int item)
+	{
+		Ring r = series.get(index);
+		return (r.count > 0) ? r.y[r.position(Math.min(item, r.count-1))] : Double.NaN;
+	}
+
+	/** Primitive ring buffer holding one series */
+	private static class Ring
+	{
+		double[] x; /** x values */
+		double[] y; /** y values */
+		int start; /** position of the oldest point */
+		int count; /** number of points held */
+
+		Ring(int capacity)
+		{
+			x = new double[capacity];
+			y = new double[capacity];
+		}
+
+		/** Position in the arrays of a given item */
+		int position(int item)
+		{
+			int i = start + item;
+			return (i >= x.length) ? i - x.length : i;
+		}
+
+		void append(double xi, double yi)
+		{
+			int cap = x.length;
+			if( count < cap ) // not full yet
+			{
+				int i = position(count);
+				x[i] = xi; y[i] = yi;
+				count++;
+			}
+			else // overwrite the oldest
+			{
+				x[start] = xi; y[start] = yi;
+				start = (start+1 == cap) ? 0 : start+1;
+			}
+		}
+
+		void append(double[] xs, double[] ys, int offset, int length)
+		{
+			int cap = x.length;
+			// only the newest cap points can survive:
+			if( length > cap )
+			{
+				offset += length - cap;
+				length = cap;
+			}
+			// copy into the ring in at most two pieces:
+			int end = position(count % cap);
+			int first = Math.min(length, cap-end);
+			System.arraycopy(xs, offset, x, end, first);
+			System.arraycopy(ys, offset, y, end, first);
+			System.arraycopy(xs, offset+first, x, 0, length-first);
+			System.arraycopy(ys, offset+first, y, 0, length-first);
+
+			// update start and count:
+			int overflow = count + length - cap;
+			if( overflow > 0 )
+			{
+				start = position(overflow);
+				count = cap;
+			}
+			else
+				count += length;
+		}
+	}
+}
@@ -0,0 +1,510 @@
+package SciTK;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/** Resample scattered (x, y, z) points onto a regular grid, so they can be
+ * drawn by PlotXYZBlock as a grid rather than as blocks which overlap or
+ * leave holes. A KDTree is built over the points once, and each grid is
+ * then evaluated with rows in parallel by one of:
+ *
+ * NEAREST: the value of the nearest point.
+ *
+ * INVERSE_DISTANCE: the mean of the nearest few points (see setNeighbors),
+ * weighted by 1/distance^power (see setPower).
+ *
+ * NATURAL_NEIGHBOR: discrete Sibson interpolation (Park et al., 2006), which
+ * approximates natural neighbor weights on the grid itself: each cell
+ * spreads the value of its nearest point to all cells closer to it than
+ * that point, and each cell is the mean of the values it receives. This
+ * only approaches natural neighbor weights when the cells are much smaller
+ * than the spacing of the points (with a point or more per cell it is the
+ * same as NEAREST), so it runs on a raster about FINE_PER_POINT cells per
+ * point spacing, up to MAX_OVERSAMPLE times finer than the grid in each
+ * direction, and keeps the cells at the grid's centers. The
+ * cost grows with the square of the distance to the nearest point, so
+ * limit it with setMaxDistance when the grid extends far beyond the data.
+ *
+ * Cells farther than the maximum distance from every point are NaN, and are
+ * drawn transparent.
+ *
+ * @package SciTK
+ * @class ScatterGridder
+ * @brief Interpolate scattered points onto a regular grid
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class ScatterGridder
+{
+	/** Interpolation methods. NATURAL_NEIGHBOR is evaluated on a finer raster
+	 * when the points are dense (see the class description); if that would
+	 * need more than MAX_OVERSAMPLE times the grid, or too many cells, the
+	 * raster is coarser than the points and the result tends toward NEAREST */
+	public enum Method
+	{
+		NEAREST("Nearest"), INVERSE_DISTANCE("Inverse distance"), NATURAL_NEIGHBOR("Natural neighbor");
+
+		private final String name; /** Name for menus */
+
+		Method(String name)
+		{
+			this.name = name;
+		}
+
+		public String toString()
+		{
+			return name;
+		}
+	}
+
+	/** Minimum number of grid rows evaluated by one task */
+	public static int MIN_CHUNK = 4;
+	/** Most times finer, in each direction, that NATURAL_NEIGHBOR evaluates the grid */
+	public static int MAX_OVERSAMPLE = 16;
+	/** Cells of the finer raster used by NATURAL_NEIGHBOR per spacing of the points */
+	private static final double FINE_PER_POINT = 4;
+	/** Most cells in the finer raster used by NATURAL_NEIGHBOR */
+	private static final long MAX_FINE_CELLS = 1L << 21;
+
+	private KDTree tree; /** The points */
+	private double[] z; /** Value of each point, in tree order */
+	private int neighbors = 12; /** Number of points used by INVERSE_DISTANCE */
+	private double power = 2; /** Power of the distance for INVERSE_DISTANCE */
+	private double max_distance = Double.POSITIVE_INFINITY; /** Cells farther than this from every point are NaN */
+
+	/**
+	* Constructor, building the tree
+	* @param x the x coordinate of each point
+	* @param y the y coordinate of each point
+	* @param z the value at each point
+	* @throws IllegalArgumentException if the arrays differ in length
+	*/
+	public ScatterGridder(double[] x, double[] y, double[] z)
+	{
+		if( z.length != x.length )
+			throw new IllegalArgumentException("ScatterGridder needs one z for each x and y");
+		tree = new KDTree(x, y);
+		this.z = new double[tree.size()];
+		for(int k=0; k<this.z.length; k++)
+			this.z[k] = z[tree.getIndex(k)];
+	}
+
+	/**
+	* Constructor, building the tree
+	* @param data the points, as {x, y, z} arrays (as for PlotXYZBlock)
+	* @throws IllegalArgumentException if the arrays differ in length
+	*/
+	public ScatterGridder(double[][] data)
+	{
+		this(data[0], data[1], data[2]);
+	}
+
+	/**
+	* Set the number of points used by INVERSE_DISTANCE
+	* @param k the number of nearest points, at least 1
+	*/
+	public void setNeighbors(int k)
+	{
+		neighbors = Math.max(k, 1);
+	}
+
+	/**
+	* Get the number of points used by INVERSE_DISTANCE
+	* @return the number of nearest points
+	*/
+	public int getNeighbors()
+	{
+		return neighbors;
+	}
+
+	/**
+	* Set the power of the distance for INVERSE_DISTANCE
+	* @param p the power, e.g. 2
+	*/
+	public void setPower(double p)
+	{
+		power = p;
+	}
+
+	/**
+	* Get the power of the distance for INVERSE_DISTANCE
+	* @return the power
+	*/
+	public double getPower()
+	{
+		return power;
+	}
+
+	/**
+	* Set the distance beyond which cells have no value
+	* @param d the distance, or infinity for no limit
+	*/
+	public void setMaxDistance(double d)
+	{
+		max_distance = d;
+	}
+
+	/**
+	* Get the distance beyond which cells have no value
+	* @return the distance
+	*/
+	public double getMaxDistance()
+	{
+		return max_distance;
+	}
+
+	/**
+	* Get the tree over the points
+	* @return the tree
+	*/
+	public KDTree getTree()
+	{
+		return tree;
+	}
+
+	/**
+	* Evenly spaced cell centers covering a range, with the first and last on its ends
+	* @param min the first center
+	* @param max the last center
+	* @param n the number of cells
+	* @return the centers
+	*/
+	public static double[] centers(double min, double max, int n)
+	{
+		double[] c = new double[n];
+		double step = (n > 1) ? (max - min)/(n - 1) : 0;
+		for(int i=0; i<n; i++)
+			c[i] = min + i*step;
+		return c;
+	}
+
+	/**
+	* Resample to a grid spanning the points
+	* @param key the name of the dataset
+	* @param nx the number of columns
+	* @param ny the number of rows
+	* @param method how to interpolate
+	* @return the grid, e.g. for PlotXYZBlock
+	* @throws IllegalArgumentException if the points do not span a range of x or y to divide into several cells
+	*/
+	public GridXYZDataset grid(Comparable key, int nx, int ny, Method method)
+	{
+		double[] gx = centers(tree.getXMin(), tree.getXMax(), nx);
+		double[] gy = centers(tree.getYMin(), tree.getYMax(), ny);
+		return new GridXYZDataset(key, grid(gx, gy, method), gx, gy);
+	}
+
+	/**
+	* Resample to a grid
+	* @param gx the center of each column, evenly spaced
+	* @param gy the center of each row, evenly spaced
+	* @param method how to interpolate
+	* @return the values, z[i][j] at (gx[j], gy[i])
+	*/
+	public double[][] grid(double[] gx, double[] gy, Method method)
+	{
+		return grid(gx, gy, method, ParallelUtil.getPool());
+	}
+
+	/**
+	* Resample to a grid
+	* @param gx the center of each column, evenly spaced
+	* @param gy the center of each row, evenly spaced
+	* @param method how to interpolate
+	* @param pool the pool to evaluate rows in
+	* @return the values, z[i][j] at (gx[j], gy[i])
+	*/
+	public double[][] grid(double[] gx, double[] gy, Method method, ForkJoinPool pool)
+	{
+		double[][] out = new double[gy.length][gx.length];
+		if( gy.length == 0 || gx.length == 0 )
+			return out;
+		int chunk = ParallelUtil.chunkSize(gy.length, MIN_CHUNK);
+		if( method == Method.NATURAL_NEIGHBOR )
+		{
+			// on a finer raster if the points are denser than the cells,
+			// whose every f-th center is a center of the grid:
+			int f = oversample(gx, gy);
+			double[] fx = (f > 1) ? centers(gx[0], gx[gx.length-1], (gx.length-1)*f + 1) : gx;
+			double[] fy = (f > 1) ? centers(gy[0], gy[gy.length-1], (gy.length-1)*f + 1) : gy;
+			double[][] fine = (f > 1) ? new double[fy.length][fx.length] : out;
+			int fine_chunk = ParallelUtil.chunkSize(fy.length, MIN_CHUNK);
+
+			// nearest point of each cell, then spread its value:
+			int[][] nearest = new int[fy.length][fx.length];
+			pool.invoke( new NearestTask(fx, fy, fine, nearest, 0, fy.length, fine_chunk) );
+			Spread s = pool.invoke( new SpreadTask(fx, fy, fine, nearest, 0, fy.length, fine_chunk) );
+			for(int i=0; i<gy.length; i++)
+			{
+				int o = (i*f - s.row0)*fx.length;
+				for(int j=0; j<gx.length; j++)
+				{
+					int c = s.count[o + j*f];
+					out[i][j] = (c > 0) ? s.sum[o + j*f]/c : Double.NaN;
+				}
+			}
+		}
+		else if( method == Method.INVERSE_DISTANCE )
+			pool.invoke( new InverseDistanceTask(gx, gy, out, 0, gy.length, chunk) );
+		else
+			pool.invoke( new NearestTask(gx, gy, out, null, 0, gy.length, chunk) );
+		return out;
+	}
+
+	/**
+	* How many times finer NATURAL_NEIGHBOR evaluates a grid, so that the
+	* finer raster has about FINE_PER_POINT cells per spacing of the points
+	* @param gx the center of each column, evenly spaced
+	* @param gy the center of each row, evenly spaced
+	* @return the factor, from 1 to MAX_OVERSAMPLE
+	*/
+	private int oversample(double[] gx, double[] gy)
+	{
+		if( gx.length < 2 || gy.length < 2 )
+			return 1;
+		double cell = Math.abs( (gx[1] - gx[0])*(gy[1] - gy[0]) );
+		double area = (tree.getXMax() - tree.getXMin())*(tree.getYMax() - tree.getYMin());
+		if( !(area > 0) )
+			return 1;
+		// mean spacing of the points, in cells, is 1/sqrt(points per cell):
+		int f = (int)Math.ceil( FINE_PER_POINT*Math.sqrt(tree.size()*cell/area) );
+		f = Math.max(1, Math.min(f, MAX_OVERSAMPLE));
+		// limit the memory of the finer raster:
+		while( f > 1 && (long)((gx.length-1)*f + 1)*((gy.length-1)*f + 1) > MAX_FINE_CELLS )
+			f--;
+		return f;
+	}
+
+	/** Finds the nearest point of each cell in a range of rows, setting its value */
+	private class NearestTask extends RecursiveAction
+	{
+		double[] gx, gy;
+		double[][] out;
+		int[][] nearest;
+		int row_start, row_end, chunk;
+
+		NearestTask(double[] gx, double[] gy, double[][] out, int[][] nearest, int row_start, int row_end, int chunk)
+		{
+			this.gx = gx;
+			this.gy = gy;
+			this.out = out;
+			this.nearest = nearest;
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected void compute()
+		{
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				invokeAll( new NearestTask(gx, gy, out, nearest, row_start, mid, chunk),
+					new NearestTask(gx, gy, out, nearest, mid, row_end, chunk) );
+				return;
+			}
+
+			double max2 = max_distance*max_distance;
+			for(int i=row_start; i<row_end; i++)
+			{
+				// the previous cell's point is near, which narrows the search:
+				int k = -1;
+				for(int j=0; j<gx.length; j++)
+				{
+					k = tree.nearest(gx[j], gy[i], max2, k);
+					out[i][j] = (k >= 0) ? z[k] : Double.NaN;
+					if( nearest != null )
+						nearest[i][j] = k;
+				}
+			}
+		}
+	}
+
+	/** Interpolates a range of rows by inverse distance weighting */
+	private class InverseDistanceTask extends RecursiveAction
+	{
+		double[] gx, gy;
+		double[][] out;
+		int row_start, row_end, chunk;
+
+		InverseDistanceTask(double[] gx, double[] gy, double[][] out, int row_start, int row_end, int chunk)
+		{
+			this.gx = gx;
+			this.gy = gy;
+			this.out = out;
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected void compute()
+		{
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				invokeAll( new InverseDistanceTask(gx, gy, out, row_start, mid, chunk),
+					new InverseDistanceTask(gx, gy, out, mid, row_end, chunk) );
+				return;
+			}
+
+			double max2 = max_distance*max_distance;
+			double half_power = 0.5*power;
+			KDTree.Neighbors nb = new KDTree.Neighbors(neighbors);
+			for(int i=row_start; i<row_end; i++)
+			{
+				for(int j=0; j<gx.length; j++)
+				{
+					tree.nearest(gx[j], gy[i], max2, nb);
+					double sum = 0, weights = 0;
+					for(int m=0; m<nb.size(); m++)
+					{
+						double d2 = nb.getDistance2(m);
+						if( d2 == 0 ) // on a point
+						{
+							sum = z[nb.getPosition(m)];
+							weights = 1;
+							break;
+						}
+						// weights use the squared distance, to save a square root:
+						double w = (half_power == 1) ? 1/d2 : Math.pow(d2, -half_power);
+						sum += w*z[nb.getPosition(m)];
+						weights += w;
+					}
+					out[i][j] = (weights > 0) ? sum/weights : Double.NaN;
+				}
+			}
+		}
+	}
+
+	/** Sums and counts of the values spread to a range of rows */
+	private static class Spread
+	{
+		int row0, row1; /** Rows covered, [row0, row1) */
+		double[] sum; /** Sum of values received by each cell */
+		int[] count; /** Number of values received by each cell */
+
+		Spread(int row0, int row1, int nx)
+		{
+			this.row0 = row0;
+			this.row1 = row1;
+			sum = new double[(row1 - row0)*nx];
+			count = new int[sum.length];
+		}
+	}
+
+	/** Spreads the nearest value of each cell in a range of rows to the cells
+	 * within its nearest distance; the sums of neighbouring bands overlap and
+	 * are added when joined */
+	private class SpreadTask extends RecursiveTask<Spread>
+	{
+		double[] gx, gy;
+		double[][] values;
+		int[][] nearest;
+		int row_start, row_end, chunk;
+
+		SpreadTask(double[] gx, double[] gy, double[][] values, int[][] nearest, int row_start, int row_end, int chunk)
+		{
+			this.gx = gx;
+			this.gy = gy;
+			this.values = values;
+			this.nearest = nearest;
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected Spread compute()
+		{
+			int nx = gx.length, ny = gy.length;
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				SpreadTask right = new SpreadTask(gx, gy, values, nearest, mid, row_end, chunk);
+				right.fork();
+				Spread a = new SpreadTask(gx, gy, values, nearest, row_start, mid, chunk).compute();
+				Spread b = right.join();
+				return merge(a, b, nx);
+			}
+
+			// cell size (the grid is evenly spaced):
+			double dx = (nx > 1) ? Math.abs(gx[1] - gx[0]) : Double.POSITIVE_INFINITY;
+			double dy = (ny > 1) ? Math.abs(gy[1] - gy[0]) : Double.POSITIVE_INFINITY;
+
+			// rows reached from this band:
+			int reach = 0;
+			for(int i=row_start; i<row_end; i++)
+			{
+				for(int j=0; j<nx; j++)
+				{
+					int k = nearest[i][j];
+					if( k >= 0 )
+						reach = Math.max(reach, (int)(radius(i, j, k) / dy));
+				}
+			}
+			Spread s = new Spread(Math.max(0, row_start - reach), Math.min(ny, row_end + reach), nx);
+
+			for(int i=row_start; i<row_end; i++)
+			{
+				for(int j=0; j<nx; j++)
+				{
+					int k = nearest[i][j];
+					if( k < 0 )
+						continue;
+					double v = values[i][j];
+					double r = radius(i, j, k);
+					double r2 = r*r;
+					int di_max = (int)(r / dy);
+					int i0 = Math.max(0, i - di_max), i1 = Math.min(ny - 1, i + di_max);
+					for(int ii=i0; ii<=i1; ii++)
+					{
+						// columns of this row inside the circle:
+						double ry = (ii - i)*dy;
+						int dj = (int)( Math.sqrt(Math.max(0, r2 - ry*ry)) / dx );
+						int j0 = Math.max(0, j - dj), j1 = Math.min(nx - 1, j + dj);
+						int o = (ii - s.row0)*nx;
+						for(int jj=j0; jj<=j1; jj++)
+						{
+							s.sum[o + jj] += v;
+							s.count[o + jj]++;
+						}
+					}
+				}
+			}
+			return s;
+		}
+
+		/** Distance from cell (i, j) to point k */
+		private double radius(int i, int j, int k)
+		{
+			return Math.hypot(tree.getX(k) - gx[j], tree.getY(k) - gy[i]);
+		}
+	}
+
+	/** Add two bands' sums, covering both */
+	private static Spread merge(Spread a, Spread b, int nx)
+	{
+		// reuse a band which already covers both:
+		if( a.row0 <= b.row0 && a.row1 >= b.row1 )
+			return addInto(a, b, nx);
+		if( b.row0 <= a.row0 && b.row1 >= a.row1 )
+			return addInto(b, a, nx);
+		Spread s = new Spread(Math.min(a.row0, b.row0), Math.max(a.row1, b.row1), nx);
+		addInto(s, a, nx);
+		return addInto(s, b, nx);
+	}
+
+	/** Add the sums of b to a, which covers its rows */
+	private static Spread addInto(Spread a, Spread b, int nx)
+	{
+		int o = (b.row0 - a.row0)*nx;
+		for(int m=0; m<b.sum.length; m++)
+		{
+			a.sum[o + m] += b.sum[m];
+			a.count[o + m] += b.count[m];
+		}
+		return a;
+	}
+}
@@ -1,24 +1,34 @@
 package SciTK;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 import javax.imageio.ImageIO;
 import java.awt.Graphics2D;
 import java.awt.Image;
 
 import javax.swing.JLabel;
-import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.JScrollPane;
+import javax.swing.JSlider;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import java.awt.BorderLayout;
 import java.awt.RenderingHints;
 import java.awt.Dimension;
 import java.awt.Toolkit;
 import javax.swing.ImageIcon;
-import java.awt.Container;
 
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 
 import java.io.IOException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.nio.ByteOrder;
 import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.ClipboardOwner;
@@ -28,7 +38,6 @@ import java.awt.datatransfer.UnsupportedFlavorException;
 
 import javax.swing.JFileChooser;
 import java.io.File;
-import java.io.FileWriter;
 
 import java.awt.Point;
 import java.awt.Rectangle;
@@ -42,15 +51,6 @@ import java.awt.event.MouseMotionListener;
 import java.awt.BasicStroke;
 import java.awt.Color;
 
-// for PS/EPS files
-import org.apache.xmlgraphics.java2d.ps.AbstractPSDocumentGraphics2D;
-import org.apache.xmlgraphics.java2d.ps.PSDocumentGraphics2D;
-import org.apache.xmlgraphics.java2d.ps.EPSDocumentGraphics2D;
-
-import java.io.OutputStream;
-import java.io.FileOutputStream;
-import java.awt.image.RescaleOp;
-
 // For SVG files:
 
 // for keyboard shortcuts
@@ -78,23 +78,66 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 	// 					CLASS VARIABLES
 	// -----------------------------------------------------
 	// For storing the raw data in this plot:
-	protected double[][] raw_data; /** The raw data passed to SciTK_Image */
+	protected double[][] raw_data; /** The raw data passed to SciTK_Image, or null if it is not an array */
+	protected RawImage raw_image; /** Source of the raw data, e.g. wrapping raw_data or a mapped file */
+	protected ForkJoinTask<SummedAreaTable> raw_sat; /** Builds the tables for region statistics in the background, started on first use after the data change */
+	private JLabel stats_label; /** Label showing the rectangle while its statistics wait for raw_sat, or null */
+	protected RadialProfile radial_profile; /** Radius bins about the last profile center */
+	protected PlotXYLine radial_plot; /** Window showing the radial profile, if opened */
+	protected double lineout_angle = 0; /** Angle of lineouts in degrees, 0 is horizontal */
+	protected int lineout_width = 1; /** Number of pixels averaged across point lineouts */
+	protected PlotXYLine lineout_plot; /** Window showing the lineout, if opened */
+	private double[][] lineout_buffer; /** Reused for each lineout update */
+	private boolean lineout_on_point; /** True if the point was moved more recently than the rectangle */
+	protected ImageHistogram histogram; /** Histogram of the raw data, kept for contrast changes */
+	protected short[] level_codes; /** Histogram code of each pixel (see ImageNormalizer.quantize), from which display_data is made */
+	private byte[] code_levels; /** Display level of each histogram code, for the contrast range */
+	protected double contrast_low = AUTO_CONTRAST_LOW; /** Percentile drawn with the first colormap entry */
+	protected double contrast_high = AUTO_CONTRAST_HIGH; /** Percentile drawn with the last colormap entry */
+	protected double contrast_gamma = 1; /** Exponent applied to the scaled values, below 1 brightens */
+	protected PlotXYStep histogram_plot; /** Window showing the histogram, if opened */
 	protected int raw_width; /** Intrinsic width of the data */
 	protected int raw_height; /** Intrinsic height of the data */
 
-	// for storing scaled image data:
-	protected int[] image_data; /** Scaled data */
-	protected int[] image_data_overlay; /** For displaying overlays */
 	// dimensions of the scaled data:
 	protected int width; /** Width of the displayed image */
 	protected int height; /** Height of the displayed image */
 	protected double scale; /** Scale factor for the image */
 
 	// For displaying the image in a JFrame:
-	protected BufferedImage image; /** Pure image */
-	protected BufferedImage image_overlay; /** Image with overlays */
-	protected ImageIcon icon; /** ImageIcon - convenient for displaying the BufferedImage */
-	protected JLabel icon_label; /** JLabel - convenient for displaying the BufferedImage */
+	protected byte[] display_data; /** Scaled data, one byte per pixel in row-major order */
+	protected IndexColorModel colormap; /** Maps scaled values to colors */
+	protected IndexColorModel display_colormap; /** Maps levels of display_data to colors, with the contrast applied */
+	protected BufferedImage base_image; /** Full resolution image wrapping display_data, without overlays */
+	protected ImagePyramid pyramid; /** Reduced versions of base_image, for zooming out */
+	protected BufferedImage image; /** Scaled image with overlays, for saving and copying */
+	protected boolean image_stale; /** True if image needs to be regenerated */
+	protected TiledImagePanel image_panel; /** Displays the visible part of base_image */
+	protected JScrollPane scroll_pane; /** Scrolls image_panel */
+
+	/** Default percentile drawn black, so a few extreme pixels do not set the contrast */
+	public static double AUTO_CONTRAST_LOW = 0.1;
+	/** Default percentile drawn white */
+	public static double AUTO_CONTRAST_HIGH = 99.9;
+	/** Number of bins shown in the histogram plot */
+	public static int HISTOGRAM_PLOT_BINS = 512;
+
+	/** Largest summed-area tables built for region statistics, in bytes (16 per pixel); larger images are scanned instead */
+	public static long SAT_MAX_BYTES = 1L << 30;
+
+	/** Memory budget for cached display tiles, in bytes */
+	public static long TILE_CACHE_BYTES = 64L*1024*1024;
+
+	// For displaying a stack of frames (movie mode):
+	protected ImageStack stack; /** The frames, or null if displaying a single image */
+	protected FrameCache frame_cache; /** Normalized frames of the stack */
+	protected int frame; /** The frame being displayed */
+	protected JSlider frame_slider; /** Selects the frame */
+
+	/** Number of quantized frames (two bytes per pixel) kept in memory for a stack */
+	public static int FRAME_CACHE_SIZE = 32;
+	/** Number of frames on each side of the current one to prefetch */
+	public static int PREFETCH_FRAMES = 2;
 
 	// title for the window:
 	protected String title;
@@ -124,6 +167,8 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 	private Point c_point2_image;
 	private boolean c_selected; // if circle has been selected
 
+	private Rectangle overlay_bounds; // display area covered by the selections when last drawn
+
 
 	// -----------------------------------------------------
 	// 					CONSTRUCTORS
@@ -154,9 +199,20 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 	* @param title_in the title of this plot
 	*/
 	public SciTK_Image(double[][] raw_data_in, String title_in)
+	{
+		this( new ArrayRawImage(raw_data_in), title_in );
+	}
+
+	/** 
+	* Constructor using any source of raw data, e.g. a MappedRawImage.
+	* The data are read from the source whenever needed, and never copied.
+	* @param raw_image_in the data
+	* @param title_in the title of this plot
+	*/
+	public SciTK_Image(RawImage raw_image_in, String title_in)
 	{
 		// set the data:
-		updateData(raw_data_in);
+		updateData(raw_image_in);
 		
 		// Set the window title
 		title_root = title_in;
@@ -166,6 +222,53 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 		initUI();
 	}
 
+	/** 
+	* Constructor for a stack of frames, e.g. a movie. A slider selects the
+	* frame; frames are normalized when first shown (or prefetched), and kept
+	* in a cache of FRAME_CACHE_SIZE frames.
+	* @param stack_in the frames
+	* @param title_in the title of this plot
+	*/
+	public SciTK_Image(ImageStack stack_in, String title_in)
+	{
+		// set the data:
+		stack = stack_in;
+		frame_cache = new FrameCache(stack, FRAME_CACHE_SIZE);
+		frame = 0;
+		loadFrame();
+
+		// pick a scale factor so the initial display fits in 200 pixels:
+		scale = Math.min( 1.0, 200.0/(double)Math.max(width,height) );
+
+		// Set the window title
+		title_root = title_in;
+		title = title_in + " [1/" + stack.getFrameCount() + "] (" + Integer.toString((int)(scale*100.0)) + "%)";
+
+		// create the UI:
+		initUI();
+	}
+
+
+	/**
+	* Display a raw binary image file (e.g. from a detector) without loading
+	* it into memory. The file is memory mapped, and normalization, display
+	* and saving read directly from the mapping.
+	* @param file the file to read
+	* @param width the number of columns
+	* @param height the number of rows
+	* @param type the type of each value
+	* @param order the byte order of the values (ByteOrder.BIG_ENDIAN or LITTLE_ENDIAN)
+	* @param header_bytes the number of bytes before the first value
+	* @param title_in the title of this plot
+	* @return the new image window
+	* @throws IOException if the file cannot be opened or is too short
+	*/
+	public static SciTK_Image openRaw(File file, int width, int height, MappedRawImage.DataType type,
+		ByteOrder order, long header_bytes, String title_in) throws IOException
+	{
+		return new SciTK_Image( new MappedRawImage(file, width, height, type, order, header_bytes), title_in );
+	}
+
 
 	// -----------------------------------------------------
 	// 					Update intrinsic data
@@ -194,112 +297,641 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 	 */
 	public void updateData(double[][] raw_data_in)
 	{
+		updateData( new ArrayRawImage(raw_data_in) );
+	}
+
+	/**
+	 * Update data displayed in the image 
+	 * @param raw_image_in the data, which is read directly when needed
+	 */
+	public void updateData(RawImage raw_image_in)
+	{
+		// a single image replaces any stack; its codes belonged to the cache:
+		if( stack != null )
+		{
+			stack = null;
+			frame_cache = null;
+			level_codes = null;
+			if( frame_slider instanceof JSlider )
+			{
+				remove(frame_slider);
+				frame_slider = null;
+			}
+		}
+
 		// copy raw data to class variable
-		raw_data = raw_data_in;
+		setRawImage(raw_image_in);
+
+		// data for display, quantized to histogram codes so that the contrast
+		// can be changed without reading the raw data (see setContrast).
+		// The buffers are reused if the size has not changed.
+		if( level_codes == null || level_codes.length != width*height )
+			level_codes = new short[width*height];
+		histogram = new ImageHistogram(raw_image);
+		ImageNormalizer.quantize(raw_image, histogram, level_codes, width);
+		applyLevels();
+		updateDisplayImage();
+		updateHistogram();
+
+		// pick a scale factor so the initial display fits in 200 pixels:
+		scale = Math.min( 1.0, 200.0/(double)Math.max(width,height) );
+
+		// update the UI if the image is already displayed:
+		if( this.isVisible() )
+			updateUI();
+	}
+
+
+	/** Set the raw data and the image dimensions */
+	private void setRawImage(RawImage raw_image_in)
+	{
+		raw_image = raw_image_in;
+		raw_data = (raw_image instanceof ArrayRawImage) ? ((ArrayRawImage)raw_image).getData() : null;
+		raw_sat = null;
 		// set widths and heights:
-		raw_width = raw_data[0].length;
-		raw_height = raw_data.length;
+		raw_width = raw_image.getWidth();
+		raw_height = raw_image.getHeight();
 		width = raw_width;
 		height = raw_height;
+	}
 
-		// allocate array for the image data:
-		image_data = new int[(raw_width*raw_height)];
+	/** Wrap display_data in the full resolution image and pass it to the display */
+	private void updateDisplayImage()
+	{
+		if( colormap == null )
+			colormap = grayColormap();
+		display_colormap = contrastColormap();
+
+		// full resolution image, wrapping the buffer directly:
+		DataBufferByte buffer = new DataBufferByte(display_data, display_data.length);
+		WritableRaster raster = Raster.createInterleavedRaster(buffer, width, height, width, 1, new int[] {0}, null);
+		base_image = new BufferedImage(display_colormap, raster, false, null);
+		// reduced levels are rebuilt in their old buffers if the size is unchanged:
+		if( pyramid == null )
+			pyramid = new ImagePyramid(base_image);
+		else
+			pyramid.setBase(base_image);
+		image_stale = true;
+		if( image_panel instanceof TiledImagePanel )
+			image_panel.setSource(pyramid);
+	}
+
+	// -----------------------------------------------------
+	// 					Region statistics
+	// -----------------------------------------------------
+	/**
+	* Get statistics of the raw data in a rectangle. Sum, mean and standard
+	* deviation take constant time using summed-area tables, which are built
+	* on the first use after the data change (this waits for them); min and
+	* max scan the rectangle. If the tables would take more than
+	* SAT_MAX_BYTES, or a quarter of the maximum heap, the whole rectangle
+	* is scanned instead.
+	* @param r the rectangle in image pixels, covering [x,x+width) x [y,y+height); clipped to the image
+	* @return the statistics
+	*/
+	public RegionStats getRegionStats(Rectangle r)
+	{
+		return regionStats(r, true);
+	}
 
-		// Find the max and min values:
-		double max = raw_data[0][0];
-		double min = raw_data[0][0];
-		for(int i=0; i<raw_height;i++)
+	/**
+	* Get statistics of the raw data in a rectangle
+	* @param r the rectangle in image pixels
+	* @param wait true to wait for the summed-area tables if they are being built
+	* @return the statistics, or null if not waiting and the tables are not ready
+	*/
+	private RegionStats regionStats(Rectangle r, boolean wait)
+	{
+		ForkJoinTask<SummedAreaTable> task = summedAreaTask();
+		if( task != null && !task.isDone() )
 		{
-			for(int j=0;j<raw_width;j++)
-			{
-				if( max < raw_data[i][j])
-					max = raw_data[i][j];
-				else if (min > raw_data[i][j])
-					min = raw_data[i][j];
-			}
+			if( !wait )
+				return null;
+			task.quietlyJoin();
 		}
+		// if the tables could not be built (e.g. out of memory), scan:
+		if( task == null || task.isCompletedAbnormally() )
+			return SummedAreaTable.scan(raw_image, r.x, r.y, r.width, r.height);
+		return task.join().getStats(r.x, r.y, r.width, r.height);
+	}
 
-		// if max == min:
-		if( max == min )
-			min = 0;
+	/**
+	* Get the task building the summed-area tables of the raw data, starting it on the shared pool if needed
+	* @return the task, or null if the tables would be too large
+	*/
+	private synchronized ForkJoinTask<SummedAreaTable> summedAreaTask()
+	{
+		long bytes = 16L*(raw_width+1)*(raw_height+1);
+		if( bytes > SAT_MAX_BYTES || bytes > Runtime.getRuntime().maxMemory()/4 )
+			return null;
+		if( raw_sat == null )
+		{
+			raw_sat = new SummedAreaTask(raw_image);
+			ParallelUtil.getPool().execute(raw_sat);
+		}
+		return raw_sat;
+	}
 
-		// Create image data, which is auto scaled so that
-		// max -> white
-		// min -> black
-		for (int i=0; i<raw_height; i++) 
+	/** Builds the summed-area tables, then shows the statistics of a rectangle dragged meanwhile */
+	private class SummedAreaTask extends RecursiveTask<SummedAreaTable>
+	{
+		RawImage source;
+
+		SummedAreaTask(RawImage source)
 		{
-			for(int j=0; j<raw_width; j++)
-			{
-				image_data[i*raw_width+j] = (int)( (double)(255) * ( raw_data[i][j] - min )/(max-min));
-			}	
+			this.source = source;
 		}
-		// Images are generally byte grayscale.
-		// For overlays, we convert to a RGB array
-		image_data_overlay = new int[3*(width*height)];
-		for(int i=0; i<height; i++)
+
+		protected SummedAreaTable compute()
 		{
-			for(int j=0; j<width; j++)
+			try
 			{
-				int temp = image_data[i*width+j];
-				image_data_overlay[3*(i*width+j)] = temp;
-				image_data_overlay[3*(i*width+j)+1] = temp;
-				image_data_overlay[3*(i*width+j)+2] = temp;
+				return new SummedAreaTable(source);
 			}
-		} 
-
-		// pick a scale factor
-		scale = (double)1.0;
-		if( width > 200 || height > 200 )
-		{
-			while( scale*width > 200 )
+			finally
 			{
-				scale -= 0.1;
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						refreshStats();
+					}
+				});
 			}
 		}
 
-		// update the UI if the image is already displayed:
-		if( this.isVisible() )
-			updateUI();
+		/** On the EDT: show the statistics if they are still waiting for these tables */
+		void refreshStats()
+		{
+			if( this != raw_sat || stats_label == null || stats_label != select_instruction || !r_selected )
+				return;
+			// this task completes just after posting the refresh:
+			quietlyJoin();
+			showRectangleStats();
+		}
 	}
 
+	/** Show the size and statistics of the selected rectangle in the instruction label, without waiting for the summed-area tables */
+	private void showRectangleStats()
+	{
+		RegionStats stats = regionStats(r_image, false);
+		stats_label = (stats == null) ? select_instruction : null;
+		select_instruction.setText("Width: " + r_image.width + ", Height: " + r_image.height
+			+ "   " + (stats == null ? "Statistics: computing\u2026" : stats.toString()));
+	}
+
+	/**
+	* Get statistics of the raw data in the selected rectangle
+	* @return the statistics, or null if no rectangle is selected
+	*/
+	public RegionStats getSelectionStats()
+	{
+		if( !r_selected )
+			return null;
+		return getRegionStats(r_image);
+	}
+
+	/**
+	* Get the azimuthally averaged radial profile of the raw data about a
+	* center. The radius bins (1 pixel wide) are cached for the last center,
+	* and the bin sums for the last image, so repeated calls with a new
+	* radius are cheap.
+	* @param center the center pixel
+	* @param radius the largest radius to include, in pixels
+	* @return the profile, [0] the radius and [1] the mean value at that radius
+	*/
+	public double[][] getRadialProfile(Point center, double radius)
+	{
+		if( radial_profile == null || !radial_profile.matches(width, height, center.x, center.y) )
+			radial_profile = new RadialProfile(width, height, center.x, center.y, 1.0);
+		return radial_profile.getProfile(raw_image, radius);
+	}
+
+	/**
+	* Get the radial profile inside the selected circle
+	* @return the profile, [0] the radius and [1] the mean value at that radius, or null if no circle is selected
+	*/
+	public double[][] getSelectionRadialProfile()
+	{
+		if( !c_selected )
+			return null;
+		return getRadialProfile(c_point1_image, c_image.getWidth()/2.0);
+	}
+
+	/**
+	* Show the radial profile inside the selected circle in a PlotXYLine.
+	* If the plot is already open its data is replaced, so it follows the circle.
+	* @return the plot, or null if no circle is selected
+	*/
+	public PlotXYLine showRadialProfile()
+	{
+		double[][] profile = getSelectionRadialProfile();
+		if( profile == null )
+			return null;
+		if( radial_plot == null || !radial_plot.isDisplayable() )
+			radial_plot = new PlotXYLine(profile, "Radial profile", "Radius (px)", "Mean", title_root + " radial profile");
+		else
+			radial_plot.updateData(profile, "Radial profile");
+		return radial_plot;
+	}
+
+	/** Update the radial profile plot in place, if it is open */
+	protected void updateRadialProfile()
+	{
+		if( radial_plot != null && radial_plot.isDisplayable() )
+			showRadialProfile();
+	}
+
+	/**
+	* Get a lineout of the raw data through a point
+	* @param p the point, in image pixels
+	* @param angle the angle in degrees, counterclockwise from horizontal (90 is vertical)
+	* @param avg_width the number of pixels to average across the line
+	* @return the lineout, [0] the position along the line relative to p and [1] the value
+	*/
+	public double[][] getLineout(Point p, double angle, int avg_width)
+	{
+		return Lineout.angled(raw_image, p.x, p.y, angle, avg_width, null);
+	}
+
+	/**
+	* Get the lineout for the current selection, using the lineout angle and width.
+	* If a rectangle is selected, horizontal and vertical lineouts span the
+	* rectangle and are averaged over its height or width; other angles pass
+	* through its center. Otherwise the lineout passes through the selected point.
+	* @return the lineout, [0] the position and [1] the value, or null if nothing is selected
+	*/
+	public double[][] getSelectionLineout()
+	{
+		return selectionLineout(null);
+	}
+
+	/** Compute the selection lineout, reusing out if possible */
+	private double[][] selectionLineout(double[][] out)
+	{
+		double a = ((lineout_angle % 180) + 180) % 180;
+		if( r_selected && !(lineout_on_point && p_image != null) )
+		{
+			Rectangle r = r_image;
+			if( a == 0 )
+				return Lineout.horizontal(raw_image, r.y, r.y+Math.max(r.height,1), r.x, r.x+r.width, out);
+			if( a == 90 )
+				return Lineout.vertical(raw_image, r.x, r.x+Math.max(r.width,1), r.y, r.y+r.height, out);
+			return Lineout.angled(raw_image, r.getCenterX(), r.getCenterY(), lineout_angle, lineout_width, out);
+		}
+		if( p_image != null )
+			return Lineout.angled(raw_image, p_image.x, p_image.y, lineout_angle, lineout_width, out);
+		return null;
+	}
+
+	/**
+	* Set the lineout direction and averaging, and update the lineout plot if it is open
+	* @param angle the angle in degrees, counterclockwise from horizontal (90 is vertical)
+	* @param avg_width the number of pixels to average across point lineouts
+	*/
+	public void setLineout(double angle, int avg_width)
+	{
+		lineout_angle = angle;
+		lineout_width = Math.max(avg_width, 1);
+		updateLineout();
+	}
+
+	/**
+	* Show the lineout of the current selection in a PlotXYLine. The plot is
+	* linked to this image, and follows the selection as it moves.
+	* @return the plot, or null if nothing is selected
+	*/
+	public PlotXYLine showLineout()
+	{
+		lineout_buffer = selectionLineout(lineout_buffer);
+		if( lineout_buffer == null )
+			return null;
+		if( lineout_plot == null || !lineout_plot.isDisplayable() )
+		{
+			lineout_plot = new PlotXYLine(lineout_buffer, "Lineout", "Position (px)", "Value", title_root + " lineout");
+			lineout_plot.setLevelOfDetail(true);
+		}
+		else
+			lineout_plot.updateData(lineout_buffer, "Lineout");
+		return lineout_plot;
+	}
+
+	/** Update the lineout plot in place, if it is open */
+	protected void updateLineout()
+	{
+		if( lineout_plot != null && lineout_plot.isDisplayable() )
+			showLineout();
+	}
+
+	/** Prompt for the lineout angle and width, then show the lineout */
+	public void promptLineout()
+	{
+		DialogMultiPrompt prompt = new DialogMultiPrompt(
+			new PromptValue[] { new PromptValueNumeric(Double.toString(lineout_angle),"Angle (deg)"),
+				new PromptValueNumeric(Integer.toString(lineout_width),"Width (px)") },
+			"Lineout");
+		if( prompt.getAccepted() == false ) // user cancelled
+			return;
+		try
+		{
+			PromptValue[] values = prompt.getValuesArray();
+			setLineout( ((PromptValueNumeric)values[0]).get_value_double(), (int)((PromptValueNumeric)values[1]).get_value_double() );
+		}
+		catch(Exception e)
+		{
+			DialogError emsg = new DialogError(this," Unable to set lineout, try again. " + '\n' + e.getMessage());
+			return;
+		}
+		showLineout();
+	}
 
 	// -----------------------------------------------------
-	// 					IMAGE GENERATION
+	// 					Contrast
 	// -----------------------------------------------------
-	/** Generate the image to be displayed, with scale factor */
-	public void generateImage()
+	/**
+	* Set the display contrast. Values at or below the low percentile of the
+	* data are drawn with the first colormap entry, and values at or above the
+	* high percentile with the last. Percentiles come from the cached
+	* histogram and the display is re-leveled from the per-pixel histogram
+	* codes, so the raw data are not read; a gamma change alone only
+	* rebuilds the palette.
+	* @param low_percent the percentile drawn with the first entry, from 0 to 100
+	* @param high_percent the percentile drawn with the last entry, greater than low_percent
+	* @param gamma the exponent applied in between (1 is linear, below 1 brightens)
+	* @throws IllegalArgumentException if the percentiles or gamma are not valid
+	*/
+	public void setContrast(double low_percent, double high_percent, double gamma)
 	{
-		if( icon instanceof ImageIcon) 
-			icon.getImage().flush();
-		// Set up temp image at native resolution
-		BufferedImage temp;
-		// needs to be in color if overlays will be displayed:
-		if( p_selected || r_selected || c_selected )
+		if( !(low_percent >= 0 && high_percent <= 100 && low_percent < high_percent) )
+			throw new IllegalArgumentException("Percentiles must satisfy 0 <= low < high <= 100");
+		if( !(gamma > 0) )
+			throw new IllegalArgumentException("Gamma must be positive");
+		boolean window = (low_percent != contrast_low || high_percent != contrast_high);
+		contrast_low = low_percent;
+		contrast_high = high_percent;
+		contrast_gamma = gamma;
+		// a new window re-levels the codes, gamma alone is in the palette:
+		if( window )
 		{
-			temp = new BufferedImage(width,height,BufferedImage.TYPE_INT_RGB);
-			temp.getRaster().setPixels(0,0,width,height,image_data_overlay);
+			applyLevels();
+			updateDisplayImage();
 		}
 		else
+			applyColormap();
+		updateHistogram();
+	}
+
+	/** Reset the contrast to the default percentiles (AUTO_CONTRAST_LOW and AUTO_CONTRAST_HIGH), with no gamma */
+	public void autoContrast()
+	{
+		setContrast(AUTO_CONTRAST_LOW, AUTO_CONTRAST_HIGH, 1);
+	}
+
+	/**
+	* Get the display contrast
+	* @return {low percentile, high percentile, gamma}
+	*/
+	public double[] getContrast()
+	{
+		return new double[] { contrast_low, contrast_high, contrast_gamma };
+	}
+
+	/**
+	* Get the raw values at the ends of the contrast range
+	* @return {value drawn with the first colormap entry, value drawn with the last}
+	*/
+	public double[] getContrastRange()
+	{
+		return new double[] { histogram.percentile(contrast_low), histogram.percentile(contrast_high) };
+	}
+
+	/**
+	* Get the histogram of the raw data (of the current frame, for a stack)
+	* @return the histogram
+	*/
+	public ImageHistogram getHistogram()
+	{
+		return histogram;
+	}
+
+	/** Make display_data from the histogram codes, linear in the contrast range */
+	private void applyLevels()
+	{
+		if( display_data == null || display_data.length != level_codes.length )
+			display_data = new byte[level_codes.length];
+		if( code_levels == null || code_levels.length < histogram.getCodeCount() )
+			code_levels = new byte[histogram.getCodeCount()];
+		double[] range = getContrastRange();
+		ImageNormalizer.levels(histogram, range[0], range[1], code_levels);
+		ImageNormalizer.applyLevels(level_codes, code_levels, display_data, ParallelUtil.getPool());
+	}
+
+	/** Compose the colormap with the gamma, as a palette for the levels of display_data */
+	private IndexColorModel contrastColormap()
+	{
+		int last = colormap.getMapSize()-1;
+		byte[] r = new byte[256], g = new byte[256], b = new byte[256];
+		for(int k=0; k<256; k++)
 		{
-			temp = new BufferedImage(width,height,BufferedImage.TYPE_BYTE_GRAY);
-			temp.getRaster().setPixels(0,0,width,height,image_data);
+			// levels are linear in the contrast range (see applyLevels):
+			double t = Math.pow( k/255.0, contrast_gamma );
+			int rgb = colormap.getRGB( (int)Math.round(t*last) );
+			r[k] = (byte)(rgb >> 16);
+			g[k] = (byte)(rgb >> 8);
+			b[k] = (byte)rgb;
 		}
-		
+		return new IndexColorModel(8, 256, r, g, b);
+	}
+
+	/**
+	* Show the histogram of the raw data in a PlotXYStep, with the bins
+	* spanning the bulk of the data. If the plot is already open its data
+	* is replaced (e.g. when the frame changes).
+	* @return the plot
+	*/
+	public PlotXYStep showHistogram()
+	{
+		double[][] data = histogram.getPlotData(HISTOGRAM_PLOT_BINS);
+		if( histogram_plot == null || !histogram_plot.isDisplayable() )
+			histogram_plot = new PlotXYStep(data, "Histogram", "Value", "Count", title_root + " histogram");
+		else
+			histogram_plot.updateData(data, "Histogram");
+		return histogram_plot;
+	}
+
+	/** Update the histogram plot in place, if it is open */
+	protected void updateHistogram()
+	{
+		if( histogram_plot != null && histogram_plot.isDisplayable() )
+			showHistogram();
+	}
+
+	/** Prompt for the contrast percentiles and gamma */
+	public void promptContrast()
+	{
+		DialogMultiPrompt prompt = new DialogMultiPrompt(
+			new PromptValue[] { new PromptValueNumeric(Double.toString(contrast_low),"Low percentile"),
+				new PromptValueNumeric(Double.toString(contrast_high),"High percentile"),
+				new PromptValueNumeric(Double.toString(contrast_gamma),"Gamma") },
+			"Contrast");
+		if( prompt.getAccepted() == false ) // user cancelled
+			return;
+		try
+		{
+			PromptValue[] values = prompt.getValuesArray();
+			setContrast( ((PromptValueNumeric)values[0]).get_value_double(),
+				((PromptValueNumeric)values[1]).get_value_double(),
+				((PromptValueNumeric)values[2]).get_value_double() );
+		}
+		catch(Exception e)
+		{
+			DialogError emsg = new DialogError(this," Unable to set contrast, try again. " + '\n' + e.getMessage());
+		}
+	}
+
+	// -----------------------------------------------------
+	// 					Stacks of frames
+	// -----------------------------------------------------
+	/**
+	* Show a frame of the stack. The display scale and selections are kept.
+	* @param k the frame number, starting at 0
+	*/
+	public void setFrame(int k)
+	{
+		if( stack == null )
+			return;
+		k = Math.max(0, Math.min(k, stack.getFrameCount()-1));
+		if( k == frame )
+			return;
+		frame = k;
+		loadFrame();
+
+		if( frame_slider instanceof JSlider && frame_slider.getValue() != frame )
+			frame_slider.setValue(frame);
+		if( this.isVisible() )
+			updateUI();
+	}
+
+	/**
+	* Get the frame being displayed
+	* @return the frame number, or 0 if this is not a stack
+	*/
+	public int getFrame()
+	{
+		return frame;
+	}
+
+	/**
+	* Get the stack being displayed
+	* @return the stack, or null if displaying a single image
+	*/
+	public ImageStack getStack()
+	{
+		return stack;
+	}
+
+	/** Display the current frame from the cache, and prefetch its neighbors */
+	private void loadFrame()
+	{
+		setRawImage(stack.getFrame(frame));
+		FrameCache.Frame f = frame_cache.get(frame);
+		level_codes = f.getCodes();
+		histogram = f.getHistogram();
+		applyLevels();
+		updateDisplayImage();
+		updateHistogram();
+		frame_cache.prefetch(frame, PREFETCH_FRAMES);
+	}
+
+	/**
+	* Set the colors used to display the data. Entry 0 is used for the
+	* low end of the contrast range and entry 255 for the high end. The
+	* scaled data are not recomputed, only the display is redrawn.
+	* @param colormap an 8-bit color model with 256 entries
+	*/
+	public void setColormap(IndexColorModel colormap)
+	{
+		this.colormap = colormap;
+		applyColormap();
+	}
+
+	/**
+	* Set the colors used to display the data from a Colormap, e.g. Colormap.VIRIDIS
+	* @param colormap the colors, from the low to the high end of the contrast range
+	*/
+	public void setColormap(Colormap colormap)
+	{
+		setColormap(colormap.toIndexColorModel());
+	}
+
+	/** Redraw the display with a new palette, from the colormap and contrast */
+	private void applyColormap()
+	{
+		display_colormap = contrastColormap();
+		pyramid = pyramid.withColorModel(display_colormap);
+		base_image = pyramid.getBase();
+		image_stale = true;
+		if( image_panel instanceof TiledImagePanel )
+			image_panel.setSource(pyramid);
+	}
+
+	/**
+	* Get the colors used to display the data
+	* @return the color model
+	*/
+	public IndexColorModel getColormap()
+	{
+		return colormap;
+	}
+
+	/**
+	* Create the default colormap, a linear grayscale
+	* @return a 256 entry gray color model
+	*/
+	public static IndexColorModel grayColormap()
+	{
+		byte[] levels = new byte[256];
+		for(int i=0; i<256; i++)
+			levels[i] = (byte)i;
+		return new IndexColorModel(8, 256, levels, levels, levels);
+	}
+
+	// -----------------------------------------------------
+	// 					IMAGE GENERATION
+	// -----------------------------------------------------
+	/** Generate the scaled image with overlays, used for saving and copying */
+	public void generateImage()
+	{
 		// calculated scaled dimensions:
 		int disp_width = (int) (scale*(float)width);
 		int disp_height = (int) (scale*(float)height);
 
-		// set class image variable to a BufferedImage with the scaled dimensions:
-		image = new BufferedImage(disp_width, disp_height, temp.getType());  
+		// set class image variable to a BufferedImage with the scaled dimensions,
+		// in color only if overlays or a color map will be drawn:
+		boolean gray = !(p_selected || r_selected || c_selected) && TiledImagePanel.isGray(display_colormap);
+		image = new BufferedImage(disp_width, disp_height, gray ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);  
 
-		// Use Graphics2D to re-render temp into image:
+		// Use Graphics2D to re-render the nearest pyramid level into image:
+		BufferedImage level = pyramid.getLevel( pyramid.levelFor(scale) );
 		Graphics2D g = image.createGraphics();  
 		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
 		RenderingHints.VALUE_INTERPOLATION_BILINEAR);  
-		g.drawImage(temp, 0, 0, disp_width, disp_height, 0, 0, width, height, null);  
+		g.drawImage(level, 0, 0, disp_width, disp_height, 0, 0, level.getWidth(), level.getHeight(), null);  
 
 		// If a point/rectangle is selected, draw them:
-			g.setStroke(new BasicStroke((float)1.0));
+		paintSelections(g, scale);
+
+		// done drawing
+		g.dispose();  
+		image_stale = false;
+	}
+
+	/**
+	* Draw the selected point, rectangle and circle
+	* @param g the graphics to draw on, with (0,0) at the image's top left corner
+	* @param scale the display scale
+	*/
+	protected void paintSelections(Graphics2D g, double scale)
+	{
+		g.setStroke(new BasicStroke((float)1.0));
 		if( p_selected )
 		{
 			Rectangle to_draw = new Rectangle((int)(p_image.x*scale), (int)(p_image.y*scale), 
@@ -330,13 +962,6 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 			g.setColor(new Color(0,255,0,50));
 			g.fill(c_scaled);
 		}
-
-		// done drawing
-		g.dispose();  
-
-		// generate a new ImageIcon from image:
-		icon = new ImageIcon(image);
-		icon_label.setIcon(icon); 
 	}
 
 	// -----------------------------------------------------
@@ -362,6 +987,7 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 			//get the file extension from the filter:
 			save_file = fc.getSelectedFile();
 			String extension = fc.getFileFilter().getDescription();
+			getImage(); // make sure image is up to date
 			try // try/catch for IO errors
 			{
 				// For each type of extension, check to see if the name includes the
@@ -433,16 +1059,11 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 				save_file = new File(save_file.getAbsolutePath()+".csv");
 			}
 
-			// create a string to save
-			String s = toString();
-
 			// IO inside a try/catch
 			try
 			{
-				// Create a File Writer
-				FileWriter fw = new FileWriter(save_file);
-				fw.write(s);
-				fw.close();
+				// format and write the data in parallel blocks:
+				ImageDataWriter.write(raw_image, save_file);
 			}
 			// If there was an error, launch an error dialog box:
 			catch(IOException e)
@@ -452,11 +1073,22 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 		}
 	}
 
+	/**
+	* Get the image at the current scale, including any selections
+	* @return the current image
+	*/
+	public BufferedImage getImage()
+	{
+		if( image_stale || image == null )
+			generateImage();
+		return image;
+	}
+
 	/** Copy the displayed image to the clipboard */
 	public void copyImage()
 	{
 		Clipboard c = Toolkit.getDefaultToolkit().getSystemClipboard();
-		TransferableImage to_copy = new TransferableImage(image);
+		TransferableImage to_copy = new TransferableImage(getImage());
 		c.setContents(to_copy,this);
 	}
 
@@ -477,20 +1109,9 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 	*/
 	public String toString()
 	{
-		String s = new String(""); // build a new string
-		//iterate over all elements in 2D array:
-		for(int i=0; i<raw_height; i++)
-		{
-			for(int j=0; j<raw_width; j++)
-			{
-				// add the number at [i][j] to s, then a delim char:
-				s = s.concat( Double.toString(raw_data[i][j]) );
-				s = s.concat(SciTK_Text.TOOLKIT_CSV_DELIM);
-			}
-			// line break:
-			s = s.concat(SciTK_Text.TOOLKIT_NEWLINE);
-		}
-		return s;
+		StringBuilder s = new StringBuilder(); // build a new string
+		ImageDataWriter.formatRows(raw_image, 0, raw_height, s);
+		return s.toString();
 	}
 
 
@@ -520,18 +1141,68 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 	/** Update the displayed image */
 	public void updateUI()
 	{
-		// Update the image:
-		generateImage();
-
-		// update the title (if zoom change):
-		title = title_root + " (" + Integer.toString((int)(scale*100.0)) + "%)";
+		// saved/copied image needs to be regenerated:
+		image_stale = true;
+
+		// update the title (if zoom or frame change):
+		title = title_root;
+		if( stack != null )
+			title += " [" + (frame+1) + "/" + stack.getFrameCount() + "]";
+		title += " (" + Integer.toString((int)(scale*100.0)) + "%)";
 		setTitle(title);
 
-		// automatically resize:
-		pack();
+		// automatically resize if the displayed size changed:
+		Dimension old_size = image_panel.getPreferredSize();
+		image_panel.setScale(scale);
+		if( !old_size.equals(image_panel.getPreferredSize()) )
+			pack();
 
-		// update:
-		this.repaint();
+		// update, only visible tiles are drawn:
+		overlay_bounds = selectionBounds();
+		image_panel.repaint();
+	}
+
+	/** Repaint only the parts of the display covered by the selections,
+	* before and after they changed. Cached tiles are reused, so this is cheap. */
+	private void repaintSelections()
+	{
+		image_stale = true;
+		Rectangle now = selectionBounds();
+		Rectangle dirty = overlay_bounds;
+		if( dirty == null )
+			dirty = now;
+		else if( now != null )
+			dirty = dirty.union(now);
+		overlay_bounds = now;
+		if( dirty != null )
+			image_panel.repaintImageArea(dirty);
+	}
+
+	/**
+	* Get the area covered by the selections as drawn by paintSelections
+	* @return the bounds in display coordinates relative to the image corner, or null if nothing is selected
+	*/
+	private Rectangle selectionBounds()
+	{
+		Rectangle b = null;
+		if( p_selected )
+			b = union(b, new Rectangle((int)(p_image.x*scale), (int)(p_image.y*scale), (int)scale, (int)scale));
+		if( r_selected )
+			b = union(b, new Rectangle((int)(r_image.x*scale), (int)(r_image.y*scale), 
+				(int)(r_image.width*scale), (int)(r_image.height*scale)));
+		if( c_selected )
+			b = union(b, new Rectangle((int)(c_image.getX()*scale), (int)(c_image.getY()*scale),
+				(int)(c_image.getWidth()*scale), (int)(c_image.getHeight()*scale)));
+		// allow for the stroke and rounding:
+		if( b != null )
+			b.grow(2,2);
+		return b;
+	}
+
+	/** Union of two rectangles, either of which may be null */
+	private static Rectangle union(Rectangle a, Rectangle b)
+	{
+		return (a == null) ? b : a.union(b);
 	}
 
 
@@ -557,21 +1228,18 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 		this.repaint();
 
 		// add a listener to the image
-		icon_label.addMouseMotionListener(new MouseMotionAdapter() {
+		image_panel.addMouseMotionListener(new MouseMotionAdapter() {
 			@Override
 			public void mouseMoved(MouseEvent me) {
 				if(onImage(me.getPoint()))
 				{
 					// set point to coordinates ON THE IMAGE
-					// (some fudge factor required)
 					p_image = pointTransformToImage(me.getPoint());
-					p_image.x = p_image.x - 1;
-					p_image.y = p_image.y + 2;
-					// correct for scale factor:
-					p_image.x = (int) (p_image.x / scale);
-					p_image.y = (int) (p_image.y / scale);
 					// update text displayed at bottom of the window:
 					select_instruction.setText("Point: (" + p_image.x + "," + p_image.y + ")");
+					// an open lineout follows the point:
+					lineout_on_point = true;
+					updateLineout();
 				}
 				else
 				{
@@ -581,7 +1249,7 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 			}
 		});
 		// Add another mouse listener to detect clicks:
-		icon_label.addMouseListener(new MouseAdapter() {
+		image_panel.addMouseListener(new MouseAdapter() {
 			@Override
 			public void mouseClicked(MouseEvent me) {
 				// Only perform action if the user clicks on the image:
@@ -623,20 +1291,14 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 		this.repaint();
 
 		// add a listener to the image
-		icon_label.addMouseMotionListener(new MouseMotionAdapter() {
+		image_panel.addMouseMotionListener(new MouseMotionAdapter() {
 			@Override
 			public void mouseMoved(MouseEvent me) {
 				if(onImage(me.getPoint()))
 				{
 					// Define the start of the rectangle:
 					// set point to coordinates ON THE IMAGE
-					// (some fudge factor required)
 					r_corner1_image = pointTransformToImage(me.getPoint());
-					r_corner1_image.x = r_corner1_image.x - 1;
-					r_corner1_image.y = r_corner1_image.y + 2;
-					// correct for scale factor:
-					r_corner1_image.x = (int) (r_corner1_image.x / scale);
-					r_corner1_image.y = (int) (r_corner1_image.y / scale);
 					// update instruction text:
 					select_instruction.setText("Start: (" + r_corner1_image.x + "," + r_corner1_image.y + ")");
 				}
@@ -654,11 +1316,6 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 				{
 					// set second corner to define the rectangle:
 					r_corner2_image = pointTransformToImage(me.getPoint());
-					r_corner2_image.x = r_corner2_image.x - 1;
-					r_corner2_image.y = r_corner2_image.y + 2;
-					// correct for scale factor:
-					r_corner2_image.x = (int) (r_corner2_image.x / scale);
-					r_corner2_image.y = (int) (r_corner2_image.y / scale);
 
 					// To allow for rectangles to be drawn multiple directions,
 					// and prevent negative width, height:
@@ -673,17 +1330,22 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 					//when a user drags, the point is selected:
 					r_selected = true;
 
-					select_instruction.setText("Width: " + r_image.getWidth() + ", Height: " + r_image.getHeight());
+					showRectangleStats();
 
-					updateUI();
+					// only the overlay needs to be redrawn:
+					repaintSelections();
+					// an open lineout follows the rectangle:
+					lineout_on_point = false;
+					updateLineout();
 				}
 				else
 				{
 					r_selected = false;
+					repaintSelections();
 				}
 			}            
 		});
-		icon_label.addMouseListener(new MouseAdapter() {
+		image_panel.addMouseListener(new MouseAdapter() {
 			@Override
 			public void mouseReleased(MouseEvent me) {
 				// if the mouse is released then rectangle selection is done
@@ -719,20 +1381,14 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 		this.repaint();
 
 		// add a listener to the image
-		icon_label.addMouseMotionListener(new MouseMotionAdapter() {
+		image_panel.addMouseMotionListener(new MouseMotionAdapter() {
 			@Override
 			public void mouseMoved(MouseEvent me) {
 				if(onImage(me.getPoint()))
 				{
 					// Define the start of the circle:
 					// set point to coordinates ON THE IMAGE
-					// (some fudge factor required)
 					c_point1_image = pointTransformToImage(me.getPoint());
-					c_point1_image.x = c_point1_image.x - 1;
-					c_point1_image.y = c_point1_image.y + 2;
-					// correct for scale factor:
-					c_point1_image.x = (int) (c_point1_image.x / scale);
-					c_point1_image.y = (int) (c_point1_image.y / scale);
 					select_instruction.setText("Center: (" + c_point1_image.x + "," + c_point1_image.y + ")");
 				}
 				else
@@ -749,11 +1405,6 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 				{
 					// set second corner to define the rectangle:
 					c_point2_image = pointTransformToImage(me.getPoint());
-					c_point2_image.x = c_point2_image.x - 1;
-					c_point2_image.y = c_point2_image.y + 2;
-					// correct for scale factor:
-					c_point2_image.x = (int) (c_point2_image.x / scale);
-					c_point2_image.y = (int) (c_point2_image.y / scale);
 
 					// Calculate the corner of the circle and it's total width
 					// to construct an Ellipse2D.Float
@@ -761,7 +1412,7 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 					int r = (int)Math.sqrt( Math.pow(c_point1_image.x - c_point2_image.x , 2) 
 						+ Math.pow(c_point1_image.y - c_point2_image.y , 2) );
 					int x = c_point1_image.x;
-					int y = c_point1_image.x;
+					int y = c_point1_image.y;
 					// Create new Ellipse2D:
 					c_image = new Ellipse2D.Float( x-r, y-r, 2*r, 2*r );
 
@@ -771,15 +1422,20 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 					// Update JLabel:
 					select_instruction.setText("Radius: " + r);
 
-					updateUI();
+					// only the overlay needs to be redrawn:
+					repaintSelections();
+
+					// an open profile follows the circle:
+					updateRadialProfile();
 				}
 				else
 				{
 					c_selected = false;
+					repaintSelections();
 				}
 			}            
 		});
-		icon_label.addMouseListener(new MouseAdapter() {
+		image_panel.addMouseListener(new MouseAdapter() {
 			@Override
 			public void mouseReleased(MouseEvent me) {
 				// if the mouse is released after dragging,
@@ -834,63 +1490,23 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 	}
 
 	/** 
-	* Transform coordinates from JFrame land to the image as displayed
+	* Transform coordinates on the displayed image to image pixel coordinates
 	* @param p the Point to transform
 	* @return the point after transformation
 	*/
 	private Point pointTransformToImage(Point p)
 	{
-		// get a rectangle containing coordinates of the displayed image
-		Rectangle image_bounds = icon_label.getBounds();
-		// The frame's panes:
-		final Container cp = this.getContentPane();
-		// get size of the frame:
-		Dimension frame_size = cp.getSize();
-		// menu bar for this frame:
-		final JMenuBar mb = this.getJMenuBar();
-		// get size of the menu bar
-		Dimension menu_size = mb.getSize();
-
-		// get heights of various labels if they exist (ie are displayed):
-		int label_height = 0;
-		if( select_instruction instanceof JLabel )
-			label_height += select_instruction.getHeight();
-
-		// do coordinate transformation:
-		int x = (int) (frame_size.getWidth()/2 - scale*width/2);
-		int y = (int) (frame_size.getHeight()/2 - menu_size.getHeight()/2 
-			+ label_height/2 - scale*height/2);
-		return new Point(p.x-x,p.y-y);
+		return image_panel.toImage(p);
 	}
 
 	/** 
-	* Transform coordinates from image land to the JFrame as displayed
+	* Transform image pixel coordinates to coordinates on the displayed image
 	* @param p the Point to transform
 	* @return the point after transformation
 	*/
 	private Point pointTransformToFrame(Point p)
 	{
-		// get a rectangle containing coordinates of the displayed image
-		Rectangle image_bounds = icon_label.getBounds();
-		// The frame's panes:
-		final Container cp = this.getContentPane();
-		// get size of the frame:
-		Dimension frame_size = cp.getSize();
-		// menu bar for this frame:
-		final JMenuBar mb = this.getJMenuBar();
-		// get size of the menu bar
-		Dimension menu_size = mb.getSize();
-
-		// get heights of various labels if they exist (ie are displayed):
-		int label_height = 0;
-		if( select_instruction instanceof JLabel )
-			label_height += select_instruction.getHeight();
-
-		// do coordinate transformation:
-		int x = (int) (frame_size.getWidth()/2 - scale*width/2);
-		int y = (int) (frame_size.getHeight()/2 - menu_size.getHeight()/2 
-			+ label_height/2 - scale*height/2);
-		return new Point(p.x+x,p.y+y);
+		return image_panel.toComponent(p);
 	}
 
 	/** 
@@ -900,28 +1516,20 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 	*/
 	private boolean onImage(Point p)
 	{
-		// use pointTransformToImage to get the coordinates of the image corner
-		Point p2 = pointTransformToImage(new Point(0, 0)); // in image
-		Rectangle image_bounds = new Rectangle();
-
-		// create a new rectangle describing extent of the image in JFrame:
-		image_bounds.setRect(-p2.x+1,-p2.y-2,scale*width,scale*height);
-		
-		// check to see if p is over the image:
-		return image_bounds.contains(p);
+		return image_panel.onImage(p);
 	}
 
 	/** Remove all mouse listeners from the image */
 	private void removeAllListeners()
 	{
 		// remove MouseMotionListeners
-		MouseMotionListener[] all_listeners = icon_label.getMouseMotionListeners();
+		MouseMotionListener[] all_listeners = image_panel.getMouseMotionListeners();
 		for(int i=0; i<all_listeners.length; i++)
-			icon_label.removeMouseMotionListener( all_listeners[i] );
+			image_panel.removeMouseMotionListener( all_listeners[i] );
 		// remove MouseListeners
-		MouseListener[] all_listeners2 = icon_label.getMouseListeners();
+		MouseListener[] all_listeners2 = image_panel.getMouseListeners();
 		for(int i=0; i<all_listeners2.length; i++)
-			icon_label.removeMouseListener( all_listeners2[i] );
+			image_panel.removeMouseListener( all_listeners2[i] );
 	}
 
 
@@ -1071,6 +1679,25 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 		});
 		edit.add(menu_edit_zoom);
 
+		// contrast, from the histogram percentiles
+		JMenuItem menu_edit_contrast = new JMenuItem("Contrast...");
+		menu_edit_contrast.setToolTipText("Set the percentiles drawn black and white, and gamma");
+		menu_edit_contrast.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				promptContrast();
+			}
+		});
+		edit.add(menu_edit_contrast);
+
+		JMenuItem menu_edit_auto_contrast = new JMenuItem("Auto contrast");
+		menu_edit_auto_contrast.setToolTipText("Reset the contrast, ignoring the most extreme pixels");
+		menu_edit_auto_contrast.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				autoContrast();
+			}
+		});
+		edit.add(menu_edit_auto_contrast);
+
 
 		// ---------------------------------------------------------
 		//                 Third dropdown menu: "Analysis"
@@ -1108,6 +1735,56 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 		});
 		analysis.add(menu_analysis_circle);
 
+		// lineouts through the point or rectangle
+		JMenuItem menu_analysis_hlineout = new JMenuItem("Horizontal lineout");
+		menu_analysis_hlineout.setToolTipText("Plot a horizontal lineout through the selected point or rectangle");
+		menu_analysis_hlineout.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				lineout_angle = 0;
+				showLineout();
+			}
+		});
+		analysis.add(menu_analysis_hlineout);
+
+		JMenuItem menu_analysis_vlineout = new JMenuItem("Vertical lineout");
+		menu_analysis_vlineout.setToolTipText("Plot a vertical lineout through the selected point or rectangle");
+		menu_analysis_vlineout.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				lineout_angle = 90;
+				showLineout();
+			}
+		});
+		analysis.add(menu_analysis_vlineout);
+
+		JMenuItem menu_analysis_alineout = new JMenuItem("Lineout...");
+		menu_analysis_alineout.setToolTipText("Plot a lineout at any angle through the selected point or rectangle");
+		menu_analysis_alineout.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				promptLineout();
+			}
+		});
+		analysis.add(menu_analysis_alineout);
+
+		// radial profile in the circle
+		JMenuItem menu_analysis_radial = new JMenuItem("Radial profile");
+		menu_analysis_radial.setToolTipText("Plot the azimuthally averaged profile in the selected circle");
+		menu_analysis_radial.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				showRadialProfile();
+			}
+		});
+		analysis.add(menu_analysis_radial);
+
+		// histogram of the data
+		JMenuItem menu_analysis_histogram = new JMenuItem("Histogram");
+		menu_analysis_histogram.setToolTipText("Plot the histogram of the image data");
+		menu_analysis_histogram.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				showHistogram();
+			}
+		});
+		analysis.add(menu_analysis_histogram);
+
 		// Clear all selections
 		JMenuItem menu_analysis_clear = new JMenuItem("Clear all");
 		menu_analysis_clear.setToolTipText("Clear all selections from image");
@@ -1132,11 +1809,30 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 		// Set menubar as this JFrame's menu
 		setJMenuBar(menubar);
 
+		// the image is displayed in a scrollable, tiled panel:
+		image_panel = new TiledImagePanel(TILE_CACHE_BYTES);
+		image_panel.setSource(pyramid);
+		image_panel.setOverlay(new TiledImagePanel.Overlay() {
+			public void paintOverlay(Graphics2D g, double scale) {
+				paintSelections(g, scale);
+			}
+		});
+		scroll_pane = new JScrollPane(image_panel);
+		add(scroll_pane,BorderLayout.CENTER);
+
+		// frame selection for stacks:
+		if( stack != null && stack.getFrameCount() > 1 )
+		{
+			frame_slider = new JSlider(0, stack.getFrameCount()-1, frame);
+			frame_slider.setToolTipText("Frame");
+			frame_slider.addChangeListener(new ChangeListener() {
+				public void stateChanged(ChangeEvent event) {
+					setFrame(frame_slider.getValue());
+				}
+			});
+			add(frame_slider,BorderLayout.NORTH);
+		}
 		// call updateUI(), which handles the image stuff.
-		if( !(icon_label instanceof JLabel) )
-			icon_label = new JLabel();
-		icon_label.setHorizontalAlignment(SwingConstants.CENTER);
-		add(icon_label,BorderLayout.CENTER);
 		updateUI();
 
 		// set size automatically:
@@ -1204,30 +1900,6 @@ public class SciTK_Image extends SciTK_Frame implements ClipboardOwner
 	 */
 	protected void exportImageAsPS(File psFile, String mode) throws IOException
 	{
-		// see http://xmlgraphics.apache.org/commons/postscript.html#creating-eps
-
-		// set up file:
-		OutputStream outputStream = new FileOutputStream(psFile);
-
-		AbstractPSDocumentGraphics2D g2d;
-		if( mode == "ps" )
-			g2d = new PSDocumentGraphics2D(false);
-		else
-			g2d = new EPSDocumentGraphics2D(false);
-
-		g2d.setGraphicContext(new org.apache.xmlgraphics.java2d.GraphicContext());
-
-		//Set up the document size
-		g2d.setupDocument(outputStream, (int)width, (int)height);
-		//out is the OutputStream to write the to
-
-		// draw the image to g2d:
-		g2d.drawImage(image,new RescaleOp((float)1.0,(float)0.0,null),0,0);
-		
-
-		// write and close file:    
-		g2d.finish(); //Wrap up and finalize the file
-		outputStream.flush();
-		outputStream.close();
+		ChartExport.writePS(image, psFile, mode);
 	}
-}
\ No newline at end of file
+}
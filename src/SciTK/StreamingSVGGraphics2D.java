@@ -0,0 +1,725 @@
+package SciTK;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.GradientPaint;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.AttributedCharacterIterator;
+import java.util.Base64;
+import java.util.HashMap;
+import javax.imageio.ImageIO;
+
+import org.apache.xmlgraphics.java2d.AbstractGraphics2D;
+import org.apache.xmlgraphics.java2d.GraphicContext;
+
+/** A Graphics2D which writes SVG elements to a Writer as they are drawn,
+ * instead of building a document in memory. Shapes are written in device
+ * coordinates, so memory use does not depend on how much is drawn.
+ *
+ * With coalescing enabled, consecutive shapes with identical style (stroke,
+ * fill, clip) are merged into a single path element. Line segments which
+ * continue from the end of the previous one only add one point each, so a
+ * series drawn as many separate segments, or many identical markers,
+ * becomes a few large paths. Long paths are split so the pending element
+ * never exceeds a fixed size.
+ *
+ * Call finish() once drawing is done to close the document.
+ *
+ * @package SciTK
+ * @class StreamingSVGGraphics2D
+ * @brief Low-memory SVG output for charts
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class StreamingSVGGraphics2D extends AbstractGraphics2D
+{
+	/** Maximum characters of path data held before an element is written */
+	public static int MAX_PATH_LENGTH = 65536;
+
+	private Output output; /** Document state shared by this and all derived graphics */
+
+	/**
+	* Constructor. The SVG header is written immediately.
+	* @param out the Writer which receives the SVG text
+	* @param width the document width
+	* @param height the document height
+	* @param coalesce true to merge consecutive shapes with the same style
+	* @throws IOException if writing the header fails
+	*/
+	public StreamingSVGGraphics2D(Writer out, int width, int height, boolean coalesce) throws IOException
+	{
+		super(false);
+		gc = new GraphicContext();
+		output = new Output(out, coalesce);
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\""
+			+ " width=\"" + width + "\" height=\"" + height + "\" viewBox=\"0 0 " + width + " " + height + "\">\n");
+	}
+
+	/** Copy constructor, used by create() */
+	private StreamingSVGGraphics2D(StreamingSVGGraphics2D g)
+	{
+		super(g);
+		output = g.output;
+	}
+
+	/**
+	* Write any pending element and close the document. The Writer is
+	* flushed but not closed.
+	* @throws IOException if writing fails
+	*/
+	public void finish() throws IOException
+	{
+		output.flushPath();
+		output.checkError();
+		output.out.write("</svg>\n");
+		output.out.flush();
+	}
+
+	// ---------------------------------------
+	//		Shapes
+	// ---------------------------------------
+	public void draw(Shape s)
+	{
+		Stroke stroke = gc.getStroke();
+		if( !(stroke instanceof BasicStroke) )
+		{
+			// render custom strokes as their outline:
+			fill( stroke.createStrokedShape(s) );
+			return;
+		}
+		String paint = paintRef();
+		if( paint == null )
+			return;
+		output.addPath(s, gc.getTransform(), strokeStyle((BasicStroke)stroke, paint), paint, true);
+	}
+
+	public void fill(Shape s)
+	{
+		String paint = paintRef();
+		if( paint == null )
+			return;
+		output.addPath(s, gc.getTransform(), fillStyle(paint), paint, false);
+	}
+
+	/** Style attributes for stroking with the current state */
+	private String strokeStyle(BasicStroke bs, String paint)
+	{
+		AffineTransform t = gc.getTransform();
+		double scale = Math.sqrt(Math.abs(t.getDeterminant()));
+		StringBuilder sb = new StringBuilder(96);
+		sb.append("fill=\"none\" stroke=\"").append(paint).append('"');
+		sb.append(" stroke-width=\"");
+		appendNumber(sb, Math.max(bs.getLineWidth()*scale, 0.01));
+		sb.append('"');
+		if( bs.getEndCap() == BasicStroke.CAP_ROUND )
+			sb.append(" stroke-linecap=\"round\"");
+		else if( bs.getEndCap() == BasicStroke.CAP_SQUARE )
+			sb.append(" stroke-linecap=\"square\"");
+		if( bs.getLineJoin() == BasicStroke.JOIN_ROUND )
+			sb.append(" stroke-linejoin=\"round\"");
+		else if( bs.getLineJoin() == BasicStroke.JOIN_BEVEL )
+			sb.append(" stroke-linejoin=\"bevel\"");
+		float[] dash = bs.getDashArray();
+		if( dash != null && dash.length > 0 )
+		{
+			sb.append(" stroke-dasharray=\"");
+			for(int i=0; i<dash.length; i++)
+			{
+				if( i > 0 ) sb.append(',');
+				appendNumber(sb, dash[i]*scale);
+			}
+			sb.append('"');
+		}
+		appendOpacity(sb, "stroke-opacity");
+		appendClip(sb);
+		return sb.toString();
+	}
+
+	/** Style attributes for filling with the current state */
+	private String fillStyle(String paint)
+	{
+		StringBuilder sb = new StringBuilder(64);
+		sb.append("fill=\"").append(paint).append("\" stroke=\"none\"");
+		appendOpacity(sb, "fill-opacity");
+		appendClip(sb);
+		return sb.toString();
+	}
+
+	/** SVG paint for the current Paint, or null if fully transparent */
+	private String paintRef()
+	{
+		Paint p = gc.getPaint();
+		if( p instanceof Color )
+		{
+			if( ((Color)p).getAlpha() == 0 )
+				return null;
+			return colorString((Color)p);
+		}
+		if( p instanceof GradientPaint )
+			return output.gradient((GradientPaint)p, gc.getTransform());
+		// other paints are not supported, use a neutral color:
+		return "#808080";
+	}
+
+	/** Append the opacity from the paint's alpha and the composite */
+	private void appendOpacity(StringBuilder sb, String attribute)
+	{
+		double alpha = 1.0;
+		Paint p = gc.getPaint();
+		if( p instanceof Color )
+			alpha = ((Color)p).getAlpha() / 255.0;
+		Composite c = gc.getComposite();
+		if( c instanceof AlphaComposite )
+			alpha *= ((AlphaComposite)c).getAlpha();
+		if( alpha < 1.0 )
+		{
+			sb.append(' ').append(attribute).append("=\"");
+			appendNumber(sb, alpha);
+			sb.append('"');
+		}
+	}
+
+	/** Append a reference to the current clip, if any */
+	private void appendClip(StringBuilder sb)
+	{
+		Shape clip = gc.getClip();
+		if( clip == null )
+			return;
+		// clip is in user space; clip paths are written in device space:
+		Shape device = gc.getTransform().createTransformedShape(clip);
+		sb.append(" clip-path=\"url(#").append(output.clipId(device)).append(")\"");
+	}
+
+	// ---------------------------------------
+	//		Text
+	// ---------------------------------------
+	public void drawString(String str, float x, float y)
+	{
+		if( str == null || str.length() == 0 )
+			return;
+		if( textAsShapes )
+		{
+			drawGlyphVector(getFont().createGlyphVector(getFontRenderContext(), str), x, y);
+			return;
+		}
+		String paint = paintRef();
+		if( paint == null )
+			return;
+
+		Font font = getFont();
+		StringBuilder sb = new StringBuilder(128 + str.length());
+		AffineTransform t = gc.getTransform();
+		sb.append("<text x=\"");
+		if( t.getType() == AffineTransform.TYPE_IDENTITY || t.getType() == AffineTransform.TYPE_TRANSLATION )
+		{
+			// fold a plain translation into the position:
+			appendNumber(sb, x + t.getTranslateX());
+			sb.append("\" y=\"");
+			appendNumber(sb, y + t.getTranslateY());
+		}
+		else
+		{
+			appendNumber(sb, x);
+			sb.append("\" y=\"");
+			appendNumber(sb, y);
+			sb.append("\" transform=\"");
+			appendMatrix(sb, t);
+		}
+		sb.append("\" fill=\"").append(paint).append('"');
+		appendOpacity(sb, "fill-opacity");
+		sb.append(" font-family=\"");
+		escape(sb, font.getFamily());
+		sb.append("\" font-size=\"");
+		appendNumber(sb, font.getSize2D());
+		sb.append('"');
+		if( font.isBold() )
+			sb.append(" font-weight=\"bold\"");
+		if( font.isItalic() )
+			sb.append(" font-style=\"italic\"");
+		sb.append(" xml:space=\"preserve\">");
+		escape(sb, str);
+		sb.append("</text>\n");
+		writeClipped(sb);
+	}
+
+	public void drawString(AttributedCharacterIterator iterator, float x, float y)
+	{
+		StringBuilder sb = new StringBuilder();
+		for(char c = iterator.first(); c != AttributedCharacterIterator.DONE; c = iterator.next())
+			sb.append(c);
+		drawString(sb.toString(), x, y);
+	}
+
+	// ---------------------------------------
+	//		Images
+	// ---------------------------------------
+	public boolean drawImage(Image img, int x, int y, ImageObserver observer)
+	{
+		return drawImage(img, x, y, -1, -1, observer);
+	}
+
+	public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer)
+	{
+		BufferedImage bi = toBufferedImage(img, observer);
+		if( bi == null )
+			return false;
+		if( width < 0 ) width = bi.getWidth();
+		if( height < 0 ) height = bi.getHeight();
+		writeImage(bi, x, y, width, height, gc.getTransform());
+		return true;
+	}
+
+	public void drawRenderedImage(RenderedImage img, AffineTransform xform)
+	{
+		BufferedImage bi;
+		if( img instanceof BufferedImage )
+			bi = (BufferedImage)img;
+		else
+		{
+			bi = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+			bi.setData(img.getData());
+		}
+		AffineTransform t = new AffineTransform(gc.getTransform());
+		if( xform != null )
+			t.concatenate(xform);
+		writeImage(bi, 0, 0, bi.getWidth(), bi.getHeight(), t);
+	}
+
+	public void drawRenderableImage(RenderableImage img, AffineTransform xform)
+	{
+		drawRenderedImage(img.createDefaultRendering(), xform);
+	}
+
+	/** Write an image element containing PNG data */
+	private void writeImage(BufferedImage bi, int x, int y, int width, int height, AffineTransform t)
+	{
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		try
+		{
+			ImageIO.write(bi, "png", png);
+		}
+		catch(IOException e)
+		{
+			output.error = e;
+			return;
+		}
+		StringBuilder sb = new StringBuilder(png.size()*4/3 + 256);
+		sb.append("<image x=\"").append(x).append("\" y=\"").append(y);
+		sb.append("\" width=\"").append(width).append("\" height=\"").append(height);
+		sb.append("\" preserveAspectRatio=\"none\" transform=\"");
+		appendMatrix(sb, t);
+		sb.append('"');
+		sb.append(" xlink:href=\"data:image/png;base64,");
+		sb.append(Base64.getEncoder().encodeToString(png.toByteArray()));
+		sb.append("\"/>\n");
+		writeClipped(sb);
+	}
+
+	/** Write an element inside a group with the current clip. The clip is in
+	* device space, so it cannot go on an element with its own transform. */
+	private void writeClipped(StringBuilder element)
+	{
+		if( gc.getClip() == null )
+		{
+			output.writeElement(element);
+			return;
+		}
+		StringBuilder sb = new StringBuilder(element.length() + 48);
+		sb.append("<g");
+		appendClip(sb);
+		sb.append('>').append(element).append("</g>\n");
+		output.writeElement(sb);
+	}
+
+	/** Get a BufferedImage for any Image, or null if it is not loaded */
+	private BufferedImage toBufferedImage(Image img, ImageObserver observer)
+	{
+		if( img instanceof BufferedImage )
+			return (BufferedImage)img;
+		int w = img.getWidth(observer);
+		int h = img.getHeight(observer);
+		if( w <= 0 || h <= 0 )
+			return null;
+		BufferedImage bi = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = bi.createGraphics();
+		g.drawImage(img, 0, 0, observer);
+		g.dispose();
+		return bi;
+	}
+
+	// ---------------------------------------
+	//		Graphics housekeeping
+	// ---------------------------------------
+	public Graphics create()
+	{
+		return new StreamingSVGGraphics2D(this);
+	}
+
+	public void dispose() {}
+
+	public GraphicsConfiguration getDeviceConfiguration()
+	{
+		return Output.SCRATCH.getDeviceConfiguration();
+	}
+
+	public FontMetrics getFontMetrics(Font f)
+	{
+		return Output.SCRATCH.getFontMetrics(f);
+	}
+
+	public void setXORMode(Color c1) {}
+
+	public void copyArea(int x, int y, int width, int height, int dx, int dy) {}
+
+	// ---------------------------------------
+	//		Formatting
+	// ---------------------------------------
+	/** Color as #rrggbb */
+	private static String colorString(Color c)
+	{
+		String hex = Integer.toHexString(c.getRGB() & 0xFFFFFF);
+		return "#000000".substring(0, 7-hex.length()) + hex;
+	}
+
+	/** Append a number rounded to two decimal places, without trailing zeros */
+	static void appendNumber(StringBuilder sb, double v)
+	{
+		if( Double.isNaN(v) || Double.isInfinite(v) )
+		{
+			sb.append('0');
+			return;
+		}
+		long r = Math.round(v*100.0);
+		if( r < 0 )
+		{
+			sb.append('-');
+			r = -r;
+		}
+		sb.append(r/100);
+		int frac = (int)(r%100);
+		if( frac != 0 )
+		{
+			sb.append('.');
+			sb.append((char)('0' + frac/10));
+			if( frac%10 != 0 )
+				sb.append((char)('0' + frac%10));
+		}
+	}
+
+	/** Append an SVG matrix() transform */
+	private static void appendMatrix(StringBuilder sb, AffineTransform t)
+	{
+		sb.append("matrix(");
+		appendExact(sb, t.getScaleX()); sb.append(' ');
+		appendExact(sb, t.getShearY()); sb.append(' ');
+		appendExact(sb, t.getShearX()); sb.append(' ');
+		appendExact(sb, t.getScaleY()); sb.append(' ');
+		appendNumber(sb, t.getTranslateX()); sb.append(' ');
+		appendNumber(sb, t.getTranslateY());
+		sb.append(')');
+	}
+
+	/** Append a matrix coefficient with enough precision for rotations */
+	private static void appendExact(StringBuilder sb, double v)
+	{
+		if( v == Math.rint(v) )
+			sb.append((long)v);
+		else
+			sb.append((float)v);
+	}
+
+	/** Append text with XML special characters escaped */
+	private static void escape(StringBuilder sb, String s)
+	{
+		for(int i=0; i<s.length(); i++)
+		{
+			char c = s.charAt(i);
+			switch(c)
+			{
+				case '<': sb.append("&lt;"); break;
+				case '>': sb.append("&gt;"); break;
+				case '&': sb.append("&amp;"); break;
+				case '"': sb.append("&quot;"); break;
+				default:
+					if( c >= 0x20 || c == '\t' || c == '\n' || c == '\r' )
+						sb.append(c);
+			}
+		}
+	}
+
+	/** Document state shared between a graphics and everything created from it */
+	private static class Output
+	{
+		/** Used for font metrics and device configuration */
+		static final Graphics2D SCRATCH = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+		Writer out; /** destination for the SVG text */
+		boolean coalesce; /** true to merge shapes with the same style */
+		IOException error; /** first write error, reported by finish() */
+
+		StringBuilder path = new StringBuilder(); /** pending path data */
+		String path_style; /** style attributes of the pending path */
+		String path_paint; /** paint of the pending path */
+		double last_x = Double.NaN, last_y = Double.NaN; /** current point of the pending path */
+
+		// a second pending path with the same paint, so that e.g. filled and outlined
+		// markers of one color both merge (their relative order does not matter):
+		StringBuilder alt_path = new StringBuilder(); /** second pending path data */
+		String alt_style; /** style attributes of the second pending path */
+		double alt_x = Double.NaN, alt_y = Double.NaN; /** current point of the second pending path */
+
+		HashMap<String,String> clips = new HashMap<String,String>(); /** clip path data -> id */
+		HashMap<String,String> gradients = new HashMap<String,String>(); /** gradient definition -> id */
+		double[] coords = new double[6]; /** scratch for path iteration */
+
+		Output(Writer out, boolean coalesce)
+		{
+			this.out = out;
+			this.coalesce = coalesce;
+		}
+
+		/** Add a shape (in user space) to the pending path, writing the previous one if needed */
+		void addPath(Shape s, AffineTransform t, String style, String paint, boolean stroked)
+		{
+			PathIterator pi = s.getPathIterator(t);
+			// merging shapes changes how overlaps are drawn, so only merge opaque nonzero paths:
+			boolean merge = coalesce && style.indexOf("opacity") < 0;
+			if( !stroked && pi.getWindingRule() == PathIterator.WIND_EVEN_ODD )
+			{
+				style = style + " fill-rule=\"evenodd\"";
+				merge = false;
+			}
+			if( merge && style.equals(path_style) && path.length() <= MAX_PATH_LENGTH )
+			{
+				// continue the pending path
+			}
+			else if( merge && style.equals(alt_style) && alt_path.length() <= MAX_PATH_LENGTH )
+				swapPaths();
+			else if( merge && path_style != null && paint.equals(path_paint) )
+			{
+				// keep the pending path as the second one, and start a new one:
+				writeAltPath();
+				swapPaths();
+				path_style = style;
+			}
+			else
+			{
+				flushPath();
+				path_style = style;
+				path_paint = paint;
+			}
+
+			boolean first = true;
+			while( !pi.isDone() )
+			{
+				int type = pi.currentSegment(coords);
+				switch(type)
+				{
+					case PathIterator.SEG_MOVETO:
+						// an open stroke continuing from the current point needs no new move:
+						if( !(first && stroked && merge && coords[0] == last_x && coords[1] == last_y) )
+						{
+							path.append('M');
+							appendPoint(coords[0], coords[1]);
+						}
+						last_x = coords[0]; last_y = coords[1];
+						break;
+					case PathIterator.SEG_LINETO:
+						path.append('L');
+						appendPoint(coords[0], coords[1]);
+						last_x = coords[0]; last_y = coords[1];
+						break;
+					case PathIterator.SEG_QUADTO:
+						path.append('Q');
+						appendPoint(coords[0], coords[1]);
+						path.append(' ');
+						appendPoint(coords[2], coords[3]);
+						last_x = coords[2]; last_y = coords[3];
+						break;
+					case PathIterator.SEG_CUBICTO:
+						path.append('C');
+						appendPoint(coords[0], coords[1]);
+						path.append(' ');
+						appendPoint(coords[2], coords[3]);
+						path.append(' ');
+						appendPoint(coords[4], coords[5]);
+						last_x = coords[4]; last_y = coords[5];
+						break;
+					case PathIterator.SEG_CLOSE:
+						path.append('Z');
+						last_x = Double.NaN; last_y = Double.NaN;
+						break;
+				}
+				first = false;
+				pi.next();
+			}
+			if( !merge )
+				flushPath();
+		}
+
+		void appendPoint(double x, double y)
+		{
+			appendNumber(path, x);
+			path.append(',');
+			appendNumber(path, y);
+		}
+
+		/** Write the pending path element, if any */
+		void flushPath()
+		{
+			writeAltPath();
+			if( path.length() > 0 )
+				writePath(path, path_style);
+			path.setLength(0);
+			path_style = null;
+			path_paint = null;
+			last_x = Double.NaN; last_y = Double.NaN;
+		}
+
+		/** Write the second pending path, if any */
+		void writeAltPath()
+		{
+			if( alt_path.length() > 0 )
+				writePath(alt_path, alt_style);
+			alt_path.setLength(0);
+			alt_style = null;
+			alt_x = Double.NaN; alt_y = Double.NaN;
+		}
+
+		/** Exchange the pending path with the second one */
+		void swapPaths()
+		{
+			StringBuilder p = path; path = alt_path; alt_path = p;
+			String st = path_style; path_style = alt_style; alt_style = st;
+			double x = last_x; last_x = alt_x; alt_x = x;
+			double y = last_y; last_y = alt_y; alt_y = y;
+		}
+
+		void writePath(StringBuilder d, String style)
+		{
+			StringBuilder sb = new StringBuilder(d.length() + style.length() + 24);
+			sb.append("<path d=\"").append(d).append("\" ").append(style).append("/>\n");
+			write(sb);
+		}
+
+		/** Write a complete element, after any pending path */
+		void writeElement(StringBuilder sb)
+		{
+			flushPath();
+			write(sb);
+		}
+
+		/** Get the id of a clip path (in device space), writing its definition if new */
+		String clipId(Shape device)
+		{
+			StringBuilder d = new StringBuilder();
+			PathIterator pi = device.getPathIterator(null);
+			while( !pi.isDone() )
+			{
+				int type = pi.currentSegment(coords);
+				int n = (type == PathIterator.SEG_QUADTO) ? 2 : (type == PathIterator.SEG_CUBICTO) ? 3 : (type == PathIterator.SEG_CLOSE) ? 0 : 1;
+				d.append("MLQCZ".charAt(type));
+				for(int i=0; i<n; i++)
+				{
+					if( i > 0 ) d.append(' ');
+					appendNumber(d, coords[2*i]);
+					d.append(',');
+					appendNumber(d, coords[2*i+1]);
+				}
+				pi.next();
+			}
+			String key = d.toString();
+			String id = clips.get(key);
+			if( id == null )
+			{
+				id = "clip" + clips.size();
+				clips.put(key, id);
+				StringBuilder sb = new StringBuilder(key.length() + 64);
+				sb.append("<clipPath id=\"").append(id).append("\"><path d=\"").append(key).append("\"/></clipPath>\n");
+				writeElement(sb);
+			}
+			return id;
+		}
+
+		/** Get a reference to a gradient, writing its definition if new */
+		String gradient(GradientPaint gp, AffineTransform t)
+		{
+			double[] pts = { gp.getPoint1().getX(), gp.getPoint1().getY(), gp.getPoint2().getX(), gp.getPoint2().getY() };
+			t.transform(pts, 0, pts, 0, 2);
+			StringBuilder def = new StringBuilder(160);
+			def.append("gradientUnits=\"userSpaceOnUse\" x1=\"");
+			appendNumber(def, pts[0]);
+			def.append("\" y1=\"");
+			appendNumber(def, pts[1]);
+			def.append("\" x2=\"");
+			appendNumber(def, pts[2]);
+			def.append("\" y2=\"");
+			appendNumber(def, pts[3]);
+			def.append('"');
+			if( gp.isCyclic() )
+				def.append(" spreadMethod=\"reflect\"");
+			def.append("><stop offset=\"0\" stop-color=\"").append(colorString(gp.getColor1())).append('"');
+			if( gp.getColor1().getAlpha() < 255 )
+				def.append(" stop-opacity=\"").append(gp.getColor1().getAlpha()/255f).append('"');
+			def.append("/><stop offset=\"1\" stop-color=\"").append(colorString(gp.getColor2())).append('"');
+			if( gp.getColor2().getAlpha() < 255 )
+				def.append(" stop-opacity=\"").append(gp.getColor2().getAlpha()/255f).append('"');
+			def.append("/>");
+
+			String key = def.toString();
+			String id = gradients.get(key);
+			if( id == null )
+			{
+				id = "gradient" + gradients.size();
+				gradients.put(key, id);
+				StringBuilder sb = new StringBuilder(key.length() + 64);
+				sb.append("<linearGradient id=\"").append(id).append("\" ").append(key).append("</linearGradient>\n");
+				writeElement(sb);
+			}
+			return "url(#" + id + ")";
+		}
+
+		/** Write text, remembering the first failure (Graphics2D methods cannot throw) */
+		void write(StringBuilder sb)
+		{
+			if( error != null )
+				return;
+			try
+			{
+				out.append(sb);
+			}
+			catch(IOException e)
+			{
+				error = e;
+			}
+		}
+
+		void checkError() throws IOException
+		{
+			if( error != null )
+				throw error;
+		}
+	}
+}
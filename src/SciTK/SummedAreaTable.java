@@ -0,0 +1,304 @@
+package SciTK;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/** Summed-area tables (integral images) of the values and squared values
+ * of an image. After one build, the sum, mean and standard deviation of
+ * any rectangle are found in constant time from four table entries each,
+ * however large the rectangle. The min and max of a rectangle cannot be
+ * found this way, and are found by scanning it.
+ *
+ * To limit round-off when taking the variance as a difference of moments,
+ * the tables hold sums of (value - shift), where shift is a typical value
+ * of the image. The tables use 16 bytes per pixel; for images too large
+ * for that, scan() finds the same statistics by reading the rectangle.
+ *
+ * @package SciTK
+ * @class SummedAreaTable
+ * @brief Constant time rectangle sums and statistics
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class SummedAreaTable
+{
+	private RawImage data; /** The image, for min/max scans */
+	private int width; /** Image width */
+	private int height; /** Image height */
+	private int stride; /** Row length of the tables, width+1 */
+	private double shift; /** Value subtracted before summing */
+	private double[] s1; /** Sums of (value-shift) over [0,x) x [0,y), at y*stride + x */
+	private double[] s2; /** Sums of (value-shift)^2 */
+
+	/**
+	* Build the tables for an image, in parallel on the shared pool
+	* @param data the image
+	*/
+	public SummedAreaTable(RawImage data)
+	{
+		this.data = data;
+		width = data.getWidth();
+		height = data.getHeight();
+		stride = width+1;
+		s1 = new double[stride*(height+1)];
+		s2 = new double[stride*(height+1)];
+
+		// typical value, from the first row:
+		double[] row = data.getRow(0, new double[width]);
+		double total = 0;
+		for(int j=0; j<width; j++)
+			total += row[j];
+		shift = (width > 0 && !Double.isNaN(total) && !Double.isInfinite(total)) ? total/width : 0;
+
+		// prefix sums along each row, then down each column:
+		ParallelUtil.getPool().invoke( new RowTask(0, height, ParallelUtil.chunkSize(height, 16)) );
+		ParallelUtil.getPool().invoke( new ColumnTask(0, stride, ParallelUtil.chunkSize(stride, 64)) );
+	}
+
+	/**
+	* Get the width of the image
+	* @return the number of columns
+	*/
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	* Get the height of the image
+	* @return the number of rows
+	*/
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	* Sum of the values in a rectangle
+	* @param x the first column
+	* @param y the first row
+	* @param w the number of columns
+	* @param h the number of rows
+	* @return the sum of values in [x,x+w) x [y,y+h)
+	*/
+	public double sum(int x, int y, int w, int h)
+	{
+		return lookup(s1, x, y, w, h) + (double)w*h*shift;
+	}
+
+	/**
+	* Sum of the squared values in a rectangle
+	* @param x the first column
+	* @param y the first row
+	* @param w the number of columns
+	* @param h the number of rows
+	* @return the sum of squared values in [x,x+w) x [y,y+h)
+	*/
+	public double sumOfSquares(int x, int y, int w, int h)
+	{
+		double n = (double)w*h;
+		return lookup(s2, x, y, w, h) + 2*shift*lookup(s1, x, y, w, h) + n*shift*shift;
+	}
+
+	/**
+	* Statistics of a rectangle. The rectangle is clipped to the image.
+	* @param x the first column
+	* @param y the first row
+	* @param w the number of columns
+	* @param h the number of rows
+	* @return the statistics of the values in [x,x+w) x [y,y+h)
+	*/
+	public RegionStats getStats(int x, int y, int w, int h)
+	{
+		// clip to the image:
+		int x0 = Math.max(x, 0), y0 = Math.max(y, 0);
+		int x1 = Math.min(x+w, width), y1 = Math.min(y+h, height);
+		if( x1 <= x0 || y1 <= y0 )
+			return new RegionStats(0, 0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+		w = x1-x0;
+		h = y1-y0;
+
+		long n = (long)w*h;
+		double m1 = lookup(s1, x0, y0, w, h) / n;
+		double m2 = lookup(s2, x0, y0, w, h) / n;
+		double var = Math.max(0, m2 - m1*m1);
+		double[] range = ImageNormalizer.range(data, x0, y0, w, h);
+		return new RegionStats(n, sum(x0, y0, w, h), m1 + shift, Math.sqrt(var), range[0], range[1]);
+	}
+
+	/**
+	* Statistics of a rectangle, found by reading it (in parallel on the
+	* shared pool) instead of from tables. The rectangle is clipped to the image.
+	* @param data the image
+	* @param x the first column
+	* @param y the first row
+	* @param w the number of columns
+	* @param h the number of rows
+	* @return the statistics of the values in [x,x+w) x [y,y+h)
+	*/
+	public static RegionStats scan(RawImage data, int x, int y, int w, int h)
+	{
+		// clip to the image:
+		int x0 = Math.max(x, 0), y0 = Math.max(y, 0);
+		int x1 = Math.min(x+w, data.getWidth()), y1 = Math.min(y+h, data.getHeight());
+		if( x1 <= x0 || y1 <= y0 )
+			return new RegionStats(0, 0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+		w = x1-x0;
+		h = y1-y0;
+
+		// typical value, from the first row of the rectangle:
+		double[] row = data.getRow(y0, new double[data.getWidth()]);
+		double total = 0;
+		for(int j=x0; j<x1; j++)
+			total += row[j];
+		double shift = (!Double.isNaN(total) && !Double.isInfinite(total)) ? total/w : 0;
+
+		double[] m = ParallelUtil.getPool().invoke( new MomentTask(data, shift, x0, x1, y0, y1, ParallelUtil.chunkSize(h, 16)) );
+		long n = (long)w*h;
+		double m1 = m[0] / n;
+		double var = Math.max(0, m[1]/n - m1*m1);
+		// no valid values leaves min > max:
+		if( m[2] > m[3] )
+			m[2] = m[3] = Double.NaN;
+		return new RegionStats(n, m[0] + n*shift, m1 + shift, Math.sqrt(var), m[2], m[3]);
+	}
+
+	/** Look up a rectangle sum in one of the tables */
+	private double lookup(double[] s, int x, int y, int w, int h)
+	{
+		int a = y*stride + x;
+		int b = (y+h)*stride + x;
+		return s[b+w] - s[a+w] - s[b] + s[a];
+	}
+
+	/** Fills table rows with prefix sums along each image row */
+	private class RowTask extends RecursiveAction
+	{
+		int row_start, row_end, chunk;
+
+		RowTask(int row_start, int row_end, int chunk)
+		{
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected void compute()
+		{
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				invokeAll( new RowTask(row_start, mid, chunk), new RowTask(mid, row_end, chunk) );
+				return;
+			}
+
+			double[] buf = new double[width];
+			for(int i=row_start; i<row_end; i++)
+			{
+				double[] row = data.getRow(i, buf);
+				// image row i is table row i+1; column 0 of the table stays zero
+				int o = (i+1)*stride + 1;
+				double a = 0, b = 0;
+				for(int j=0; j<width; j++)
+				{
+					double v = row[j] - shift;
+					a += v;
+					b += v*v;
+					s1[o+j] = a;
+					s2[o+j] = b;
+				}
+			}
+		}
+	}
+
+	/** Accumulates table columns downwards, for a strip of columns */
+	private class ColumnTask extends RecursiveAction
+	{
+		int col_start, col_end, chunk;
+
+		ColumnTask(int col_start, int col_end, int chunk)
+		{
+			this.col_start = col_start;
+			this.col_end = col_end;
+			this.chunk = chunk;
+		}
+
+		protected void compute()
+		{
+			if( col_end - col_start > chunk )
+			{
+				int mid = (col_start + col_end) >>> 1;
+				invokeAll( new ColumnTask(col_start, mid, chunk), new ColumnTask(mid, col_end, chunk) );
+				return;
+			}
+
+			// row by row, so each strip is read sequentially:
+			for(int i=2; i<=height; i++)
+			{
+				int o = i*stride;
+				int p = o - stride;
+				for(int x=col_start; x<col_end; x++)
+				{
+					s1[o+x] += s1[p+x];
+					s2[o+x] += s2[p+x];
+				}
+			}
+		}
+	}
+
+	/** Finds {sum of (value-shift), sum of (value-shift)^2, min, max} over a range of rows */
+	private static class MomentTask extends RecursiveTask<double[]>
+	{
+		RawImage data;
+		double shift;
+		int col_start, col_end, row_start, row_end, chunk;
+
+		MomentTask(RawImage data, double shift, int col_start, int col_end, int row_start, int row_end, int chunk)
+		{
+			this.data = data;
+			this.shift = shift;
+			this.col_start = col_start;
+			this.col_end = col_end;
+			this.row_start = row_start;
+			this.row_end = row_end;
+			this.chunk = chunk;
+		}
+
+		protected double[] compute()
+		{
+			if( row_end - row_start > chunk )
+			{
+				int mid = (row_start + row_end) >>> 1;
+				MomentTask right = new MomentTask(data, shift, col_start, col_end, mid, row_end, chunk);
+				right.fork();
+				double[] a = new MomentTask(data, shift, col_start, col_end, row_start, mid, chunk).compute();
+				double[] b = right.join();
+				return new double[] { a[0]+b[0], a[1]+b[1], Math.min(a[2],b[2]), Math.max(a[3],b[3]) };
+			}
+
+			double a = 0, b = 0;
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			double[] buf = new double[data.getWidth()];
+			for(int i=row_start; i<row_end; i++)
+			{
+				double[] row = data.getRow(i, buf);
+				for(int j=col_start; j<col_end; j++)
+				{
+					// NaN is included in the sums, as in the tables, but not in the range
+					double v = row[j];
+					double d = v - shift;
+					a += d;
+					b += d*d;
+					if( v < min )
+						min = v;
+					if( v > max )
+						max = v;
+				}
+			}
+			return new double[] { a, b, min, max };
+		}
+	}
+}
@@ -0,0 +1,468 @@
+package SciTK;
+
+import java.awt.AlphaComposite;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.JComponent;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+
+/** A component which displays a large image at any scale by rendering
+ * only the tiles that are visible. Rendered tiles are kept in an LRU
+ * cache bounded by a memory budget, so scrolling back over an area or
+ * repainting (e.g. while dragging a selection) does not re-render.
+ * Tiles are sampled from the nearest level of an ImagePyramid, so
+ * the cost of a tile does not grow when zooming out. Tiles discarded
+ * when the image or scale changes are reused for the next tiles of the
+ * same size, so e.g. stepping through frames of a movie does not
+ * allocate new tiles.
+ * Intended to be placed in a JScrollPane.
+ *
+ * The image is drawn centered if the component is larger than it.
+ * Overlays (selections, etc) are painted after the tiles by an Overlay,
+ * in image-origin coordinates.
+ *
+ * @package SciTK
+ * @class TiledImagePanel
+ * @brief Scrollable tile-cached image display
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class TiledImagePanel extends JComponent implements Scrollable
+{
+	/** Edge length of a tile, in display pixels */
+	public static final int TILE_SIZE = 256;
+
+	/** Paints on top of the image */
+	public interface Overlay
+	{
+		/**
+		* Paint the overlay
+		* @param g graphics translated so that (0,0) is the image's top left corner
+		* @param scale the display scale (display pixels per image pixel)
+		*/
+		void paintOverlay(Graphics2D g, double scale);
+	}
+
+	private BufferedImage source; /** Full resolution image */
+	private ImagePyramid pyramid; /** Reduced versions of source */
+	private double scale = 1.0; /** Display pixels per image pixel */
+	private Overlay overlay; /** Painted on top of the image, may be null */
+	private TileCache cache; /** Rendered tiles */
+
+	/**
+	* Constructor
+	* @param cache_bytes memory budget for cached tiles, in bytes
+	*/
+	public TiledImagePanel(long cache_bytes)
+	{
+		cache = new TileCache(cache_bytes);
+		setOpaque(false);
+	}
+
+	// ---------------------------------------
+	//		Content
+	// ---------------------------------------
+	/**
+	* Set the full resolution image to display. Cached tiles are discarded.
+	* @param source the image
+	*/
+	public void setSource(BufferedImage source)
+	{
+		setSource( (source == null) ? null : new ImagePyramid(source) );
+	}
+
+	/**
+	* Set the image to display, as a pyramid whose levels may already
+	* be built. Cached tiles are discarded.
+	* @param pyramid the image pyramid
+	*/
+	public void setSource(ImagePyramid pyramid)
+	{
+		this.pyramid = pyramid;
+		this.source = (pyramid == null) ? null : pyramid.getBase();
+		cache.clear();
+		revalidate();
+		repaint();
+	}
+
+	/**
+	* Get the pyramid of the displayed image
+	* @return the pyramid
+	*/
+	public ImagePyramid getPyramid()
+	{
+		return pyramid;
+	}
+
+	/**
+	* Get the full resolution image
+	* @return the image being displayed
+	*/
+	public BufferedImage getSource()
+	{
+		return source;
+	}
+
+	/**
+	* Set the display scale. Cached tiles are discarded if it changes.
+	* @param scale display pixels per image pixel
+	*/
+	public void setScale(double scale)
+	{
+		if( scale == this.scale )
+			return;
+		this.scale = scale;
+		cache.clear();
+		revalidate();
+		repaint();
+	}
+
+	/**
+	* Get the display scale
+	* @return display pixels per image pixel
+	*/
+	public double getScale()
+	{
+		return scale;
+	}
+
+	/**
+	* Set the overlay painted on top of the image
+	* @param overlay the overlay, or null for none
+	*/
+	public void setOverlay(Overlay overlay)
+	{
+		this.overlay = overlay;
+		repaint();
+	}
+
+	/**
+	* Set the memory budget for cached tiles
+	* @param bytes the maximum size of the cache, in bytes
+	*/
+	public void setCacheSize(long bytes)
+	{
+		cache.setBudget(bytes);
+	}
+
+	// ---------------------------------------
+	//		Coordinates
+	// ---------------------------------------
+	/**
+	* Size of the image as displayed
+	* @return the displayed width and height
+	*/
+	public Dimension getDisplaySize()
+	{
+		if( source == null )
+			return new Dimension(0,0);
+		return new Dimension( (int)Math.ceil(scale*source.getWidth()), (int)Math.ceil(scale*source.getHeight()) );
+	}
+
+	/**
+	* Position of the image's top left corner in this component
+	* @return the offset of the image
+	*/
+	public Point getImageOrigin()
+	{
+		Dimension d = getDisplaySize();
+		return new Point( Math.max(0,(getWidth()-d.width)/2), Math.max(0,(getHeight()-d.height)/2) );
+	}
+
+	/**
+	* Convert a point in this component to image pixel coordinates
+	* @param p the point in component coordinates
+	* @return the image pixel containing p
+	*/
+	public Point toImage(Point p)
+	{
+		Point o = getImageOrigin();
+		return new Point( (int)Math.floor((p.x-o.x)/scale), (int)Math.floor((p.y-o.y)/scale) );
+	}
+
+	/**
+	* Convert image pixel coordinates to a point in this component
+	* @param p the image pixel
+	* @return the position of the pixel's top left corner in component coordinates
+	*/
+	public Point toComponent(Point p)
+	{
+		Point o = getImageOrigin();
+		return new Point( o.x + (int)Math.round(p.x*scale), o.y + (int)Math.round(p.y*scale) );
+	}
+
+	/**
+	* Check if a point in this component is over the image
+	* @param p the point in component coordinates
+	* @return true if p is over the image
+	*/
+	public boolean onImage(Point p)
+	{
+		if( source == null )
+			return false;
+		Point o = getImageOrigin();
+		Dimension d = getDisplaySize();
+		return p.x >= o.x && p.y >= o.y && p.x < o.x+d.width && p.y < o.y+d.height;
+	}
+
+	// ---------------------------------------
+	//		Painting
+	// ---------------------------------------
+	/**
+	* Repaint part of the image, e.g. where an overlay changed. Tiles
+	* under the area are drawn from the cache, so this is cheap.
+	* @param r the area in display coordinates relative to the image's top left corner
+	*/
+	public void repaintImageArea(Rectangle r)
+	{
+		Point o = getImageOrigin();
+		repaint(r.x + o.x, r.y + o.y, r.width, r.height);
+	}
+
+	protected void paintComponent(Graphics g0)
+	{
+		if( source == null )
+			return;
+		Graphics2D g = (Graphics2D) g0.create();
+		try
+		{
+			Point o = getImageOrigin();
+			g.translate(o.x, o.y);
+
+			// visible region of the displayed image:
+			Dimension d = getDisplaySize();
+			Rectangle clip = g.getClipBounds();
+			if( clip == null )
+				clip = new Rectangle(0, 0, d.width, d.height);
+			clip = clip.intersection(new Rectangle(0, 0, d.width, d.height));
+
+			if( !clip.isEmpty() )
+			{
+				int tx0 = clip.x / TILE_SIZE;
+				int ty0 = clip.y / TILE_SIZE;
+				int tx1 = (clip.x + clip.width - 1) / TILE_SIZE;
+				int ty1 = (clip.y + clip.height - 1) / TILE_SIZE;
+				for(int ty=ty0; ty<=ty1; ty++)
+					for(int tx=tx0; tx<=tx1; tx++)
+						g.drawImage(getTile(tx,ty,d), tx*TILE_SIZE, ty*TILE_SIZE, null);
+			}
+
+			if( overlay != null )
+				overlay.paintOverlay(g, scale);
+		}
+		finally
+		{
+			g.dispose();
+		}
+	}
+
+	/** Get a tile from the cache, rendering it if needed */
+	private BufferedImage getTile(int tx, int ty, Dimension d)
+	{
+		long key = ((long)ty << 32) | (tx & 0xFFFFFFFFL);
+		BufferedImage tile = cache.get(key);
+		if( tile == null )
+		{
+			tile = renderTile(tx, ty, d);
+			cache.put(key, tile);
+		}
+		return tile;
+	}
+
+	/** Render one tile of the image at the current scale */
+	protected BufferedImage renderTile(int tx, int ty, Dimension d)
+	{
+		int w = Math.min(TILE_SIZE, d.width - tx*TILE_SIZE);
+		int h = Math.min(TILE_SIZE, d.height - ty*TILE_SIZE);
+		int type = source.getType();
+		if( type == BufferedImage.TYPE_CUSTOM )
+			type = BufferedImage.TYPE_INT_ARGB;
+		// gray palettes stay at one byte per pixel; interpolating between
+		// the entries of other palettes needs true color:
+		if( source.getColorModel() instanceof IndexColorModel )
+		{
+			IndexColorModel cm = (IndexColorModel) source.getColorModel();
+			if( isGray(cm) )
+				type = BufferedImage.TYPE_BYTE_GRAY;
+			else
+				type = cm.hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		}
+		BufferedImage tile = cache.takeSpare(w, h, type);
+		if( tile == null )
+			tile = new BufferedImage(w, h, type);
+
+		// draw from the nearest pyramid level, which is at most 2x larger:
+		int level = pyramid.levelFor(scale);
+		BufferedImage level_image = pyramid.getLevel(level);
+		double s = scale / ImagePyramid.levelScale(level);
+
+		Graphics2D g = tile.createGraphics();
+		// clear anything left from a reused tile:
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(0, 0, w, h);
+		g.setComposite(AlphaComposite.SrcOver);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+			RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		// only the part of the source under this tile is sampled:
+		AffineTransform t = new AffineTransform(s, 0, 0, s, -tx*TILE_SIZE, -ty*TILE_SIZE);
+		g.drawImage(level_image, t, null);
+		g.dispose();
+		return tile;
+	}
+
+	/**
+	* Check if a palette only has shades of gray, e.g. a grayscale ramp
+	* with the contrast adjusted, so it can be drawn as TYPE_BYTE_GRAY
+	* @param cm the palette
+	* @return true if every entry of cm is an opaque gray
+	*/
+	public static boolean isGray(IndexColorModel cm)
+	{
+		if( cm == null || cm.hasAlpha() )
+			return false;
+		for(int i=0; i<cm.getMapSize(); i++)
+		{
+			int rgb = cm.getRGB(i);
+			int r = (rgb >> 16) & 0xFF;
+			if( ((rgb >> 8) & 0xFF) != r || (rgb & 0xFF) != r )
+				return false;
+		}
+		return true;
+	}
+
+	// ---------------------------------------
+	//		Sizing and scrolling
+	// ---------------------------------------
+	public Dimension getPreferredSize()
+	{
+		if( isPreferredSizeSet() )
+			return super.getPreferredSize();
+		return getDisplaySize();
+	}
+
+	public Dimension getPreferredScrollableViewportSize()
+	{
+		// show the whole image if it fits comfortably on screen:
+		Dimension d = getPreferredSize();
+		Dimension screen = getToolkit().getScreenSize();
+		return new Dimension( Math.min(d.width, (int)(0.8*screen.width)), Math.min(d.height, (int)(0.8*screen.height)) );
+	}
+
+	public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction)
+	{
+		return 16;
+	}
+
+	public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction)
+	{
+		return (orientation == SwingConstants.HORIZONTAL) ? visible.width - 16 : visible.height - 16;
+	}
+
+	public boolean getScrollableTracksViewportWidth()
+	{
+		// stretch to fill the viewport when the image is smaller, so it can be centered:
+		return getParent() != null && getParent().getWidth() > getPreferredSize().width;
+	}
+
+	public boolean getScrollableTracksViewportHeight()
+	{
+		return getParent() != null && getParent().getHeight() > getPreferredSize().height;
+	}
+
+	/** LRU cache of tiles, bounded by the memory they use. Tiles removed
+	 * by clear() are kept as spares to be drawn over. */
+	private static class TileCache
+	{
+		private LinkedHashMap<Long,BufferedImage> tiles; /** tiles, least recently used first */
+		private ArrayList<BufferedImage> spares; /** discarded tiles, available for reuse */
+		private long bytes; /** memory used by cached and spare tiles */
+		private long budget; /** maximum memory to use */
+
+		TileCache(long budget)
+		{
+			this.budget = budget;
+			tiles = new LinkedHashMap<Long,BufferedImage>(64, 0.75f, true);
+			spares = new ArrayList<BufferedImage>();
+		}
+
+		BufferedImage get(long key)
+		{
+			return tiles.get(key);
+		}
+
+		void put(long key, BufferedImage tile)
+		{
+			BufferedImage old = tiles.put(key, tile);
+			if( old != null )
+				bytes -= size(old);
+			bytes += size(tile);
+			trim();
+		}
+
+		void clear()
+		{
+			// every cached tile is within budget, so all can be kept as spares:
+			spares.addAll(tiles.values());
+			tiles.clear();
+		}
+
+		/** Take a spare tile of the given size and type, or null if there is none */
+		BufferedImage takeSpare(int w, int h, int type)
+		{
+			for(int i=spares.size()-1; i>=0; i--)
+			{
+				BufferedImage t = spares.get(i);
+				if( t.getWidth() == w && t.getHeight() == h && t.getType() == type )
+				{
+					// move the last spare into this slot:
+					spares.set(i, spares.get(spares.size()-1));
+					spares.remove(spares.size()-1);
+					bytes -= size(t);
+					return t;
+				}
+			}
+			return null;
+		}
+
+		void setBudget(long budget)
+		{
+			this.budget = budget;
+			trim();
+		}
+
+		/** Drop spares, then least recently used tiles, until within budget (always keep the newest) */
+		private void trim()
+		{
+			while( bytes > budget && !spares.isEmpty() )
+				bytes -= size( spares.remove(spares.size()-1) );
+			Iterator<Map.Entry<Long,BufferedImage>> it = tiles.entrySet().iterator();
+			while( bytes > budget && tiles.size() > 1 && it.hasNext() )
+			{
+				bytes -= size(it.next().getValue());
+				it.remove();
+			}
+		}
+
+		/** Memory used by a tile's pixels, from its data buffer */
+		private static long size(BufferedImage tile)
+		{
+			DataBuffer db = tile.getRaster().getDataBuffer();
+			return (long)db.getSize() * db.getNumBanks() * (DataBuffer.getDataTypeSize(db.getDataType())/8);
+		}
+	}
+}
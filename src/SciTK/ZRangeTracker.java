@@ -0,0 +1,146 @@
+package SciTK;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jfree.data.xy.XYZDataset;
+
+/** Keeps the range of z values of each series in an XYZ dataset, so that
+ * when a series is added or replaced only that series is scanned, and the
+ * overall range is combined from the per-series ranges. This lets a plot
+ * whose data are updated live keep its color scale correct without
+ * rescanning every cell on each update.
+ *
+ * NaN values are ignored. Grids are scanned in parallel.
+ *
+ * @package SciTK
+ * @class ZRangeTracker
+ * @brief Incremental per-series z range of XYZ data
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license SciTK / MIT License
+ */
+public class ZRangeTracker
+{
+	private LinkedHashMap<Comparable,double[]> ranges; /** {min, max} of each series */
+	private double min = Double.NaN; /** Smallest z of all series, or NaN */
+	private double max = Double.NaN; /** Largest z of all series, or NaN */
+
+	/** Constructor, with no series */
+	public ZRangeTracker()
+	{
+		ranges = new LinkedHashMap<Comparable,double[]>();
+	}
+
+	/**
+	* Constructor, scanning every series of a dataset
+	* @param data the dataset
+	*/
+	public ZRangeTracker(XYZDataset data)
+	{
+		this();
+		for(int i=0; i<data.getSeriesCount(); i++)
+			ranges.put(data.getSeriesKey(i), scan(data, i));
+		combine();
+	}
+
+	/**
+	* Scan one series of a dataset (e.g. after it was added or replaced)
+	* @param data the dataset
+	* @param series the index of the series
+	* @return true if the overall range changed
+	*/
+	public boolean update(XYZDataset data, int series)
+	{
+		return update(data.getSeriesKey(series), scan(data, series));
+	}
+
+	/**
+	* Set the range of a series
+	* @param key the series' key
+	* @param range the {min, max} of the series, or {NaN, NaN} if it has no valid values
+	* @return true if the overall range changed
+	*/
+	public boolean update(Comparable key, double[] range)
+	{
+		ranges.put(key, new double[] { range[0], range[1] });
+		return combine();
+	}
+
+	/**
+	* Forget a series
+	* @param key the series' key
+	* @return true if the overall range changed
+	*/
+	public boolean remove(Comparable key)
+	{
+		if( ranges.remove(key) == null )
+			return false;
+		return combine();
+	}
+
+	/** @return the smallest z of all series, or NaN if there are no valid values */
+	public double getMin() { return min; }
+	/** @return the largest z of all series, or NaN if there are no valid values */
+	public double getMax() { return max; }
+
+	/**
+	* Find the range of z in one series of a dataset
+	* @param data the dataset
+	* @param series the index of the series
+	* @return {min, max}, or {NaN, NaN} if there are no valid values
+	*/
+	public static double[] scan(XYZDataset data, int series)
+	{
+		if( data instanceof GridXYZDataset )
+			return ImageNormalizer.range( ((GridXYZDataset)data).getZ() );
+
+		double lo = Double.POSITIVE_INFINITY;
+		double hi = Double.NEGATIVE_INFINITY;
+		int n = data.getItemCount(series);
+		for(int j=0; j<n; j++)
+		{
+			// check both: a value can be the new min and max at once
+			double z = data.getZValue(series, j);
+			if( z < lo )
+				lo = z;
+			if( z > hi )
+				hi = z;
+		}
+		if( lo > hi ) // no valid values
+			return new double[] { Double.NaN, Double.NaN };
+		return new double[] { lo, hi };
+	}
+
+	/** Combine the per-series ranges, returning true if the overall range changed */
+	private boolean combine()
+	{
+		double lo = Double.POSITIVE_INFINITY;
+		double hi = Double.NEGATIVE_INFINITY;
+		for(Map.Entry<Comparable,double[]> e : ranges.entrySet())
+		{
+			double[] r = e.getValue();
+			// NaN compares false, so empty series are skipped:
+			if( r[0] < lo )
+				lo = r[0];
+			if( r[1] > hi )
+				hi = r[1];
+		}
+		if( lo > hi )
+		{
+			lo = Double.NaN;
+			hi = Double.NaN;
+		}
+		boolean changed = !same(lo, min) || !same(hi, max);
+		min = lo;
+		max = hi;
+		return changed;
+	}
+
+	/** Equality, with NaN equal to NaN */
+	private static boolean same(double a, double b)
+	{
+		return a == b || (a != a && b != b);
+	}
+}
@@ -0,0 +1,78 @@
+/** Benchmark the parallel image normalization used by SciTK_Image.
+ * Times the passes made for each new image or movie frame: building
+ * the histogram (range and counts), quantizing to histogram codes, and
+ * making the display levels from the codes, as for a contrast change.
+ * Each is run with pools of 1 up to N workers, and the speedup printed.
+ *
+ * Usage: java -Xmx2g BenchmarkNormalize [size] [max threads]
+ * The default is an 8192 x 8192 frame (512 MB of doubles) and one
+ * thread per available processor.
+ *
+ * @class BenchmarkNormalize
+ * @brief Scaling benchmark for ImageHistogram and ImageNormalizer
+ * @author Alex Zylstra
+ * @date 2026/10/17
+ * @copyright Alex Zylstra
+ * @license MIT
+ */
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import SciTK.*;
+
+public class BenchmarkNormalize
+{
+	/** Number of timed repetitions for each thread count */
+	static final int REPEATS = 5;
+
+	public static void main(String[] args)
+	{
+		int size = (args.length > 0) ? Integer.parseInt(args[0]) : 8192;
+		int max_threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		// test frame: smooth gradient plus noise
+		System.out.println("Generating " + size + " x " + size + " frame...");
+		double[][] data = new double[size][size];
+		Random r = new Random(1);
+		for(int i=0; i<size; i++)
+			for(int j=0; j<size; j++)
+				data[i][j] = i + 0.5*j + 10.0*r.nextGaussian();
+		RawImage raw = new ArrayRawImage(data);
+		ImageHistogram hist = new ImageHistogram(ImageHistogram.DEFAULT_BINS);
+		short[] codes = new short[size*size];
+		byte[] table = new byte[hist.getCodeCount()];
+		byte[] out = new byte[size*size];
+
+		System.out.println("threads\thist ms\tcode ms\tlevel ms\ttotal ms\tMpix/s\tspeedup");
+		double base = 0;
+		for(int t=1; t<=max_threads; t++)
+		{
+			ForkJoinPool pool = new ForkJoinPool(t);
+			long best_hist = Long.MAX_VALUE, best_code = Long.MAX_VALUE, best_level = Long.MAX_VALUE;
+			for(int k=0; k<=REPEATS; k++) // the first is a warm up
+			{
+				long start = System.nanoTime();
+				hist.build(raw, pool);
+				long built = System.nanoTime();
+				ImageNormalizer.quantize(raw, hist, codes, size, pool);
+				long coded = System.nanoTime();
+				ImageNormalizer.levels(hist, hist.percentile(0.1), hist.percentile(99.9), table);
+				ImageNormalizer.applyLevels(codes, table, out, pool);
+				long leveled = System.nanoTime();
+				if( k == 0 )
+					continue;
+				best_hist = Math.min(best_hist, built-start);
+				best_code = Math.min(best_code, coded-built);
+				best_level = Math.min(best_level, leveled-coded);
+			}
+			pool.shutdown();
+
+			double ms = (best_hist + best_code + best_level)/1e6;
+			if( t == 1 )
+				base = ms;
+			System.out.printf("%d\t%.1f\t%.1f\t%.1f\t%.1f\t%.0f\t%.2f%n", t, best_hist/1e6, best_code/1e6, best_level/1e6,
+				ms, (double)size*size/(ms*1e3), base/ms);
+		}
+	}
+}